@@ -153,5 +153,26 @@ class CarcassTest {
 
         assertFalse(world.contains(carcass), "Carcass should rot faster after being infected");
     }
-}
 
+    /**
+     * Test that a carcass is dormant while it counts down, and rots away in the step it would have when acting every step.
+     */
+    @Test
+    void carcassIsDormantUntilItRotsAway() {
+        Carcass carcass = new Carcass(10, 5, false, new FixedRandom(0.99)); // fungi only after many steps
+        world.setTile(loc, carcass);
+
+        carcass.act(world); // rotTimer = 4
+        assertTrue(world.isDormant(carcass), "Carcass should be dormant while counting down");
+
+        for (int i = 0; i < 3; i++) {
+            world.step();
+            assertTrue(world.isDormant(carcass), "Carcass should stay dormant until it rots away");
+        }
+        world.step();
+        assertFalse(world.isDormant(carcass), "Carcass should be woken in the step it rots away");
+
+        carcass.act(world);
+        assertFalse(world.contains(carcass), "Carcass should rot away after the steps it was dormant");
+    }
+}
@@ -1,11 +1,19 @@
+import Inanimate.Bush;
 import Inanimate.Grass;
+import itumulator.simulator.Simulator;
+import itumulator.world.ActivationOrder;
+import itumulator.world.EntityCursor;
 import itumulator.world.Location;
+import itumulator.world.Randomized;
 import itumulator.world.World;
 import org.junit.jupiter.api.*;
 
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.random.RandomGenerator;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -94,4 +102,126 @@ class GrassTest {
         }
     }
 
+    /**
+     * Test that two Grass spreading onto the same tiles in the same step do not conflict when the simulator commits intents
+     * (the grass planning first gets the shared tiles, and the other grass's intents for them are dropped).
+     */
+    @Test
+    public void GrassSpreadingWithIntentsResolvesConflicts() {
+        Random alwaysSpread = new Random() {
+            @Override
+            public int nextInt(int bound) {
+                return 0;
+            }
+        };
+        w10.setTile(new Location(4,5), new Grass(alwaysSpread));
+        w10.setTile(new Location(5,5), new Grass(alwaysSpread));
+
+        Simulator simulator = new Simulator(w10);
+        simulator.setIntentCommit(true);
+        simulator.simulate();
+
+        for (int x = 3; x <= 6; x++) {
+            for (int y = 4; y <= 6; y++) {
+                assertInstanceOf(Grass.class, w10.getNonBlocking(new Location(x,y)));
+            }
+        }
+        assertEquals(12, w10.getEntities().size());
+        assertEquals(4, simulator.getDroppedIntents()); // (4,4), (4,6), (5,4) and (5,6) are neighbours of both
+    }
+
+    /**
+     * Test that Grass is activated along the Z-order curve when the world is given that order, and that the order follows
+     * grass which is placed elsewhere between steps.
+     */
+    @Test
+    public void GrassIsActivatedInMortonOrder() {
+        w10.setActivationOrder(ActivationOrder.MORTON);
+        Grass moved = new Grass();
+        w10.setTile(new Location(3,3), new Grass());
+        w10.setTile(new Location(0,1), new Grass());
+        w10.setTile(new Location(2,0), moved);
+        w10.setTile(new Location(1,0), new Grass());
+
+        assertEquals(List.of(new Location(1,0), new Location(0,1), new Location(2,0), new Location(3,3)), activated());
+
+        w10.remove(moved);
+        w10.setTile(new Location(0,0), moved);
+        assertEquals(List.of(new Location(0,0), new Location(1,0), new Location(0,1), new Location(3,3)), activated());
+    }
+
+    /**
+     * Test that objects entering the same tile in the same step are given different random streams
+     * (otherwise grass replacing grass within a step would spread exactly alike).
+     */
+    @Test
+    public void ObjectsEnteringTheSameTileDrawDifferentValues() {
+        w10.setSeed(1);
+        Drawing first = new Drawing();
+        Drawing second = new Drawing();
+        Location l = new Location(5,5);
+
+        w10.setTile(l, first);
+        w10.delete(first);
+        w10.setTile(l, second);
+
+        assertNotEquals(first.random.nextLong(), second.random.nextLong());
+    }
+
+    /**
+     * Test that grass and bushes acting in parallel stripes end up exactly like acting one at a time in the same order
+     * (the even stripes before the odd stripes).
+     */
+    @Test
+    public void ParallelStripesEndLikeActingOneAtATime() {
+        World sequential = plantedWorld();
+        World parallel = plantedWorld();
+        Simulator one = new Simulator(sequential);
+        Simulator many = new Simulator(parallel);
+        many.setParallelism(4, 1);
+        one.simulate(15);
+        many.simulate(15);
+        many.setParallelism(1, 1);
+
+        assertEquals(sequential.getEntities().size(), parallel.getEntities().size());
+        for (int x = 0; x < 128; x++) {
+            for (int y = 0; y < 128; y++) {
+                Location l = new Location(x, y);
+                Object a = sequential.containsNonBlocking(l) ? sequential.getNonBlocking(l) : null;
+                Object b = parallel.containsNonBlocking(l) ? parallel.getNonBlocking(l) : null;
+                assertEquals(a == null ? null : a.getClass(), b == null ? null : b.getClass(), "Tile " + l + " should hold the same");
+            }
+        }
+    }
+
+    private static World plantedWorld() {
+        World world = new World(128);
+        world.setSeed(3);
+        int height = world.getStripeHeight(1);
+        world.setActivationOrder((x, y, size) -> (y / height) % 2 * size * size + y * size + x);
+        RandomGenerator random = world.newRandom();
+        for (int i = 0; i < 600; i++) {
+            Location l = new Location(random.nextInt(128), random.nextInt(128));
+            if (!world.containsNonBlocking(l)) world.setTile(l, i % 4 == 0 ? new Bush() : new Grass());
+        }
+        return world;
+    }
+
+    private List<Location> activated() {
+        List<Location> locations = new ArrayList<>();
+        EntityCursor cursor = w10.activationCursors(1)[0];
+        while (cursor.next()) {
+            locations.add(cursor.location());
+        }
+        return locations;
+    }
+
+    private static class Drawing implements Randomized {
+        private RandomGenerator random;
+
+        @Override
+        public void provideRandom(RandomGenerator random) {
+            this.random = random;
+        }
+    }
 }
@@ -1,10 +1,15 @@
 import Actors.Rabbit;
 import Inanimate.Burrow;
 import Inanimate.Grass;
+import itumulator.simulator.Simulator;
 import itumulator.world.Location;
 import itumulator.world.World;
 import org.junit.jupiter.api.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -192,4 +197,100 @@ class RabbitTest {
         assertTrue(leader.getAmountOfKids() > kidsBefore,
                 "Leader rabbit should reproduce at night when 2+ rabbits share a burrow and are adult");
     }
+    /**
+     * Test that a sleeping rabbit becomes dormant until the day starts, and catches up on aging once it acts again.
+     */
+    @Test
+    void sleepingRabbitIsDormantUntilDay_andCatchesUpOnAging() {
+        Burrow burrow = new Burrow();
+        world.setTile(new Location(4, 5), burrow);
+        rabbit.setBurrow(burrow);
+
+        world.setNight();
+        rabbit.act(world); // falls asleep
+        rabbit.act(world); // nothing to do until morning
+        assertTrue(world.isDormant(rabbit), "Sleeping rabbit should be dormant at night");
+
+        int ageBefore = rabbit.getAge();
+        int steps = 0;
+        while (world.isNight()) {
+            assertTrue(world.isDormant(rabbit), "Rabbit should stay dormant during the night");
+            world.step();
+            steps++;
+        }
+        assertFalse(world.isDormant(rabbit), "Rabbit should be woken when the day starts");
+
+        rabbit.act(world);
+        assertEquals(ageBefore + steps, rabbit.getAge(), "Rabbit should age for every step it was dormant");
+        assertTrue(world.isOnTile(rabbit), "Rabbit should wake up on the map");
+    }
+
+    /**
+     * Test that two rabbits heading for the same grass when the simulator commits intents do not both get it: the rabbit planning
+     * first moves onto the grass and eats it, and the move and meal of the other rabbit are dropped.
+     */
+    @Test
+    void rabbitsHeadingForTheSameGrassWithIntentsResolveTheConflict() {
+        World small = new World(3);
+        small.setDay();
+        Grass grass = new Grass();
+        small.setTile(new Location(1, 1), grass);
+        Rabbit first = new Rabbit(new FixedRandom(0.90));
+        Rabbit second = new Rabbit(new FixedRandom(0.90));
+        first.setEnergy(30);
+        second.setEnergy(30);
+        small.setTile(new Location(0, 1), first);
+        small.setTile(new Location(2, 1), second);
+
+        Simulator simulator = new Simulator(small);
+        simulator.setIntentCommit(true);
+        simulator.simulate();
+
+        assertSame(first, small.getTile(new Location(1, 1)));
+        assertEquals(new Location(2, 1), small.getLocation(second));
+        assertFalse(small.contains(grass), "The grass should be eaten");
+        assertEquals(44, first.getEnergy()); // 30 - 1 (aging) - 5 (moving) + 20 (grass)
+        assertEquals(24, second.getEnergy()); // the effort of moving is spent all the same
+        assertEquals(2, simulator.getDroppedIntents());
+    }
+
+    /**
+     * Test that a world restored from a checkpoint keeps the burrows and their residents, and continues exactly like the original world.
+     */
+    @Test
+    void restoredWorldContinuesLikeTheOriginal() throws IOException {
+        World original = new World(15);
+        original.setSeed(42);
+        for (int i = 0; i < 15; i++) {
+            original.setTile(new Location(i, i), new Grass());
+            original.setTile(new Location(i, 14 - i), new Rabbit());
+        }
+        Simulator simulator = new Simulator(original);
+        simulator.simulate(30);
+
+        ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        simulator.checkpoint(checkpoint);
+        Simulator restored = Simulator.restore(new ByteArrayInputStream(checkpoint.toByteArray()));
+        World world = restored.getWorld();
+
+        assertEquals(simulator.getSteps(), restored.getSteps());
+        assertEquals(original.getStepCount(), world.getStepCount());
+        assertEquals(original.getEntities().size(), world.getEntities().size());
+        for (Map.Entry<Object, Location> e : world.getEntities().entrySet()) {
+            if (e.getKey() instanceof Burrow burrow) {
+                for (Rabbit resident : burrow.getRabbits()) {
+                    assertTrue(world.contains(resident), "Residents should be restored along with their burrow");
+                    assertSame(burrow, resident.getBurrow());
+                }
+            }
+        }
+
+        simulator.simulate(40);
+        restored.simulate(40);
+        ByteArrayOutputStream after = new ByteArrayOutputStream();
+        ByteArrayOutputStream restoredAfter = new ByteArrayOutputStream();
+        simulator.checkpoint(after);
+        restored.checkpoint(restoredAfter);
+        assertArrayEquals(after.toByteArray(), restoredAfter.toByteArray(), "Restored world should continue exactly like the original");
+    }
 }
@@ -0,0 +1,296 @@
+import Actors.Rabbit;
+import Inanimate.Grass;
+import itumulator.simulator.Actor;
+import itumulator.simulator.AllocationTelemetry;
+import itumulator.simulator.PopulationBands;
+import itumulator.simulator.ProfileReport;
+import itumulator.simulator.ReplicaRunner;
+import itumulator.simulator.Simulator;
+import itumulator.simulator.StepProfiler;
+import itumulator.simulator.TimeHistogram;
+import itumulator.world.Location;
+import itumulator.world.World;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The SimulatorTest class verifies what a {@link Simulator} measures about the steps it executes, using actors whose cost is
+ * known up front, and that spreading steps over several calls does not change their outcome.
+ */
+class SimulatorTest {
+
+    private World world;
+    private Simulator simulator;
+
+    /**
+     * An actor allocating a megabyte every time it acts.
+     */
+    static class Allocating implements Actor {
+        static volatile byte[] last; // keeps the allocation from being optimized away
+
+        @Override
+        public void act(World world) {
+            last = new byte[1 << 20];
+        }
+    }
+
+    /**
+     * An actor doing nothing at all.
+     */
+    static class Idle implements Actor {
+        @Override
+        public void act(World world) {
+        }
+    }
+
+    /**
+     * An actor sleeping for two milliseconds every time it acts.
+     */
+    static class Sleeping implements Actor {
+        @Override
+        public void act(World world) {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * An actor stalling the step once, for longer than the lag after which the steps missed are given up on.
+     */
+    static class Stalling implements Actor {
+        private volatile boolean stalled;
+        private volatile long stalledAt; // the step stalled
+        private int acts;
+
+        @Override
+        public void act(World world) {
+            if (++acts != 20) return;
+            try {
+                Thread.sleep(1500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stalledAt = world.getStepCount();
+            stalled = true;
+        }
+    }
+
+    /**
+     * An object doing nothing, counted by the replica tests.
+     */
+    static class Blob {
+    }
+
+    /**
+     * An object doing nothing, placed in some replicas only.
+     */
+    static class Marker {
+    }
+
+    /**
+     * An actor adding a blob to the world every time it acts.
+     */
+    static class Grower implements Actor {
+        @Override
+        public void act(World world) {
+            world.add(new Blob());
+        }
+    }
+
+    /**
+     * Sets up the world and simulator before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        world = new World(10);
+        simulator = new Simulator(world);
+    }
+
+    /**
+     * Cleans up the world and simulator after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        world = null;
+        simulator = null;
+    }
+
+    /**
+     * Test that telemetry counts the acts of each actor class and attributes the memory allocated to the class allocating it.
+     */
+    @Test
+    void telemetryAttributesAllocationsToTheActorClass() {
+        Assumptions.assumeTrue(AllocationTelemetry.isSupported());
+        for (int i = 0; i < 3; i++) world.setTile(new Location(i, 0), new Allocating());
+        for (int i = 0; i < 2; i++) world.setTile(new Location(i, 1), new Idle());
+        AllocationTelemetry telemetry = new AllocationTelemetry(0);
+        simulator.setAllocationTelemetry(telemetry);
+        simulator.simulate(4);
+
+        assertEquals(4, telemetry.getSteps());
+        assertEquals(12L, telemetry.getActsByClass().get(Allocating.class));
+        assertEquals(8L, telemetry.getActsByClass().get(Idle.class));
+        long allocating = telemetry.getBytesByClass().get(Allocating.class);
+        assertTrue(allocating >= 12L << 20, "Every act of the allocating actors should be accounted for");
+        assertTrue(telemetry.getBytesByClass().get(Idle.class) < 1 << 20, "The idle actors should hardly allocate anything");
+        assertTrue(telemetry.getTotalBytes() >= allocating);
+        assertTrue(telemetry.getLastStepBytes() >= 3L << 20);
+
+        telemetry.reset();
+        assertEquals(0, telemetry.getSteps());
+        assertTrue(telemetry.getActsByClass().isEmpty());
+    }
+
+    /**
+     * Test that once running falls behind by more than a second, the steps missed are given up on rather than executed back to
+     * back, so the simulation continues at its target rate afterwards.
+     */
+    @Test
+    void runGivesUpOnStepsMissedDuringALongStall() throws InterruptedException {
+        Stalling stalling = new Stalling();
+        world.setTile(new Location(0, 0), stalling);
+        simulator.setTargetRate(200);
+        simulator.run();
+        try {
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (!stalling.stalled && System.nanoTime() < deadline) Thread.sleep(5);
+            assertTrue(stalling.stalled, "The stalling step should have been reached");
+
+            Thread.sleep(300);
+            long followed = simulator.getSteps() - stalling.stalledAt;
+            assertTrue(followed < 150, "About 60 steps should follow in 300 ms, not the 300 steps missed, but " + followed + " did");
+            assertTrue(simulator.getLag() < 1000, "The lag should not exceed a second");
+        } finally {
+            simulator.stop();
+        }
+    }
+
+    /**
+     * Test that the profiler reports every given amount of steps, with one duration per step and phase and one per act of each actor
+     * class, that the durations of slow actors land in the upper buckets of their histogram, and that each report starts over.
+     */
+    @Test
+    void profilerReportsTheActsOfEachActorClass() {
+        for (int i = 0; i < 2; i++) world.setTile(new Location(i, 0), new Sleeping());
+        for (int i = 0; i < 3; i++) world.setTile(new Location(i, 1), new Idle());
+        StepProfiler profiler = new StepProfiler(5);
+        List<ProfileReport> reports = new ArrayList<>();
+        profiler.setReportListener(reports::add);
+        simulator.setStepProfiler(profiler);
+        simulator.simulate(4);
+        assertNull(profiler.getLastReport(), "No report should be made before the fifth step");
+        simulator.simulate(6);
+
+        assertEquals(2, reports.size());
+        ProfileReport report = reports.get(0);
+        assertEquals(1, report.getFirstStep());
+        assertEquals(5, report.getLastStep());
+        assertEquals(5, report.getSteps().getCount());
+        for (StepProfiler.Phase phase : StepProfiler.Phase.values()) assertEquals(5, report.getPhase(phase).getCount());
+        assertEquals(List.of(Sleeping.class, Idle.class), report.getActorClasses(), "The classes should be ordered by the time spent acting");
+
+        TimeHistogram sleeping = report.getActor(Sleeping.class);
+        assertEquals(10, sleeping.getCount());
+        assertEquals(15, report.getActor(Idle.class).getCount());
+        assertTrue(sleeping.getPercentileNanos(50) >= 2_000_000, "The median bound should be at least the time slept");
+        assertTrue(sleeping.getTotalNanos() >= 20_000_000);
+        assertTrue(sleeping.getTotalNanos() <= report.getPhase(StepProfiler.Phase.ACTORS).getTotalNanos());
+        assertTrue(report.getActor(Idle.class).getPercentileNanos(50) < 1_000_000);
+
+        ProfileReport next = reports.get(1);
+        assertSame(next, profiler.getLastReport());
+        assertEquals(6, next.getFirstStep());
+        assertEquals(10, next.getActor(Sleeping.class).getCount(), "Each report should start over");
+    }
+
+    /**
+     * Test that the bands of the replicas are the percentiles of their populations after each step, counting a class missing from
+     * a replica as 0 objects, and that they do not depend on how many replicas are simulated at a time.
+     */
+    @Test
+    void replicaBandsArePercentilesOfThePopulations() {
+        PopulationBands oneAtATime = new ReplicaRunner(1).run(numberedReplicas(), 20, 3, 11);
+        PopulationBands bands = new ReplicaRunner(4).run(numberedReplicas(), 20, 3, 11);
+
+        assertEquals(20, bands.getReplicas());
+        assertEquals(3, bands.getSteps());
+        assertEquals(List.of(Blob.class, Grower.class, Marker.class), bands.getSpecies());
+        for (int step = 0; step <= 3; step++) {
+            assertEquals(1 + step, bands.getPercentile(Blob.class, step, 0));
+            assertEquals(1 + step, bands.getPercentile(Blob.class, step, 5));
+            assertEquals(10 + step, bands.getPercentile(Blob.class, step, 50));
+            assertEquals(19 + step, bands.getPercentile(Blob.class, step, 95));
+            assertEquals(20 + step, bands.getPercentile(Blob.class, step, 100));
+            assertEquals(10.5 + step, bands.getMean(Blob.class, step), 1e-9);
+        }
+        assertEquals(0, bands.getPercentile(Marker.class, 3, 50), "Half of the replicas have no marker");
+        assertEquals(1, bands.getPercentile(Marker.class, 3, 55));
+        assertEquals(0.5, bands.getMean(Marker.class, 3), 1e-9);
+        assertEquals(oneAtATime.toTable(1), bands.toTable(1));
+    }
+
+    // builds the replicas 1, 2, 3 and so on (in whichever order they are requested): replica n holds n blobs and a grower,
+    // and the replicas of even numbers also hold a marker
+    private static LongFunction<World> numberedReplicas() {
+        AtomicInteger built = new AtomicInteger();
+        return seed -> {
+            int n = built.incrementAndGet();
+            World replica = new World(10);
+            replica.setSeed(seed);
+            for (int i = 0; i < n; i++) replica.add(new Blob());
+            replica.setTile(new Location(0, 0), new Grower());
+            if (n % 2 == 0) replica.add(new Marker());
+            return replica;
+        };
+    }
+
+    /**
+     * Test that steps spread over several calls by a step budget end up exactly like steps taken at once.
+     */
+    @Test
+    void budgetedStepsEndLikeWholeSteps() throws IOException {
+        Simulator whole = new Simulator(crowdedWorld());
+        Simulator budgeted = new Simulator(crowdedWorld());
+        budgeted.setStepBudget(1);
+
+        whole.simulate(20);
+        int calls = 0;
+        while (budgeted.getSteps() < 20 || budgeted.isStepInProgress()) {
+            budgeted.simulate();
+            calls++;
+            if (budgeted.isStepInProgress()) {
+                assertThrows(IllegalStateException.class, () -> budgeted.checkpoint(new ByteArrayOutputStream()));
+            }
+        }
+        assertTrue(calls > 20, "Steps of a crowded world should not fit in the budget");
+
+        ByteArrayOutputStream wholeState = new ByteArrayOutputStream();
+        ByteArrayOutputStream budgetedState = new ByteArrayOutputStream();
+        whole.checkpoint(wholeState);
+        budgeted.checkpoint(budgetedState);
+        assertArrayEquals(wholeState.toByteArray(), budgetedState.toByteArray(), "Budgeted steps should end like whole steps");
+    }
+
+    private static World crowdedWorld() {
+        World world = new World(100);
+        world.setSeed(7);
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 100; y++) {
+                world.setTile(new Location(x, y), new Grass());
+                if ((x + y) % 3 == 0) world.setTile(new Location(x, y), new Rabbit());
+            }
+        }
+        return world;
+    }
+}
@@ -0,0 +1,101 @@
+import itumulator.world.TimerWheel;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The TimerWheelTest class verifies that the {@link TimerWheel} used to wake dormant objects (e.g., a {@link Actors.Carcass}
+ * rotting away) hands out every item at exactly the step it was scheduled for, whether the item starts out in the lowest level,
+ * has to be moved down through the levels as the wheel advances, or is so far off that it waits beyond the highest level.
+ */
+class TimerWheelTest {
+
+    private TimerWheel<Long> wheel;
+
+    /**
+     * Sets up an empty wheel before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        wheel = new TimerWheel<>();
+    }
+
+    /**
+     * Test that items are handed out at their own step when advancing one step at a time, including items which
+     * are moved down from level 1 and level 2 (steps beyond 64 and 4096) and items on the edges of the spans.
+     */
+    @Test
+    void itemsExpireAtTheirStepAcrossLevels() {
+        long[] steps = {1, 63, 64, 65, 127, 128, 200, 4095, 4096, 4097, 5000, 64 * 64 * 3 + 17};
+        for (long step : steps) wheel.schedule(step, step);
+
+        List<Long> expired = new ArrayList<>();
+        for (long step = 1; step <= 64 * 64 * 3 + 20; step++) {
+            long now = step;
+            wheel.advanceTo(step, item -> {
+                assertEquals(now, item, "Item should expire at its own step");
+                expired.add(item);
+            });
+        }
+        assertEquals(steps.length, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Test that advancing many steps at once hands out the items in the order of their steps, as each step is passed.
+     */
+    @Test
+    void advancingManyStepsAtOnceKeepsTheOrder() {
+        wheel.schedule(300L, 300);
+        wheel.schedule(70L, 70);
+        wheel.schedule(9000L, 9000);
+        wheel.schedule(5L, 5);
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advanceTo(10_000, expired::add);
+
+        assertEquals(List.of(5L, 70L, 300L, 9000L), expired);
+        assertEquals(10_000, wheel.getTime());
+    }
+
+    /**
+     * Test that items further off than the highest level (2^36 steps) wait beyond it, and are moved into the wheel and
+     * expire at their step once the wheel reaches their span (an empty wheel skips ahead at once, so it starts near there).
+     */
+    @Test
+    void farFutureItemsExpireAtTheirStep() {
+        long span = 1L << 36;
+        wheel.advanceTo(span - 10, item -> fail("Nothing is scheduled"));
+        wheel.schedule(span + 5, span + 5);
+        wheel.schedule(span - 3, span - 3);
+
+        List<Long> seen = new ArrayList<>();
+        wheel.forEach((item, step) -> seen.add(step));
+        assertEquals(2, seen.size());
+        assertTrue(seen.contains(span + 5), "Item waiting beyond the highest level should still be visited");
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advanceTo(span + 4, expired::add);
+        assertEquals(List.of(span - 3), expired);
+        wheel.advanceTo(span + 5, expired::add);
+        assertEquals(List.of(span - 3, span + 5), expired);
+    }
+
+    /**
+     * Test that an item scheduled at or before the current step expires at the next step.
+     */
+    @Test
+    void pastItemsExpireAtTheNextStep() {
+        wheel.advanceTo(50, item -> fail("Nothing is scheduled"));
+        wheel.schedule(10L, 10);
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advanceTo(50, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advanceTo(51, expired::add);
+        assertEquals(List.of(10L), expired);
+    }
+}
@@ -2,6 +2,7 @@ import Actors.*;
 import Inanimate.*;
 import itumulator.executable.Program;
 import itumulator.simulator.Actor;
+import itumulator.simulator.Simulator;
 import itumulator.world.Location;
 import itumulator.world.World;
 import org.junit.jupiter.api.*;
@@ -95,6 +96,27 @@ class WolfTest {
     }
 
 
+    /**
+     * Test that two wolves eating from the same carcass when the simulator commits intents do not both get to: the wolf planning
+     * first eats, and the meal of the other wolf is dropped.
+     */
+    @Test
+    void wolvesEatingTheSameCarcassWithIntentsResolveTheConflict() {
+        leader.setEnergy(10);
+        wolf.setEnergy(10);
+        Carcass carcass = new Carcass(60, 10);
+        world.setTile(new Location(2, 3), carcass);
+
+        Simulator simulator = new Simulator(world);
+        simulator.setIntentCommit(true);
+        simulator.simulate();
+
+        assertEquals(30, carcass.getMeatLeft(), "Only one wolf should eat from the carcass");
+        assertEquals(39, leader.getEnergy()); // 10 - 1 (aging) + 30 (meat)
+        assertEquals(9, wolf.getEnergy());
+        assertEquals(1, simulator.getDroppedIntents());
+    }
+
     /**
      * Test that a wolf successfully hunts and kills a rabbit, leaving a carcass.
      */
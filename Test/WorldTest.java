@@ -0,0 +1,319 @@
+import Inanimate.Grass;
+import itumulator.world.DirtyTiles;
+import itumulator.world.EntityCursor;
+import itumulator.world.Layer;
+import itumulator.world.LayerView;
+import itumulator.world.Location;
+import itumulator.world.MutationJournal;
+import itumulator.world.NeighbourMask;
+import itumulator.world.World;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The WorldTest class verifies the bookkeeping of the {@link World} itself, independently of any actor: how objects are
+ * indexed and stored, how the map is searched and how changes are reported.
+ */
+class WorldTest {
+
+    private World world;
+
+    /**
+     * Sets up the world before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        world = new World(10);
+    }
+
+    /**
+     * Cleans up the world after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        world = null;
+    }
+
+    /**
+     * Test that an object added after a cursor was created is not visited by it, even though it reuses the handle of an object
+     * deleted meanwhile, and that the deleted object no longer resolves to the handle.
+     */
+    @Test
+    void reusedHandleIsNotVisitedByOlderCursor() {
+        List<Integer> handles = new ArrayList<>();
+        world.addMutationListener(journal -> {
+            for (int i = 0; i < journal.size(); i++) handles.add(journal.getHandle(i));
+        });
+        Object deleted = new Object();
+        Object kept = new Object();
+        Object added = new Object();
+        world.setTile(new Location(1, 1), deleted);
+        world.setTile(new Location(2, 2), kept);
+
+        EntityCursor cursor = world.entityCursor();
+        world.delete(deleted);
+        world.setTile(new Location(3, 3), added);
+        world.flushJournal();
+        assertEquals(handles.get(0), handles.get(3), "The added object should reuse the handle of the deleted object");
+
+        assertTrue(cursor.next());
+        assertSame(kept, cursor.entity());
+        assertFalse(cursor.next(), "The object added after the cursor was created should not be visited");
+
+        assertFalse(world.contains(deleted));
+        assertThrows(IllegalArgumentException.class, () -> world.getLocation(deleted));
+        assertEquals(new Location(3, 3), world.getLocation(added));
+
+        List<Object> visited = new ArrayList<>();
+        EntityCursor next = world.entityCursor();
+        while (next.next()) visited.add(next.entity());
+        assertEquals(List.of(added, kept), visited); // in the order of their handles
+    }
+
+    /**
+     * Test that a world just above {@link World#CHUNKED_THRESHOLD}, which is stored in chunks by default, answers exactly like the
+     * same world stored densely, including around the edges of chunks, in the partial chunks at the far corner and once a chunk
+     * has been emptied and filled again.
+     */
+    @Test
+    void chunkedWorldAboveThresholdBehavesLikeDense() {
+        int size = World.CHUNKED_THRESHOLD + 1;
+        List<String> chunked = exerciseStorage(new World(size));
+        List<String> dense = exerciseStorage(new World(size, false));
+
+        assertEquals(dense, chunked);
+        assertTrue(chunked.contains("2048,2048:d/Grass"), "The far corner should hold what was placed there last");
+    }
+
+    /**
+     * Test that a world of exactly {@link World#CHUNKED_THRESHOLD}, which is stored densely by default, answers like the same
+     * world stored in chunks, and that the views of its layers show the tiles as they are at the time of reading.
+     */
+    @Test
+    void denseWorldAtThresholdShowsItsTilesThroughLayerViews() {
+        int size = World.CHUNKED_THRESHOLD;
+        World dense = new World(size);
+        assertEquals(exerciseStorage(new World(size, true)), exerciseStorage(dense));
+
+        LayerView ground = dense.getLayer(Layer.NON_BLOCKING);
+        LayerView blocking = dense.getLayer(Layer.BLOCKING);
+        assertEquals(size, ground.getSize());
+        for (int y = 12; y <= 20; y++) {
+            for (int x = 12; x <= 20; x++) {
+                Location l = new Location(x, y);
+                assertEquals(dense.containsNonBlocking(l) ? dense.getNonBlocking(l) : null, ground.get(x, y));
+                assertEquals(dense.getTile(l) instanceof Grass ? null : dense.getTile(l), blocking.get(x, y));
+            }
+        }
+        Object placed = new Object();
+        dense.setTile(new Location(size - 1, 0), placed);
+        assertSame(placed, blocking.get(size - 1, 0), "The view should show objects placed after it was obtained");
+        assertThrows(IllegalArgumentException.class, () -> ground.get(size, 0));
+    }
+
+    /**
+     * Test that the empty neighbours of every tile, as read from the occupancy bits, match the tiles themselves in both layers, on
+     * a map whose edges do not line up with the 64x16 blocks of the bits (so neighbours are spread over several blocks), both
+     * while crowded and once a whole block has been emptied again.
+     */
+    @Test
+    void emptyNeighbourMasksMatchTheTilesAcrossBlockEdges() {
+        World crowded = new World(150);
+        Random random = new Random(5);
+        for (int y = 0; y < 150; y++) {
+            for (int x = 0; x < 150; x++) {
+                if (random.nextInt(5) < 2) crowded.setTile(new Location(x, y), new Object());
+                if (random.nextInt(5) < 2) crowded.setTile(new Location(x, y), new Grass());
+            }
+        }
+        assertMasksMatchTiles(crowded);
+
+        for (int y = 16; y < 32; y++) {
+            for (int x = 64; x < 128; x++) {
+                Location l = new Location(x, y);
+                if (crowded.getTile(l) != null && !(crowded.getTile(l) instanceof Grass)) crowded.delete(crowded.getTile(l));
+                if (crowded.containsNonBlocking(l)) crowded.delete(crowded.getNonBlocking(l));
+            }
+        }
+        assertMasksMatchTiles(crowded);
+        assertEquals(0xFF, crowded.getEmptyNeighbourMask(100, 20, Layer.BLOCKING));
+    }
+
+    // compares the empty neighbour masks of every tile to the tiles themselves
+    private static void assertMasksMatchTiles(World world) {
+        int size = world.getSize();
+        for (Layer layer : Layer.values()) {
+            LayerView view = world.getLayer(layer);
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    int expected = 0;
+                    for (int i = 0; i < 8; i++) {
+                        int nx = x + NeighbourMask.dx(i);
+                        int ny = y + NeighbourMask.dy(i);
+                        if (nx >= 0 && nx < size && ny >= 0 && ny < size && view.get(nx, ny) == null) expected |= 1 << i;
+                    }
+                    assertEquals(expected, world.getEmptyNeighbourMask(x, y, layer), "Empty " + layer + " neighbours of (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that the nearest tile is searched ring by ring (a diagonal neighbour beats a tile two steps straight ahead), that the
+     * nearest tile of a ring by Manhattan distance is chosen, and that ties are decided by the walk: the top row before the bottom
+     * row before the left and right columns, each from the lowest coordinate.
+     */
+    @Test
+    void findNearestBreaksTiesInTheOrderOfTheWalk() {
+        Location from = new Location(5, 5);
+        assertEquals(new Location(6, 6), nearestOf(from, new Location(5, 3), new Location(6, 6)));
+        assertEquals(new Location(7, 5), nearestOf(from, new Location(3, 3), new Location(7, 5)));
+        assertEquals(new Location(4, 4), nearestOf(from, new Location(6, 6), new Location(6, 4), new Location(4, 4)));
+        assertEquals(new Location(5, 6), nearestOf(from, new Location(6, 5), new Location(5, 6)));
+        assertEquals(new Location(4, 5), nearestOf(from, new Location(6, 5), new Location(4, 5)));
+        assertNull(nearestOf(from, new Location(5, 0)), "Tiles beyond the last ring should not be found");
+    }
+
+    /**
+     * Test that of several objects equally near, getNearest chooses the one with the lowest y and then the lowest x, whatever
+     * the order they were placed in and however the map is split into buckets (the buckets are larger on larger maps).
+     */
+    @Test
+    void getNearestBreaksTiesByRowThenColumn() {
+        Location from = new Location(8, 8);
+        Location[] tied = {new Location(6, 7), new Location(10, 9), new Location(9, 6), new Location(7, 10)};
+        for (int size : new int[] {20, 5000}) {
+            World forwards = new World(size);
+            World backwards = new World(size);
+            for (int i = 0; i < tied.length; i++) {
+                forwards.setTile(tied[i], new Object());
+                backwards.setTile(tied[tied.length - 1 - i], new Object());
+            }
+            assertEquals(new Location(9, 6), forwards.getNearest(Object.class, from, 3));
+            assertEquals(new Location(9, 6), backwards.getNearest(Object.class, from, 3));
+
+            forwards.delete(forwards.getTile(new Location(9, 6)));
+            assertEquals(new Location(6, 7), forwards.getNearest(Object.class, from, 3));
+        }
+    }
+
+    /**
+     * Test that the journal keeps every change of a step in order once there are more changes than it initially has room for,
+     * and that a flush only hands over the changes made since the previous flush.
+     */
+    @Test
+    void journalKeepsEveryChangeBeyondItsInitialCapacity() {
+        World big = new World(20);
+        List<List<String>> flushes = new ArrayList<>();
+        big.addMutationListener(journal -> {
+            List<String> events = new ArrayList<>();
+            for (int i = 0; i < journal.size(); i++) {
+                events.add(journal.getKind(i) + " " + journal.getFrom(i) + " " + journal.getTo(i));
+            }
+            flushes.add(events);
+        });
+        Object[] placed = new Object[300];
+        for (int i = 0; i < placed.length; i++) {
+            placed[i] = new Object();
+            big.setTile(new Location(i % 20, i / 20), placed[i]);
+        }
+        big.move(placed[0], new Location(0, 19));
+        big.remove(placed[1]);
+        big.delete(placed[2]);
+        big.add(new Object());
+        big.flushJournal();
+        big.move(placed[3], new Location(1, 19));
+        big.flushJournal();
+
+        List<String> first = flushes.get(0);
+        assertEquals(304, first.size());
+        for (int i = 0; i < placed.length; i++) {
+            assertEquals(MutationJournal.PLACE + " null " + new Location(i % 20, i / 20), first.get(i));
+        }
+        assertEquals(List.of(MutationJournal.MOVE + " (0, 0) (0, 19)", MutationJournal.REMOVE + " (1, 0) null",
+                MutationJournal.DELETE + " (2, 0) null", MutationJournal.ADD + " null null"), first.subList(300, 304));
+        assertEquals(List.of(MutationJournal.MOVE + " (3, 0) (1, 19)"), flushes.get(1));
+    }
+
+    /**
+     * Test that changed tiles are listed once each, that the listing gives way to reporting every tile as changed once an eighth
+     * of the map changed, and that clearing starts listing again from scratch.
+     */
+    @Test
+    void dirtyTilesOverflowIntoEverythingChanged() {
+        World map = new World(40); // tiles are listed up to 40 * 40 / 8 = 200
+        DirtyTiles dirty = map.getDirtyTiles();
+        assertTrue(dirty.isAll(), "Nothing has been drawn yet");
+        dirty.clear();
+
+        Object moved = new Object();
+        map.setTile(new Location(3, 4), moved);
+        map.move(moved, new Location(5, 6));
+        map.markDirty(new Location(3, 4));
+        assertFalse(dirty.isAll());
+        assertEquals(2, dirty.size());
+        assertEquals(new Location(3, 4), new Location(dirty.getX(0), dirty.getY(0)));
+        assertEquals(new Location(5, 6), new Location(dirty.getX(1), dirty.getY(1)));
+
+        dirty.clear();
+        for (int i = 0; i < 200; i++) map.markDirty(new Location(i % 40, i / 40));
+        assertFalse(dirty.isAll());
+        assertEquals(200, dirty.size());
+        map.markDirty(new Location(0, 39));
+        assertTrue(dirty.isAll(), "Listing more than an eighth of the map should give way to redrawing everything");
+        assertEquals(0, dirty.size());
+
+        dirty.clear();
+        map.markDirty(new Location(0, 0));
+        assertFalse(dirty.isAll());
+        assertEquals(1, dirty.size());
+    }
+
+    // places objects on the tiles given in a fresh world and finds the nearest of them within 4 rings
+    private static Location nearestOf(Location from, Location... occupied) {
+        World world = new World(10);
+        for (Location l : occupied) world.setTile(l, new Object());
+        return world.findNearest(from, 1, 4, Layer.BLOCKING, o -> o != null);
+    }
+
+    // places, moves and deletes objects around the edges of 16x16 chunks and in the far corner of the world,
+    // and describes the tiles touched afterwards (what they hold, whether they are empty and their empty neighbours)
+    private static List<String> exerciseStorage(World world) {
+        int far = world.getSize() - 1;
+        Object moved = "moved";
+        Object corner = "corner";
+        world.setTile(new Location(15, 15), "a");
+        world.setTile(new Location(16, 15), "b");
+        world.setTile(new Location(15, 16), "c");
+        world.setTile(new Location(16, 16), moved);
+        world.setTile(new Location(16, 16), new Grass());
+        world.setTile(new Location(far, far), corner);
+        world.setTile(new Location(far - 1, far), new Grass());
+
+        world.move(moved, new Location(17, 17));
+        world.delete(world.getTile(new Location(15, 15)));
+        world.delete(corner);
+        world.delete(world.getNonBlocking(new Location(far - 1, far))); // the partial chunks in the corner are empty now
+        world.setTile(new Location(far, far), "d");
+        world.setTile(new Location(far, far), new Grass());
+
+        List<String> tiles = new ArrayList<>();
+        for (int[] area : new int[][] {{12, 20}, {far - 8, far}}) {
+            for (int y = area[0]; y <= area[1]; y++) {
+                for (int x = area[0]; x <= area[1]; x++) {
+                    Location l = new Location(x, y);
+                    Object blocking = world.getTile(l) instanceof String ? world.getTile(l) : null;
+                    Object ground = world.containsNonBlocking(l) ? world.getNonBlocking(l).getClass().getSimpleName() : null;
+                    if (blocking != null || ground != null) tiles.add(x + "," + y + ":" + blocking + "/" + ground);
+                    tiles.add(x + "," + y + ":" + world.isTileEmpty(l) + "/" + world.getEmptyNeighbourMask(x, y, Layer.BLOCKING));
+                }
+            }
+        }
+        return tiles;
+    }
+}
@@ -0,0 +1,78 @@
+package itumulator.display;
+
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The SnapshotRingTest class verifies that the {@link SnapshotRing} handing snapshots from the simulator to the render thread
+ * keeps them in order and never holds more than its capacity, also once its counters have wrapped around the slots many times.
+ * (It sits in the package of the ring, as the ring is not visible outside of it.)
+ */
+class SnapshotRingTest {
+
+    /**
+     * Test that the capacity is rounded up to a power of two, and that a full ring refuses items until one is taken.
+     */
+    @Test
+    void fullRingRefusesItemsUntilOneIsTaken() {
+        SnapshotRing<Integer> ring = new SnapshotRing<>(3);
+        for (int i = 0; i < 4; i++) assertTrue(ring.offer(i));
+        assertTrue(ring.isFull());
+        assertFalse(ring.offer(4), "A full ring should refuse items");
+
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4));
+        assertEquals(4, ring.size());
+    }
+
+    /**
+     * Test that items come out in the order they were put in while the positions wrap around the slots many times.
+     */
+    @Test
+    void itemsKeepTheirOrderWhileWrappingAround() {
+        SnapshotRing<Integer> ring = new SnapshotRing<>(2);
+        List<Integer> taken = new ArrayList<>();
+        int next = 0;
+        for (int round = 0; round < 50; round++) {
+            while (ring.offer(next)) next++;
+            taken.add(ring.poll());
+            if (round % 3 == 0) taken.add(ring.poll()); // every so often the ring is emptied
+        }
+        Integer item;
+        while ((item = ring.poll()) != null) taken.add(item);
+
+        assertTrue(ring.isEmpty());
+        assertEquals(next, taken.size());
+        for (int i = 0; i < taken.size(); i++) assertEquals(i, taken.get(i));
+    }
+
+    /**
+     * Test that a producer and a consumer on two threads, waiting on each other through a small ring, hand over every item in order.
+     */
+    @Test
+    void producerAndConsumerHandOverEveryItemInOrder() {
+        SnapshotRing<Integer> ring = new SnapshotRing<>(2);
+        int items = 20_000;
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < items; i++) {
+                    ring.awaitSpace();
+                    assertTrue(ring.offer(i));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            producer.start();
+            for (int i = 0; i < items; i++) assertEquals(i, ring.take());
+            producer.join();
+        });
+        assertTrue(ring.isEmpty());
+    }
+}
@@ -3,20 +3,24 @@ package Actors;
 import Inanimate.Group;
 import itumulator.executable.DynamicDisplayInformationProvider;
 import itumulator.simulator.Actor;
+import itumulator.simulator.IntentActor;
+import itumulator.simulator.Intents;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.Checkpointable;
+import itumulator.world.Layer;
 import itumulator.world.Location;
+import itumulator.world.NeighbourMask;
+import itumulator.world.Randomized;
 import itumulator.world.World;
 
-import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-import java.util.Set;
+import java.util.random.RandomGenerator;
 
 /**
  * Abstract class representing a generic Animal in the simulation.
  * Implements common behaviors and properties for all animals.
  */
-public abstract class Animal implements Actor, DynamicDisplayInformationProvider {
+public abstract class Animal implements Actor, Randomized, Checkpointable, DynamicDisplayInformationProvider {
     protected int age;
     protected int maxAge;
     protected int energy;
@@ -24,8 +28,9 @@ public abstract class Animal implements Actor, DynamicDisplayInformationProvider
     public boolean isSleeping;
     protected int amountOfKids;
     protected Object shelter;
-    protected Random random;
+    protected RandomGenerator random; // provided by the world, unless given by a test
     protected Group<? extends Animal> group;
+    private long dozedAt = -1; // the step the animal became dormant in, or -1 if it is not dozing
 
     /**
      * Constructor for Animal class.
@@ -39,7 +44,60 @@ public abstract class Animal implements Actor, DynamicDisplayInformationProvider
         this.isAlive = true;
         this.isSleeping = false;
         this.amountOfKids = 0;
-        this.random = new Random();
+    }
+
+    /**
+     * Provides the animal its random stream when it enters a world, unless it was given a source of randomness already (e.g., by a test).
+     *
+     * @param random the stream provided by the world
+     */
+    @Override
+    public void provideRandom(RandomGenerator random) {
+        if (this.random == null) this.random = random;
+    }
+
+    /**
+     * Writes the state of the animal to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        out.writeInt(age);
+        out.writeInt(maxAge);
+        out.writeInt(energy);
+        out.writeBoolean(isAlive);
+        out.writeBoolean(isSleeping);
+        out.writeInt(amountOfKids);
+        out.writeBoolean(shelter instanceof Location); // a territory rather than a burrow or den
+        if (shelter instanceof Location location) {
+            out.writeLocation(location);
+        } else {
+            out.writeObject(shelter);
+        }
+        out.writeRandom(random);
+        out.writeObject(group);
+        out.writeLong(dozedAt);
+    }
+
+    /**
+     * Reads the state of the animal from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        age = in.readInt();
+        maxAge = in.readInt();
+        energy = in.readInt();
+        isAlive = in.readBoolean();
+        isSleeping = in.readBoolean();
+        amountOfKids = in.readInt();
+        shelter = in.readBoolean() ? in.readLocation() : in.readObject(Object.class);
+        random = in.readRandom();
+        Group<?> read = in.readObject(Group.class); // every group holds animals, so no unchecked conversion is needed
+        group = read;
+        dozedAt = in.readLong();
     }
 
     // ----------- ACT -----------
@@ -53,19 +111,23 @@ public abstract class Animal implements Actor, DynamicDisplayInformationProvider
     @Override
     public void act(World world) {
         if (!isAlive) return;
+        if (!catchUp(world)) return;
 
         if (getAge() >= getMaxAge() || getEnergy() <= 0) {
             die(world);
             return;
         }
 
-        tickCommon();
+        tickCommon(world);
 
         if (world.isDay() && isSleeping) {
             wakeUp(world);
         }
 
-        if (isSleeping) return;
+        if (isSleeping) {
+            doze(world);
+            return;
+        }
 
         if (world.getCurrentTime() >= World.getTotalDayDuration() - 3) {
             seekShelter(world);
@@ -106,6 +168,59 @@ public abstract class Animal implements Actor, DynamicDisplayInformationProvider
         energy--;
     }
 
+    /**
+     * Common tick updates for all animals (see {@link #tickCommon()}), letting the world know if the animal grew up.
+     *
+     * @param world The world in which the animal lives.
+     */
+    protected void tickCommon(World world) {
+        boolean wasChild = isChild();
+        tickCommon();
+        if (wasChild != isChild()) appearanceChanged(world);
+    }
+
+    /**
+     * Lets a sleeping animal become dormant until the day starts (see {@link World#sleepUntilDay(Object)}), as it has nothing to do
+     * before then. The steps slept through are caught up on by {@link #catchUp(World)} once the animal acts again.
+     *
+     * @param world The world in which the animal sleeps.
+     */
+    protected void doze(World world) {
+        if (!world.isNight() || !world.contains(this)) return;
+        dozedAt = world.getStepCount();
+        world.sleepUntilDay(this);
+    }
+
+    /**
+     * Catches up on the steps the animal was dormant for (see {@link #doze(World)}): for each step it ages and loses energy,
+     * as it would have when acting while asleep, and dies if its time has come.
+     *
+     * @param world The world in which the animal lives.
+     * @return True if the animal is still alive, false if it died.
+     */
+    protected boolean catchUp(World world) {
+        if (dozedAt < 0) return true;
+        long missed = world.getStepCount() - dozedAt - 1;
+        dozedAt = -1;
+        for (long i = 0; i < missed; i++) {
+            if (getAge() >= getMaxAge() || getEnergy() <= 0) {
+                die(world);
+                return false;
+            }
+            tickCommon(world);
+        }
+        return true;
+    }
+
+    /**
+     * Lets the world know that the animal looks different (e.g., it fell asleep), so its tile is redrawn.
+     *
+     * @param world The world in which the animal lives.
+     */
+    protected void appearanceChanged(World world) {
+        if (world.contains(this) && world.isOnTile(this)) world.markDirty(world.getLocation(this));
+    }
+
     /**
      * Moves the animal randomly to an adjacent empty tile.
      *
@@ -113,13 +228,8 @@ public abstract class Animal implements Actor, DynamicDisplayInformationProvider
      * @return The new location of the animal after moving, or null if no move was possible.
      */
     protected Location moveRandomly(World world) {
-        Location animalLocation = world.getLocation(this);
-        Set<Location> emptyTilesNearAnimal = world.getEmptySurroundingTiles(animalLocation);
-
-        if (emptyTilesNearAnimal.isEmpty()) return null;
-        List<Location> listOfPlacesToMove = new ArrayList<>(emptyTilesNearAnimal);
-        int j = random.nextInt(emptyTilesNearAnimal.size());
-        Location moveTo = listOfPlacesToMove.get(j);
+        Location moveTo = randomEmptyNeighbour(world, world.getLocation(this));
+        if (moveTo == null) return null;
         world.move(this, moveTo);
         energy -= 5;
 
@@ -137,24 +247,75 @@ public abstract class Animal implements Actor, DynamicDisplayInformationProvider
         Location currentLoc = world.getLocation(this);
         if (currentLoc == null || target == null) return;
 
-        Set<Location> emptyNeighbors = world.getEmptySurroundingTiles(currentLoc);
-        if (emptyNeighbors.isEmpty()) return;
+        Location moveTo = stepTowards(world, currentLoc, target);
+        if (moveTo != null) {
+            world.move(this, moveTo);
+            energy -= energyCost;
+        }
+    }
+
+    /**
+     * Picks a random empty tile (without blocking objects) immediately surrounding a location.
+     *
+     * @param world    The world to search in.
+     * @param location The location to search around.
+     * @return The tile picked, or null if all surrounding tiles are occupied.
+     */
+    private Location randomEmptyNeighbour(World world, Location location) {
+        int empty = world.getEmptyNeighbourMask(location.getX(), location.getY(), Layer.BLOCKING);
+        if (empty == 0) return null;
+        return neighbour(world, location, NeighbourMask.nth(empty, random.nextInt(NeighbourMask.count(empty))));
+    }
 
-        Location bestMove = null;
+    /**
+     * Picks the empty tile (without blocking objects) immediately surrounding a location which is closest to a target.
+     *
+     * @param world    The world to search in.
+     * @param location The location to search around.
+     * @param target   The location to get closer to.
+     * @return The tile picked, or null if all surrounding tiles are occupied.
+     */
+    private Location stepTowards(World world, Location location, Location target) {
+        int emptyNeighbors = world.getEmptyNeighbourMask(location.getX(), location.getY(), Layer.BLOCKING);
+
+        int bestMove = -1;
         int bestDistance = Integer.MAX_VALUE;
 
-        for (Location loc : emptyNeighbors) {
-            int d = distance(loc, target);
+        for (int mask = emptyNeighbors; mask != 0; mask &= mask - 1) {
+            int i = Integer.numberOfTrailingZeros(mask);
+            int d = Math.abs(location.getX() + NeighbourMask.dx(i) - target.getX()) + Math.abs(location.getY() + NeighbourMask.dy(i) - target.getY());
             if (d < bestDistance) {
                 bestDistance = d;
-                bestMove = loc;
+                bestMove = i;
             }
         }
 
-        if (bestMove != null) {
-            world.move(this, bestMove);
-            energy -= energyCost;
-        }
+        return bestMove == -1 ? null : neighbour(world, location, bestMove);
+    }
+
+    /**
+     * Finds an empty tile (without blocking objects) immediately surrounding a location.
+     *
+     * @param world    The world to search in.
+     * @param location The location to search around.
+     * @return The first empty surrounding tile, or null if all surrounding tiles are occupied.
+     */
+    protected Location getEmptyNeighbour(World world, Location location) {
+        int empty = world.getEmptyNeighbourMask(location.getX(), location.getY(), Layer.BLOCKING);
+        if (empty == 0) return null;
+        return neighbour(world, location, Integer.numberOfTrailingZeros(empty));
+    }
+
+    /**
+     * Provides a tile surrounding a location.
+     *
+     * @param world    The world the location belongs to.
+     * @param location The central location.
+     * @param index    The index of the neighbour (as defined by {@link NeighbourMask}).
+     * @return The location of the neighbour.
+     */
+    protected Location neighbour(World world, Location location, int index) {
+        return world.locationAt(location.getX() + NeighbourMask.dx(index), location.getY() + NeighbourMask.dy(index));
     }
 
     /**
@@ -221,6 +382,7 @@ public abstract class Animal implements Actor, DynamicDisplayInformationProvider
         isSleeping = true;
         handleSleepLocation(world);
         energy += getSleepEnergy();
+        appearanceChanged(world);
     }
 
     /**
@@ -247,6 +409,7 @@ public abstract class Animal implements Actor, DynamicDisplayInformationProvider
      */
     public void wakeUp(World world) {
         isSleeping = false;
+        appearanceChanged(world);
     }
 
     // ----------- EATING -----------
@@ -288,7 +451,17 @@ public abstract class Animal implements Actor, DynamicDisplayInformationProvider
      * @return True if the animal is hungry, false otherwise.
      */
     protected boolean isHungry() {
-        return getEnergy() < 50;
+        return isHungryAfter(0);
+    }
+
+    /**
+     * Checks if the animal would still be hungry after gaining energy, e.g., from food it intends to eat.
+     *
+     * @param gained The energy gained.
+     * @return True if the animal would be hungry, false otherwise.
+     */
+    protected boolean isHungryAfter(int gained) {
+        return getEnergy() + gained < 50;
     }
 
     // ----------- REPRODUCTION -----------
@@ -327,6 +500,67 @@ public abstract class Animal implements Actor, DynamicDisplayInformationProvider
      */
     protected abstract Location getReproductionLocation(World world);
 
+    // ----------- PLANNING -----------
+
+    /**
+     * Plans what every animal does at the start of its step when the simulator commits intents (see {@link IntentActor}).
+     * Only an animal which is awake on the map during the day, with no dormant steps to catch up on and neither about to die nor
+     * to seek shelter, plans its step: it ages and loses energy, and the rest of its step is left to the caller to plan.
+     * Any other animal acts as usual (see {@link #act(World)}) once its turn comes in the commit.
+     *
+     * @param world    The world in which the animal plans (which must not be modified).
+     * @param location The location of the animal, or null if it is not on the map.
+     * @param intents  The intents to record in.
+     * @return True if the caller should plan the rest of the step, false if the animal acts during the commit instead.
+     */
+    protected boolean planCommon(World world, Location location, Intents intents) {
+        boolean plannable = isAlive && !isSleeping && dozedAt < 0 && location != null
+                && getAge() < getMaxAge() && getEnergy() > 0
+                && world.isDay() && world.getCurrentTime() < World.getTotalDayDuration() - 3;
+        if (!plannable) {
+            intents.update(this, this::act);
+            return false;
+        }
+
+        boolean wasChild = isChild();
+        tickCommon();
+        if (wasChild != isChild()) intents.update(this, this::appearanceChanged);
+        return true;
+    }
+
+    /**
+     * Intends to move the animal randomly to an adjacent empty tile (see {@link #moveRandomly(World)}).
+     * The energy is spent even if another animal takes the tile first.
+     *
+     * @param world    The world in which the animal plans.
+     * @param location The location of the animal.
+     * @param intents  The intents to record in.
+     */
+    protected void planMoveRandomly(World world, Location location, Intents intents) {
+        Location moveTo = randomEmptyNeighbour(world, location);
+        if (moveTo == null) return;
+        intents.move(this, moveTo);
+        energy -= 5;
+    }
+
+    /**
+     * Intends to move the animal one step towards a target location (see {@link #moveOneStepTowards(World, Location, int)}).
+     * The energy is spent even if another animal takes the tile first.
+     *
+     * @param world      The world in which the animal plans.
+     * @param location   The location of the animal.
+     * @param target     The target location to move towards.
+     * @param energyCost The energy cost of moving.
+     * @param intents    The intents to record in.
+     */
+    protected void planMoveOneStepTowards(World world, Location location, Location target, int energyCost, Intents intents) {
+        if (target == null) return;
+        Location moveTo = stepTowards(world, location, target);
+        if (moveTo == null) return;
+        intents.move(this, moveTo);
+        energy -= energyCost;
+    }
+
     // ----------- EXTRA/SETTERS/GETTERS/HELPERS/VISUAL -----------
 
     /**
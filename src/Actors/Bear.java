@@ -1,11 +1,14 @@
 package Actors;
 import Inanimate.Bush;
 import itumulator.executable.DisplayInformation;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.Layer;
 import itumulator.world.Location;
 import itumulator.world.World;
 
 import java.awt.*;
-import java.util.Set;
+import java.util.Objects;
 
 /**
  * Bear is a large predator that defends a specific territory.
@@ -25,6 +28,35 @@ public class Bear extends Predator {
         this.shelter = territoryCenter;
     }
 
+    /**
+     * Constructor used when restoring the bear from a checkpoint, which provides its state.
+     */
+    private Bear() {
+        this(null);
+    }
+
+    /**
+     * Writes the state of the bear to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        super.writeState(out);
+        out.writeLocation(territoryCenter);
+    }
+
+    /**
+     * Reads the state of the bear from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        super.readState(in);
+        territoryCenter = in.readLocation();
+    }
+
     // ----------- ACT -----------
 
     /**
@@ -103,9 +135,8 @@ public class Bear extends Predator {
             if (world.isTileEmpty(center)) {
                 moveOneStepTowards(world, center);
             } else {
-                Set<Location> neighbors = world.getEmptySurroundingTiles(center);
-                if (!neighbors.isEmpty()) {
-                    Location spot = neighbors.iterator().next();
+                Location spot = getEmptyNeighbour(world, center);
+                if (spot != null) {
                     moveOneStepTowards(world, spot);
                 }
             }
@@ -126,35 +157,34 @@ public class Bear extends Predator {
 
         Location myLoc = world.getLocation(this);
 
-        for (Location loc : world.getSurroundingTiles(myLoc)) {
-            Object o = world.getTile(loc);
-            if (o instanceof Herbivore h) {
-                kill(world, h);
-                return;
-            }
+        Location adjacentPrey = world.getNearest(Herbivore.class, myLoc, 1);
+        if (adjacentPrey != null) {
+            kill(world, (Herbivore) world.getTile(adjacentPrey));
+            return;
         }
 
-        Set<Location> area = getHuntingArea(world);
+        Location center = getHuntingCenter(world);
+        int radius = getHuntingRadius();
 
-        Location enemyLoc = findClosestEnemyPredator(world, area, myLoc);
+        Location enemyLoc = findClosestEnemyPredator(world, center, radius, myLoc);
         if (enemyLoc != null) {
             engageTarget(world, enemyLoc);
             return;
         }
 
-        Location carcassLoc = findClosestCarcass(world, area, myLoc);
+        Location carcassLoc = findClosestCarcass(world, center, radius, myLoc);
         if (carcassLoc != null) {
             engageTarget(world, carcassLoc);
             return;
         }
 
-        Location bushLoc = findClosestBushWithBerries(world, area, myLoc);
+        Location bushLoc = findClosestBushWithBerries(world, center, radius, myLoc);
         if (bushLoc != null) {
             engageTarget(world, bushLoc);
             return;
         }
 
-        Location preyLoc = findClosestPrey(world, area, myLoc);
+        Location preyLoc = findClosestPrey(world, center, radius, myLoc);
         if (preyLoc != null) {
             engageTarget(world, preyLoc);
         }
@@ -166,27 +196,13 @@ public class Bear extends Predator {
      * Finds the closest bush with berries within a specified area.
      *
      * @param world the world in which to search
-     * @param area the set of locations defining the search area
+     * @param center the center of the search area
+     * @param radius the radius of the search area
      * @param from the starting location for the search
      * @return the location of the closest bush with berries, or null if none found
      */
-    private Location findClosestBushWithBerries(World world, Set<Location> area, Location from) {
-        Location closest = null;
-        int bestDistance = Integer.MAX_VALUE;
-
-        for (Location loc : area) {
-            Object obj = world.getNonBlocking(loc);
-            if (obj instanceof Bush bush) {
-                if (bush.hasBerries()) {
-                    int d = distance(from, loc);
-                    if (d < bestDistance) {
-                        bestDistance = d;
-                        closest = loc;
-                    }
-                }
-            }
-        }
-        return closest;
+    private Location findClosestBushWithBerries(World world, Location center, int radius, Location from) {
+        return world.getNearest(Bush.class, center, radius, from, Bush::hasBerries);
     }
 
     /**
@@ -217,12 +233,14 @@ public class Bear extends Predator {
         if (o instanceof Carcass carcass) {
             int amount = Math.min(30, carcass.getMeatLeft());
             carcass.eaten(amount);
+            if (carcass.getMeatLeft() == 0) world.wake(carcass);
             energy += amount;
 
         } else if (nb instanceof Bush bush) {
             if (bush.hasBerries()) {
                 int berries = bush.getBerryCount();
                 bush.berriesEaten();
+                world.wake(bush);
                 energy += berries * 2;
             }
         }
@@ -267,18 +285,11 @@ public class Bear extends Predator {
         Location myLoc = world.getLocation(this);
         if (myLoc == null) return;
 
-        Set<Location> territoryTiles = getHuntingArea(world);
+        Location mateLoc = world.getNearest(Bear.class, territoryCenter, getRadius(), myLoc,
+                otherBear -> otherBear != this && !otherBear.isChild());
 
-        Bear mate = null;
-        for (Location loc : territoryTiles) {
-            Object obj = world.getTile(loc);
-            if (obj instanceof Bear otherBear && otherBear != this && !otherBear.isChild()) {
-                mate = otherBear;
-                break;
-            }
-        }
-
-        if (mate != null) {
+        if (mateLoc != null) {
+            Bear mate = (Bear) world.getTile(mateLoc);
             super.reproduce(world);
             this.incrementKids();
             mate.incrementKids();
@@ -320,12 +331,9 @@ public class Bear extends Predator {
         int minDistance = 3;
         int maxDistance = 5;
 
-        Set<Location> candidates = world.getSurroundingTiles(parentLoc, 5);
-        for (Location loc : candidates) {
-            int d = distance(parentLoc, loc);
-            if (d >= minDistance && d <= maxDistance && world.isTileEmpty(loc)) {
-                return loc;
-            }
+        Location free = world.findNearest(parentLoc, minDistance, maxDistance, Layer.BLOCKING, Objects::isNull);
+        if (free != null) {
+            return free;
         }
 
         Location shelterLocation = territoryCenter;
@@ -333,11 +341,7 @@ public class Bear extends Predator {
             return shelterLocation;
         }
 
-        Set<Location> emptyAround = world.getEmptySurroundingTiles(shelterLocation);
-        if (!emptyAround.isEmpty()) {
-            return emptyAround.iterator().next();
-        }
-        return null;
+        return getEmptyNeighbour(world, shelterLocation);
     }
 
     // ----------- TERRITORY & FIGHT -----------
@@ -391,34 +395,33 @@ public class Bear extends Predator {
     }
 
     /**
-     * Returns the hunting area of the bear, which is its territory.
+     * Returns the center of the hunting area of the bear, which is the center of its territory.
      *
      * @param world the world in which the bear hunts
-     * @return the set of locations defining the hunting area
+     * @return the center of the bear's territory
      */
     @Override
-    protected Set<Location> getHuntingArea(World world) {
-        return getTerritoryTiles(world);
+    protected Location getHuntingCenter(World world) {
+        return territoryCenter;
     }
 
     /**
-     * Returns the radius of the bear's territory.
+     * Returns the radius of the hunting area of the bear, which is the radius of its territory.
      *
      * @return the territory radius
      */
-    private int getRadius() {
-        return 3;
+    @Override
+    protected int getHuntingRadius() {
+        return getRadius();
     }
 
     /**
-     * Returns the set of tiles that make up the bear's territory.
+     * Returns the radius of the bear's territory.
      *
-     * @param world the world in which the territory exists
-     * @return the set of territory locations
+     * @return the territory radius
      */
-    private Set<Location> getTerritoryTiles(World world) {
-        int radius = getRadius();
-        return world.getSurroundingTiles(territoryCenter, radius);
+    private int getRadius() {
+        return 3;
     }
 
     /**
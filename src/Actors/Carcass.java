@@ -3,24 +3,35 @@ package Actors;
 import Inanimate.*;
 import itumulator.executable.DisplayInformation;
 import itumulator.executable.DynamicDisplayInformationProvider;
-import itumulator.simulator.Actor;
+import itumulator.simulator.IntentActor;
+import itumulator.simulator.Intents;
+import itumulator.simulator.LocalActor;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.Checkpointable;
 import itumulator.world.Location;
+import itumulator.world.Randomized;
 import itumulator.world.World;
 
 import java.awt.*;
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Carcass represents the remains of a dead animal in the simulation.
  * It contains meat that can be eaten by other actors and can rot over time.
  * If it has fungi, it will rot faster and may spawn fungi when it decays completely.
  */
-public class Carcass implements Actor, DynamicDisplayInformationProvider {
+public class Carcass implements LocalActor, IntentActor, Randomized, Checkpointable, DynamicDisplayInformationProvider {
+    private static final double FUNGI_CHANCE = 0.05; // per step
     private int meatLeft;
     private int maxMeat;
     private int rotTimer;
     private boolean hasFungi;
-    private Random random;
+    private RandomGenerator random; // provided by the world, unless given by a test
+    private long dozedAt = -1; // the step the carcass became dormant in, or -1 if it is not dozing
+    private long infectedAt = -1; // the step fungi infect the dozing carcass in, or -1 if they do not
+    private boolean infectedWhileDozing; // by nearby fungi, taking effect once the carcass acts again
 
     /**
      * Main constructor allowing control over all parameters.
@@ -28,7 +39,7 @@ public class Carcass implements Actor, DynamicDisplayInformationProvider {
      * @param meatLeft  the amount of meat left on the carcass
      * @param rotTimer  the time until the carcass rots completely
      * @param hasFungi  whether the carcass is infected with fungi
-     * @param random    the Random instance to use for randomness
+     * @param random    the Random instance to use for randomness (or null to use the stream provided by the world)
      */
     public Carcass(int meatLeft, int rotTimer, boolean hasFungi, Random random) {
         this.meatLeft = meatLeft;
@@ -45,7 +56,7 @@ public class Carcass implements Actor, DynamicDisplayInformationProvider {
      * @param rotTimer the time until the carcass rots completely
      */
     public Carcass(int meatLeft, int rotTimer) {
-        this(meatLeft, rotTimer, false, new Random());
+        this(meatLeft, rotTimer, false, null);
     }
 
     /**
@@ -56,7 +67,7 @@ public class Carcass implements Actor, DynamicDisplayInformationProvider {
      * @param hasFungi whether the carcass is infected with fungi
      */
     public Carcass(int meatLeft, int rotTimer, boolean hasFungi) {
-        this(meatLeft, rotTimer, hasFungi, new Random());
+        this(meatLeft, rotTimer, hasFungi, null);
     }
 
     /**
@@ -67,21 +78,23 @@ public class Carcass implements Actor, DynamicDisplayInformationProvider {
         this(10, 10, false, random);
     }
 
+    /**
+     * Constructor used when restoring the carcass from a checkpoint, which provides its state.
+     */
+    private Carcass() {
+        this(0, 0);
+    }
+
     /**
      * Updates the state of the carcass each simulation step.
      * Decreases the rot timer, attempts to spawn fungi, and removes the carcass if it has rotted away.
+     * Otherwise, the carcass dozes until it has rotted away or is infected (see {@link #doze(World)}).
      *
      * @param world the world in which the carcass exists
      */
     @Override
     public void act(World world) {
-        if (hasFungi) {
-            rotTimer--;
-        }
-        rotTimer--;
-        trySpawnFungi();
-
-        if (rotTimer <= 0 || meatLeft <= 0) {
+        if (rotSinceActing(world)) {
             Location myLoc = world.getLocation(this);
 
             boolean spawnFungi = hasFungi;
@@ -102,7 +115,140 @@ public class Carcass implements Actor, DynamicDisplayInformationProvider {
                 world.setTile(myLoc, new Fungi(calculateFungiLifespan()));
 
             }
+            return;
+        }
+        doze(world);
+    }
+
+    /**
+     * Plans the carcass's actions when the simulator commits intents (see {@link #act(World)}).
+     *
+     * @param world    the world in which the carcass exists
+     * @param location the location of the carcass
+     * @param intents  to record the deletion (and fungi spawned) in
+     */
+    @Override
+    public void plan(World world, Location location, Intents intents) {
+        if (!rotSinceActing(world)) {
+            doze(world);
+            return;
+        }
+
+        if (hasFungi && location != null) {
+            Object nb = world.getNonBlocking(location);
+            if (nb instanceof Grass) intents.delete(nb);
+            if (nb == null || nb instanceof Grass) intents.spawn(location, new Fungi(calculateFungiLifespan()));
+        }
+        intents.delete(this);
+    }
+
+    /**
+     * Lets the carcass rot for the steps since it last acted, i.e., the current step plus the steps it was dozing through.
+     *
+     * @param world the world in which the carcass exists
+     * @return true if the carcass has rotted away or been eaten completely
+     */
+    private boolean rotSinceActing(World world) {
+        long now = world.getStepCount();
+        long from = dozedAt;
+        dozedAt = -1;
+        if (from >= 0 && from < now) {
+            for (long step = from + 1; step < now; step++) {
+                rot(step);
+                if (rotTimer <= 0) return true;
+            }
+        } else {
+            infectedAt = -1; // acting as usual, so the current step is drawn
+        }
+        if (infectedWhileDozing) {
+            hasFungi = true;
+            infectedWhileDozing = false;
+        }
+        return rot(infectedAt < 0 ? -1 : now);
+    }
+
+    /**
+     * Lets the carcass rot for a step and possibly be infected by fungi.
+     *
+     * @param step the step if dozing through it (so whether fungi infect the carcass was drawn in advance), or -1 to draw it now
+     * @return true if the carcass has rotted away or been eaten completely
+     */
+    private boolean rot(long step) {
+        if (hasFungi) {
+            rotTimer--;
+        }
+        rotTimer--;
+        if (step < 0) {
+            trySpawnFungi();
+        } else if (step == infectedAt) {
+            hasFungi = true;
+        }
+        return rotTimer <= 0 || meatLeft <= 0;
+    }
+
+    /**
+     * Lets the carcass doze, i.e., be dormant until it rots away or fungi infect it, as nothing else happens to it meanwhile.
+     * The step fungi infect it is drawn in advance, with the same odds as drawing every step. Those eating the last of the carcass,
+     * or infecting it, wake it, and the steps dozed through are caught up on once it acts again.
+     *
+     * @param world the world in which the carcass exists
+     */
+    private void doze(World world) {
+        if (!world.contains(this)) return;
+        long now = world.getStepCount();
+        long steps = hasFungi ? (rotTimer + 1) / 2 : rotTimer;
+        infectedAt = -1;
+        if (!hasFungi) {
+            long untilInfected = 1 + (long) Math.min(Math.log(1 - random.nextDouble()) / Math.log(1 - FUNGI_CHANCE), Integer.MAX_VALUE);
+            infectedAt = now + untilInfected;
+            steps = Math.min(steps, untilInfected);
         }
+        dozedAt = now;
+        if (steps > 1) world.sleepFor(this, (int) Math.min(steps, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Provides the carcass its random stream when it enters a world, unless it was given a source of randomness already (e.g., by a test).
+     *
+     * @param random the stream provided by the world
+     */
+    @Override
+    public void provideRandom(RandomGenerator random) {
+        if (this.random == null) this.random = random;
+    }
+
+    /**
+     * Writes the state of the carcass to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        out.writeInt(meatLeft);
+        out.writeInt(maxMeat);
+        out.writeInt(rotTimer);
+        out.writeBoolean(hasFungi);
+        out.writeRandom(random);
+        out.writeLong(dozedAt);
+        out.writeLong(infectedAt);
+        out.writeBoolean(infectedWhileDozing);
+    }
+
+    /**
+     * Reads the state of the carcass from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        meatLeft = in.readInt();
+        maxMeat = in.readInt();
+        rotTimer = in.readInt();
+        hasFungi = in.readBoolean();
+        random = in.readRandom();
+        dozedAt = in.readLong();
+        infectedAt = in.readLong();
+        infectedWhileDozing = in.readBoolean();
     }
 
     /**
@@ -111,20 +257,23 @@ public class Carcass implements Actor, DynamicDisplayInformationProvider {
     public void trySpawnFungi() {
         if (hasFungi) return;
 
-        double chance = 0.05;
-
-        if (random.nextDouble() < chance) {
+        if (random.nextDouble() < FUNGI_CHANCE) {
             hasFungi = true;
         }
     }
 
     /**
      * Infects the carcass with fungi if it is not already infected.
+     * A dozing carcass is infected once it acts again, so it should be woken (see {@link World#wake(Object)}).
      */
     public void infectWithFungi() {
         if (hasFungi) {
             return;
         }
+        if (dozedAt >= 0) {
+            infectedWhileDozing = true;
+            return;
+        }
         hasFungi = true;
     }
 
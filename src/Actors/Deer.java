@@ -2,11 +2,14 @@ package Actors;
 
 import Inanimate.Herd;
 import itumulator.executable.DisplayInformation;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.Layer;
 import itumulator.world.Location;
+import itumulator.world.NeighbourMask;
 import itumulator.world.World;
 
 import java.awt.*;
-import java.util.Set;
 
 /**
  * Deer represents a herbivorous animal that lives in herds.
@@ -31,6 +34,37 @@ public class Deer extends Herbivore {
         }
     }
 
+    /**
+     * Constructor used when restoring the deer from a checkpoint, which provides its state.
+     */
+    private Deer() {
+        this(null);
+    }
+
+    /**
+     * Writes the state of the deer to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        super.writeState(out);
+        out.writeObject(herd);
+        out.writeBoolean(isFleeing);
+    }
+
+    /**
+     * Reads the state of the deer from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        super.readState(in);
+        herd = in.readObject(Herd.class);
+        isFleeing = in.readBoolean();
+    }
+
     /**
      * Seek shelter at the herd's home location.
      *
@@ -54,19 +88,23 @@ public class Deer extends Herbivore {
     @Override
     public void act(World world) {
         if (!isAlive) return;
+        if (!catchUp(world)) return;
 
         if (getAge() >= getMaxAge() || getEnergy() <= 0) {
             die(world);
             return;
         }
 
-        tickCommon();
+        tickCommon(world);
 
         if (world.isDay() && isSleeping) {
             wakeUp(world);
         }
 
-        if (isSleeping) return;
+        if (isSleeping) {
+            doze(world);
+            return;
+        }
 
         Location myLoc;
         try {
@@ -86,13 +124,19 @@ public class Deer extends Herbivore {
 
         Location predatorLoc = findNearbyPredator(world, myLoc, 2);
         if (predatorLoc != null) {
-            isFleeing = true;
+            if (!isFleeing) {
+                isFleeing = true;
+                appearanceChanged(world);
+            }
             flee(world, myLoc, predatorLoc);
             alertNearbyDeer(world, myLoc, predatorLoc, 2);
             return;
         }
 
-        isFleeing = false;
+        if (isFleeing) {
+            isFleeing = false;
+            appearanceChanged(world);
+        }
 
         if (world.isNight()) {
             nightBehaviour(world);
@@ -187,10 +231,7 @@ public class Deer extends Herbivore {
         Location myLoc = world.getLocation(this);
         if (myLoc == null) return null;
 
-        Set<Location> emptyAround = world.getEmptySurroundingTiles(myLoc);
-        if (!emptyAround.isEmpty()) return emptyAround.iterator().next();
-
-        return null;
+        return getEmptyNeighbour(world, myLoc);
     }
 
     /**
@@ -223,13 +264,7 @@ public class Deer extends Herbivore {
      * @return the location of a nearby predator, or null if none found
      */
     private Location findNearbyPredator(World world, Location from, int radius) {
-        for (Location loc : world.getSurroundingTiles(from, radius)) {
-            Object o = world.getTile(loc);
-            if (o instanceof Predator) {
-                return loc;
-            }
-        }
-        return null;
+        return world.getNearest(Predator.class, from, radius);
     }
 
     /**
@@ -240,22 +275,23 @@ public class Deer extends Herbivore {
      * @param predatorLoc the location of the predator
      */
     private void flee(World world, Location myLoc, Location predatorLoc) {
-        Set<Location> empty = world.getEmptySurroundingTiles(myLoc);
-        if (empty.isEmpty()) return;
+        int empty = world.getEmptyNeighbourMask(myLoc.getX(), myLoc.getY(), Layer.BLOCKING);
+        if (empty == 0) return;
 
-        Location best = null;
+        int best = -1;
         int bestDist = -1;
 
-        for (Location cand : empty) {
-            int d = distance(cand, predatorLoc);
+        for (int mask = empty; mask != 0; mask &= mask - 1) {
+            int i = Integer.numberOfTrailingZeros(mask);
+            int d = Math.abs(myLoc.getX() + NeighbourMask.dx(i) - predatorLoc.getX()) + Math.abs(myLoc.getY() + NeighbourMask.dy(i) - predatorLoc.getY());
             if (d > bestDist) {
                 bestDist = d;
-                best = cand;
+                best = i;
             }
         }
 
-        if (best != null) {
-            world.move(this, best);
+        if (best != -1) {
+            world.move(this, neighbour(world, myLoc, best));
             energy -= 5;
         }
     }
@@ -269,10 +305,12 @@ public class Deer extends Herbivore {
      * @param radius the radius to alert other deer
      */
     private void alertNearbyDeer(World world, Location myLoc, Location predatorLoc, int radius) {
-        for (Location loc : world.getSurroundingTiles(myLoc, radius)) {
-            Object o = world.getTile(loc);
-            if (o instanceof Deer other && other != this) {
-                other.isFleeing = true;
+        for (Deer other : world.getAll(Deer.class, myLoc, radius)) {
+            if (other != this) {
+                if (!other.isFleeing) {
+                    other.isFleeing = true;
+                    other.appearanceChanged(world);
+                }
 
                 Location otherLoc;
                 try {
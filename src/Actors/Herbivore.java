@@ -2,9 +2,10 @@ package Actors;
 
 import Inanimate.*;
 import itumulator.executable.DisplayInformation;
+import itumulator.simulator.Intents;
+import itumulator.world.Layer;
 import itumulator.world.Location;
 import itumulator.world.World;
-import java.util.Set;
 
 /**
  * An abstract class representing a herbivorous animal.
@@ -54,6 +55,38 @@ public abstract class Herbivore extends Animal {
         moveRandomly(world);
     }
 
+    /**
+     * Plans the behavior of the herbivore during the day (see {@link #dayBehaviour(World)}) as intents, when the simulator commits
+     * intents. Food the herbivore intends to eat is counted as eaten while planning, though another animal may get to it first.
+     *
+     * @param world the world in which the herbivore plans (which must not be modified)
+     * @param myLoc the location of the herbivore
+     * @param intents the intents to record in
+     */
+    protected void planDayBehaviour(World world, Location myLoc, Intents intents) {
+        Object onTile = world.getNonBlocking(myLoc);
+        int fed = 0;
+        if (isHungry() && canEat(onTile)) {
+            fed = getFoodEnergy(onTile);
+            planEat(onTile, intents);
+        }
+
+        if (isHungryAfter(fed)) {
+            Location nearestFood = findNearestFood(world, myLoc, 2);
+            if (nearestFood != null) {
+                if (distance(myLoc, nearestFood) == 1 && world.isTileEmpty(nearestFood)) {
+                    intents.move(this, nearestFood);
+                    energy -= 5;
+                    planEat(world.getNonBlocking(nearestFood), intents);
+                } else {
+                    planMoveOneStepTowards(world, myLoc, nearestFood, 5, intents);
+                }
+                return;
+            }
+        }
+        planMoveRandomly(world, myLoc, intents);
+    }
+
     /**
      * Defines the behavior of the herbivore during the night.
      * The herbivore sleeps if it is in or near its shelter, otherwise it loses energy.
@@ -87,24 +120,7 @@ public abstract class Herbivore extends Animal {
      * @return the location of the nearest food, or null if none found
      */
     protected Location findNearestFood(World world, Location myLoc, int radius) {
-        Location nearest = null;
-        int minDistance = Integer.MAX_VALUE;
-
-        for (int r = 1; r <= radius; r++) {
-            Set<Location> neighbors = world.getSurroundingTiles(myLoc, r);
-            for (Location n : neighbors) {
-                Object nb = world.getNonBlocking(n);
-                if (canEat(nb)) {
-                    int dist = distance(myLoc, n);
-                    if (dist < minDistance) {
-                        minDistance = dist;
-                        nearest = n;
-                    }
-                }
-            }
-            if (nearest != null) break;
-        }
-        return nearest;
+        return world.findNearest(myLoc, 1, radius, Layer.NON_BLOCKING, this::canEat);
     }
 
     // ----------- LIFE -----------
@@ -155,10 +171,21 @@ public abstract class Herbivore extends Animal {
                 world.delete(nb);
             } else if (nb instanceof Bush bush) {
                 bush.berriesEaten();
+                world.wake(bush);
             }
         }
     }
 
+    /**
+     * Intends to eat the given food (see {@link #eat(World, Location)}). Only the first animal eating the food during a step gets to eat it.
+     *
+     * @param food the food to eat
+     * @param intents the intents to record in
+     */
+    protected void planEat(Object food, Intents intents) {
+        intents.eat(food, w -> eat(w, w.getLocation(food)));
+    }
+
     /**
      * Get the food energy provided by the given object.
      *
@@ -1,11 +1,8 @@
 package Actors;
 
+import itumulator.simulator.Intents;
 import itumulator.world.Location;
 import itumulator.world.World;
-import java.util.function.Predicate;
-
-import java.util.Set;
-
 /**
  * Predator is an abstract class representing carnivorous animals that hunt other animals.
  * It extends the Animal class and provides a general hunting algorithm.
@@ -22,12 +19,19 @@ public abstract class Predator extends Animal {
     }
 
     /**
-     * Returns the hunting area of the predator.
+     * Returns the center of the hunting area of the predator.
      *
      * @param world the world in which the predator hunts
-     * @return the set of locations defining the hunting area
+     * @return the location the hunting area is centered around
+     */
+    protected abstract Location getHuntingCenter(World world);
+
+    /**
+     * Returns the radius of the hunting area of the predator.
+     *
+     * @return the radius (in tiles) around the hunting center
      */
-    protected abstract Set<Location> getHuntingArea(World world);
+    protected abstract int getHuntingRadius();
 
     /**
      * Returns the movement cost for hunting.
@@ -53,31 +57,29 @@ public abstract class Predator extends Animal {
     protected void hunt(World world) {
         Location myLoc = world.getLocation(this);
 
-        Set<Location> neighbors = world.getSurroundingTiles(myLoc);
-        for (Location loc : neighbors) {
-            Object obj = world.getTile(loc);
-            if (obj instanceof Herbivore) {
-                kill(world, (Herbivore) obj);
-                return;
-            }
+        Location adjacentPrey = world.getNearest(Herbivore.class, myLoc, 1);
+        if (adjacentPrey != null) {
+            kill(world, (Herbivore) world.getTile(adjacentPrey));
+            return;
         }
 
-        Set<Location> area = getHuntingArea(world);
+        Location center = getHuntingCenter(world);
+        int radius = getHuntingRadius();
 
-        Location enemyLoc = findClosestEnemyPredator(world, area, myLoc);
+        Location enemyLoc = findClosestEnemyPredator(world, center, radius, myLoc);
         if (enemyLoc != null) {
             engageTarget(world, enemyLoc);
             return;
         }
 
-        Location carcassLoc = findClosestCarcass(world, area, myLoc);
+        Location carcassLoc = findClosestCarcass(world, center, radius, myLoc);
         if (carcassLoc != null) {
             engageTarget(world, carcassLoc);
             return;
         }
 
 
-        Location preyLoc = findClosestPrey(world, area, myLoc);
+        Location preyLoc = findClosestPrey(world, center, radius, myLoc);
         if (preyLoc != null) {
             engageTarget(world, preyLoc);
         }
@@ -91,9 +93,8 @@ public abstract class Predator extends Animal {
      */
     protected void engageTarget(World world, Location targetLoc) {
         Location myLoc = world.getLocation(this);
-        Set<Location> neighbors = world.getSurroundingTiles(myLoc);
 
-        if (neighbors.contains(targetLoc)) {
+        if (isAdjacent(myLoc, targetLoc)) {
             Object o = world.getTile(targetLoc);
 
             if (o instanceof Herbivore prey) {
@@ -111,79 +112,103 @@ public abstract class Predator extends Animal {
     }
 
 
+    /**
+     * Plans the hunting behavior of the predator (see {@link #hunt(World)}) as intents, when the simulator commits intents.
+     * Only the first predator killing a prey or eating from a carcass during a step gets to do so.
+     *
+     * @param world the world in which the predator plans (which must not be modified)
+     * @param myLoc the location of the predator
+     * @param intents the intents to record in
+     */
+    protected void planHunt(World world, Location myLoc, Intents intents) {
+        Location adjacentPrey = world.getNearest(Herbivore.class, myLoc, 1);
+        if (adjacentPrey != null) {
+            Herbivore prey = (Herbivore) world.getTile(adjacentPrey);
+            intents.kill(prey, w -> kill(w, prey));
+            return;
+        }
+
+        Location center = getHuntingCenter(world);
+        int radius = getHuntingRadius();
+
+        Location targetLoc = findClosestEnemyPredator(world, center, radius, myLoc);
+        if (targetLoc == null) targetLoc = findClosestCarcass(world, center, radius, myLoc);
+        if (targetLoc == null) targetLoc = findClosestPrey(world, center, radius, myLoc);
+        if (targetLoc != null) {
+            planEngageTarget(world, myLoc, targetLoc, intents);
+        }
+    }
+
+    /**
+     * Plans to engage the target at the specified location (see {@link #engageTarget(World, Location)}) as intents.
+     * @param world the world in which the predator plans
+     * @param myLoc the location of the predator
+     * @param targetLoc the location of the target to engage
+     * @param intents the intents to record in
+     */
+    protected void planEngageTarget(World world, Location myLoc, Location targetLoc, Intents intents) {
+        if (!isAdjacent(myLoc, targetLoc)) {
+            planMoveOneStepTowards(world, myLoc, targetLoc, getHuntMoveCost(), intents);
+            return;
+        }
+
+        Object o = world.getTile(targetLoc);
+        if (o instanceof Predator predator && isEnemyPredator(predator)) {
+            intents.update(predator, w -> fight(predator, w));
+        } else if (o instanceof Herbivore prey) {
+            intents.kill(prey, w -> {
+                kill(w, prey);
+                eat(w, targetLoc);
+            });
+        } else if (o != null) {
+            intents.eat(o, w -> eat(w, targetLoc));
+        }
+    }
+
+    /**
+     * Checks whether two locations are next to each other (including diagonally).
+     * @param a the first location
+     * @param b the second location
+     * @return true if the locations are adjacent, false if they are the same or further apart
+     */
+    protected boolean isAdjacent(Location a, Location b) {
+        return Math.max(Math.abs(a.getX() - b.getX()), Math.abs(a.getY() - b.getY())) == 1;
+    }
+
     /**
      * Find the closest enemy predator within a specified area.
      * @param world the world in which the predator exists
-     * @param area the set of locations to search in
+     * @param center the center of the area to search in
+     * @param radius the radius of the area to search in
      * @param from the starting location for distance calculation
      * @return the location of the closest enemy predator, or null if none found
      */
-    protected Location findClosestEnemyPredator(World world, Set<Location> area, Location from) {
-        Location closest = null;
-        int bestDistance = Integer.MAX_VALUE;
-
-        for (Location loc : area) {
-            Object obj = world.getTile(loc);
-            if (obj instanceof Predator predator) {
-                if (isEnemyPredator(predator)) {
-                    int d = distance(from, loc);
-                    if (d < bestDistance) {
-                        bestDistance = d;
-                        closest = loc;
-                    }
-                }
-            }
-        }
-        return closest;
+    protected Location findClosestEnemyPredator(World world, Location center, int radius, Location from) {
+        return world.getNearest(Predator.class, center, radius, from, this::isEnemyPredator);
     }
 
     /**
      * Find the closest carcass within a specified area.
      * @param world the world in which the predator exists
-     * @param area the set of locations to search in
+     * @param center the center of the area to search in
+     * @param radius the radius of the area to search in
      * @param from the starting location for distance calculation
      * @return the location of the closest carcass, or null if none found
      */
-    protected Location findClosestCarcass(World world, Set<Location> area, Location from) {
-        Location closest = null;
-        int bestDistance = Integer.MAX_VALUE;
-
-        for (Location loc : area) {
-            Object obj = world.getTile(loc);
-            if (obj instanceof Carcass) {
-                int d = distance(from, loc);
-                if (d < bestDistance) {
-                    bestDistance = d;
-                    closest = loc;
-                }
-            }
-        }
-        return closest;
+    protected Location findClosestCarcass(World world, Location center, int radius, Location from) {
+        return world.getNearest(Carcass.class, center, radius, from, null);
     }
 
     /**
      * Find the closest prey within a specified area.
      * @param world the world in which the predator exists
-     * @param area the set of locations to search in
+     * @param center the center of the area to search in
+     * @param radius the radius of the area to search in
      * @param from the starting location for distance calculation
      * @return the location of the closest prey, or null if none found
      */
-    protected Location findClosestPrey(World world, Set<Location> area, Location from) {
-        Location closest = null;
-        int bestDistance = Integer.MAX_VALUE;
-
-        for (Location loc : area) {
-            Object obj = world.getTile(loc);
-            if (obj instanceof Animal && !(obj instanceof Predator)) {
-                int d = distance(from, loc);
-                if (d < bestDistance) {
-                    bestDistance = d;
-                    closest = loc;
-                }
-            }
-        }
-
-        return closest;
+    protected Location findClosestPrey(World world, Location center, int radius, Location from) {
+        return world.getNearest(Animal.class, center, radius, from, prey -> !(prey instanceof Predator));
     }
 
     /**
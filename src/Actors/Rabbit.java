@@ -4,20 +4,24 @@ import Inanimate.Burrow;
 import Inanimate.Fungi;
 import Inanimate.Grass;
 import itumulator.executable.DisplayInformation;
+import itumulator.simulator.IntentActor;
+import itumulator.simulator.Intents;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
 import itumulator.world.Location;
 import itumulator.world.World;
 
 import java.awt.*;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
 
 /**
  * Rabbit represents a herbivorous animal that can dig and live in burrows.
  * It has behaviors for day and night, including eating grass,
  * seeking shelter in burrows, and reproducing.
+ * When the simulator commits intents, a rabbit plans its moves and meals during the day (see {@link #plan(World, Location, Intents)}).
  */
-public class Rabbit extends Herbivore {
+public class Rabbit extends Herbivore implements IntentActor {
     private Burrow burrow;
 
     /**
@@ -37,6 +41,28 @@ public class Rabbit extends Herbivore {
         this.random = random;
     }
 
+    /**
+     * Writes the state of the rabbit to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        super.writeState(out);
+        out.writeObject(burrow);
+    }
+
+    /**
+     * Reads the state of the rabbit from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        super.readState(in);
+        burrow = in.readObject(Burrow.class);
+    }
+
     // ----------- ACT -----------
 
     @Override
@@ -62,6 +88,30 @@ public class Rabbit extends Herbivore {
         }
     }
 
+    /**
+     * Plans the rabbit's day behavior (see {@link #dayBehaviour(World)}) when the simulator commits intents: moving and eating grass
+     * are recorded as intents, so two rabbits heading for the same tile or grass do not both get it. Looking for a burrow waits until
+     * the rabbit has moved. Outside of the day the rabbit acts as usual once its turn comes in the commit.
+     *
+     * @param world the world in which the rabbit plans (which must not be modified)
+     * @param location the location of the rabbit, or null if it is not on the map
+     * @param intents the intents to record in
+     */
+    @Override
+    public void plan(World world, Location location, Intents intents) {
+        if (!planCommon(world, location, intents)) return;
+        planDayBehaviour(world, location, intents);
+
+        if (burrow == null) {
+            boolean dig = random.nextDouble() < 0.10;
+            intents.update(this, w -> {
+                if (burrow != null || !w.isOnTile(this)) return;
+                if (dig) digBurrow(w);
+                else claimBurrow(w);
+            });
+        }
+    }
+
     /**
      * Determines the rabbit's behavior at night.
      * The rabbit will sleep if it has a burrow and attempt to reproduce if other rabbits are present.
@@ -127,9 +177,9 @@ public class Rabbit extends Herbivore {
             return;
         }
 
-        Set<Location> empty = world.getEmptySurroundingTiles(burrowLoc);
-        if (!empty.isEmpty()) {
-            world.setTile(empty.iterator().next(), this);
+        Location empty = getEmptyNeighbour(world, burrowLoc);
+        if (empty != null) {
+            world.setTile(empty, this);
             isSleeping = false;
         }
     }
@@ -257,12 +307,7 @@ public class Rabbit extends Herbivore {
             return burrowLocation;
         }
 
-        Set<Location> emptyTilesAroundBurrow = world.getEmptySurroundingTiles(burrowLocation);
-        if (!emptyTilesAroundBurrow.isEmpty()) {
-            return emptyTilesAroundBurrow.iterator().next();
-        }
-
-        return null;
+        return getEmptyNeighbour(world, burrowLocation);
     }
 
 
@@ -311,13 +356,9 @@ public class Rabbit extends Herbivore {
             return;
         }
 
-        Set<Location> nearby = world.getSurroundingTiles(rabbitLocation);
-        for (Location loc : nearby) {
-            Object obj2 = world.getNonBlocking(loc);
-            if (obj2 instanceof Burrow b) {
-                setBurrow(b);
-                return;
-            }
+        Location nearby = world.getNearest(Burrow.class, rabbitLocation, 1);
+        if (nearby != null) {
+            setBurrow((Burrow) world.getNonBlocking(nearby));
         }
     }
 
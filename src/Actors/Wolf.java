@@ -2,6 +2,11 @@ package Actors;
 
 import Inanimate.*;
 import itumulator.executable.DisplayInformation;
+import itumulator.simulator.IntentActor;
+import itumulator.simulator.Intents;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.Layer;
 import itumulator.world.Location;
 import itumulator.world.World;
 
@@ -12,14 +17,14 @@ import java.util.List;
 /**
  * Wolf represents a predatory animal that lives in packs.
  * It has behaviors for hunting, building dens, and reproducing.
+ * When the simulator commits intents, a wolf plans its moves, kills and meals during the day (see {@link #plan(World, Location, Intents)}).
  */
-public class Wolf extends Predator {
+public class Wolf extends Predator implements IntentActor {
     private Pack pack;
     private Den den;
 
     public Wolf(Pack pack) {
         super(240);
-        this.random = new Random();
         this.shelter = null;
         this.pack = pack;
         if (pack != null) {
@@ -27,6 +32,37 @@ public class Wolf extends Predator {
         }
     }
 
+    /**
+     * Constructor used when restoring the wolf from a checkpoint, which provides its state.
+     */
+    private Wolf() {
+        this(null);
+    }
+
+    /**
+     * Writes the state of the wolf to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        super.writeState(out);
+        out.writeObject(pack);
+        out.writeObject(den);
+    }
+
+    /**
+     * Reads the state of the wolf from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        super.readState(in);
+        pack = in.readObject(Pack.class);
+        den = in.readObject(Den.class);
+    }
+
     // ----------- ACT ------------
 
     /**
@@ -103,6 +139,46 @@ public class Wolf extends Predator {
         }
     }
 
+    /**
+     * Plans the wolf's day behavior (see {@link #dayBehaviour(World)}) when the simulator commits intents: moving, killing, fighting
+     * and eating are recorded as intents, so two wolves eating from the same carcass or killing the same prey do not both get to.
+     * Building a den waits until the wolf has moved. Outside of the day the wolf acts as usual once its turn comes in the commit.
+     *
+     * @param world the world in which the wolf plans (which must not be modified)
+     * @param location the location of the wolf, or null if it is not on the map
+     * @param intents the intents to record in
+     */
+    @Override
+    public void plan(World world, Location location, Intents intents) {
+        if (!planCommon(world, location, intents)) return;
+
+        if (isHungry()) {
+            planHunt(world, location, intents);
+        } else if (pack != null) {
+            Wolf leader = pack.getLeader();
+            Location leaderLoc = null;
+            if (leader != null && leader != this) {
+                try {
+                    leaderLoc = world.getLocation(leader);
+                } catch (IllegalArgumentException e) {}
+            }
+
+            if (leaderLoc != null && distance(location, leaderLoc) > 1) {
+                planMoveOneStepTowards(world, location, leaderLoc, 5, intents);
+            } else {
+                planMoveRandomly(world, location, intents);
+            }
+        } else {
+            planMoveRandomly(world, location, intents);
+        }
+
+        if (den == null && pack != null && pack.getLeader() == this) {
+            intents.update(this, w -> {
+                if (pack.getLeader() == this) buildDen(w);
+            });
+        }
+    }
+
     // ----------- LIFE -----------
 
     /**
@@ -126,6 +202,7 @@ public class Wolf extends Predator {
     public void wakeUp(World world) {
         if (den == null) {
             isSleeping = false;
+            appearanceChanged(world);
             return;
         }
 
@@ -143,9 +220,9 @@ public class Wolf extends Predator {
             return;
         }
 
-        Set<Location> empty = world.getEmptySurroundingTiles(denLoc);
-        if (!empty.isEmpty()) {
-            world.setTile(empty.iterator().next(), this);
+        Location empty = getEmptyNeighbour(world, denLoc);
+        if (empty != null) {
+            world.setTile(empty, this);
             isSleeping = false;
         }
     }
@@ -175,6 +252,7 @@ public class Wolf extends Predator {
         if (o instanceof Carcass carcass) {
             int amount = Math.min(30, carcass.getMeatLeft());
             carcass.eaten(amount);
+            if (carcass.getMeatLeft() == 0) world.wake(carcass);
             energy += amount;
         }
     }
@@ -261,10 +339,7 @@ public class Wolf extends Predator {
 
         if (world.isTileEmpty(denLocation)) return denLocation;
 
-        Set<Location> emptyAround = world.getEmptySurroundingTiles(denLocation);
-        if (!emptyAround.isEmpty()) return emptyAround.iterator().next();
-
-        return null;
+        return getEmptyNeighbour(world, denLocation);
     }
 
     // ----------- PACK/DEN -----------
@@ -292,19 +367,11 @@ public class Wolf extends Predator {
 
         if (den != null) return;
 
-        var empty = world.getEmptySurroundingTiles(wolfLoc);
-        if (empty.isEmpty()) return;
-
-        Location denLoc = null;
-        for (Location loc : empty) {
-            Object nb = world.getNonBlocking(loc);
-            if (nb == null) {
-                denLoc = loc;
-                break;
-            }
-        }
+        int empty = world.getEmptyNeighbourMask(wolfLoc.getX(), wolfLoc.getY(), Layer.BLOCKING)
+                & world.getEmptyNeighbourMask(wolfLoc.getX(), wolfLoc.getY(), Layer.NON_BLOCKING);
+        if (empty == 0) return;
 
-        if (denLoc == null) return;
+        Location denLoc = neighbour(world, wolfLoc, Integer.numberOfTrailingZeros(empty));
 
         den = new Den();
         world.setTile(denLoc, den);
@@ -331,16 +398,25 @@ public class Wolf extends Predator {
     public Den getDen() { return den; }
 
     /**
-     * Determines the hunting area for the wolf.
+     * Determines the center of the hunting area for the wolf.
      * The hunting area is a small radius around the wolf's current location.
      *
      * @param world the world in which the wolf exists
-     * @return a set of locations defining the hunting area
+     * @return the wolf's current location
+     */
+    @Override
+    protected Location getHuntingCenter(World world) {
+        return world.getLocation(this);
+    }
+
+    /**
+     * Determines the radius of the hunting area for the wolf.
+     *
+     * @return the hunting radius
      */
     @Override
-    protected Set<Location> getHuntingArea(World world) {
-        Location wolfLoc = world.getLocation(this);
-        return world.getSurroundingTiles(wolfLoc, 2);
+    protected int getHuntingRadius() {
+        return 2;
     }
 
     /**
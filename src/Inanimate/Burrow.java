@@ -2,6 +2,10 @@ package Inanimate;
 
 import Actors.Rabbit;
 import itumulator.executable.DisplayInformation;
+import itumulator.simulator.Intents;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.Location;
 import itumulator.world.World;
 
 import java.awt.*;
@@ -34,12 +38,25 @@ public class Burrow extends Landscape {
 
     /**
      * Updates the burrow's state each simulation step.
-     * Burrows are passive and do not perform any actions.
+     * Burrows are passive and do not perform any actions, so the burrow becomes dormant and is not asked to act again.
      *
      * @param world the world in which the burrow exists
      */
     @Override
     public void act(World world) {
+        world.sleep(this);
+    }
+
+    /**
+     * Burrows are passive and do not plan any actions either, so the burrow becomes dormant.
+     *
+     * @param world    the world in which the burrow exists
+     * @param location the location of the burrow
+     * @param intents  to record intents in (none)
+     */
+    @Override
+    public void plan(World world, Location location, Intents intents) {
+        world.sleep(this);
     }
 
     /**
@@ -60,6 +77,29 @@ public class Burrow extends Landscape {
         return rabbits;
     }
 
+    /**
+     * Writes the state of the burrow and its residents to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        super.writeState(out);
+        out.writeObjects(rabbits);
+    }
+
+    /**
+     * Reads the state of the burrow and its residents from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        super.readState(in);
+        rabbits.clear();
+        in.readObjects(Rabbit.class, rabbits);
+    }
+
     /**
      * Provides display information for the burrow.
      *
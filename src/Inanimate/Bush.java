@@ -1,6 +1,10 @@
 package Inanimate;
 
 import itumulator.executable.DisplayInformation;
+import itumulator.simulator.Intents;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.Location;
 import itumulator.world.World;
 import java.awt.*;
 import java.util.Random;
@@ -17,7 +21,7 @@ public class Bush extends Landscape {
      * Constructor for normal use in the simulator.
      */
     public Bush() {
-        this(new Random());
+        super();
     }
 
     /**
@@ -30,16 +34,62 @@ public class Bush extends Landscape {
         this.random = random;
     }
 
+    /**
+     * Writes the state of the bush to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        super.writeState(out);
+        out.writeInt(berry);
+    }
+
+    /**
+     * Reads the state of the bush from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        super.readState(in);
+        berry = in.readInt();
+    }
+
     /**
      * Updates the bush's state each simulation step.
-     * The bush grows berries and potentially spreads to adjacent tiles.
+     * The bush grows berries and potentially spreads to adjacent tiles. Once full of berries, it rests until it spreads
+     * or its berries are eaten.
      *
      * @param world the world in which the bush exists
      */
     @Override
     public void act(World world) {
+        produceBerries();
         super.act(world);
+    }
+
+    /**
+     * Plans the bush's spreading when the simulator commits intents, and grows berries.
+     *
+     * @param world    the world in which the bush exists
+     * @param location the location of the bush
+     * @param intents  to record the new bushes in
+     */
+    @Override
+    public void plan(World world, Location location, Intents intents) {
         produceBerries();
+        super.plan(world, location, intents);
+    }
+
+    /**
+     * The bush can only rest once it is full of berries (those eating the berries wake it).
+     *
+     * @return true if the bush is full of berries
+     */
+    @Override
+    protected boolean canRest() {
+        return berry >= maxBerries;
     }
 
     /**
@@ -91,6 +141,7 @@ public class Bush extends Landscape {
 
     /**
      * Resets the number of berries on the bush to zero, indicating they have been eaten.
+     * The bush should be woken afterwards (see {@link World#wake(Object)}), as it may be resting.
      */
     public void berriesEaten() {
         berry = 0;
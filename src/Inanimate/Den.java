@@ -2,6 +2,10 @@ package Inanimate;
 
 import Actors.Wolf;
 import itumulator.executable.DisplayInformation;
+import itumulator.simulator.Intents;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.Location;
 import itumulator.world.World;
 
 import java.awt.*;
@@ -33,12 +37,25 @@ public class Den extends Landscape {
 
     /**
      * Updates the den's state each simulation step.
-     * Dens are passive and do not perform any actions.
+     * Dens are passive and do not perform any actions, so the den becomes dormant and is not asked to act again.
      *
      * @param world the world in which the den exists
      */
     @Override
     public void act(World world) {
+        world.sleep(this);
+    }
+
+    /**
+     * Dens are passive and do not plan any actions either, so the den becomes dormant.
+     *
+     * @param world    the world in which the den exists
+     * @param location the location of the den
+     * @param intents  to record intents in (none)
+     */
+    @Override
+    public void plan(World world, Location location, Intents intents) {
+        world.sleep(this);
     }
 
     /**
@@ -59,6 +76,29 @@ public class Den extends Landscape {
         return wolves;
     }
 
+    /**
+     * Writes the state of the den and its residents to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        super.writeState(out);
+        out.writeObjects(wolves);
+    }
+
+    /**
+     * Reads the state of the den and its residents from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        super.readState(in);
+        wolves.clear();
+        in.readObjects(Wolf.class, wolves);
+    }
+
     /**
      * Provides display information for the den.
      *
@@ -2,6 +2,9 @@ package Inanimate;
 
 import Actors.Carcass;
 import itumulator.executable.DisplayInformation;
+import itumulator.simulator.Intents;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
 import itumulator.world.Location;
 import itumulator.world.World;
 import java.awt.*;
@@ -13,6 +16,7 @@ import java.util.Set;
  */
 public class Fungi extends Landscape {
     private int lifespan;
+    private long dozedAt = -1; // the step the fungi became dormant in, or -1 if it is not dozing
 
     /**
      * Constructor for Fungi with a specified lifespan.
@@ -22,28 +26,102 @@ public class Fungi extends Landscape {
         this.lifespan = lifespan;
     }
 
+    /**
+     * Constructor used when restoring the fungi from a checkpoint, which provides its state.
+     */
+    private Fungi() {
+        this(0);
+    }
+
+    /**
+     * Writes the state of the fungi to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        super.writeState(out);
+        out.writeInt(lifespan);
+        out.writeLong(dozedAt);
+    }
+
+    /**
+     * Reads the state of the fungi from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        super.readState(in);
+        lifespan = in.readInt();
+        dozedAt = in.readLong();
+    }
+
     /**
      * Updates the fungi's state each simulation step.
-     * Decreases lifespan and attempts to infect nearby carcasses.
+     * Decreases lifespan and attempts to infect nearby carcasses. Afterwards, the fungi dozes until something changes nearby
+     * (e.g., a carcass appears) or its appearance or life ends, and the lifespan is decreased by the steps dozed through when it acts again.
      *
      * @param world the world in which the fungi exists
      */
     @Override
     public void act(World world) {
-        lifespan--;
+        lifespan -= stepsSinceActing(world);
         if (lifespan <= 0) {
             world.delete(this);
             return;
         }
 
-        Set<Location> tilesInInfectionRadius = getInfectionArea(world);
+        Location here = getFungiLocation(world);
+        if (here == null) return;
+
+        for (Carcass carcass : world.getAll(Carcass.class, here, getInfectionRadius())) {
+            infectNearbyCarcass(carcass);
+            world.wake(carcass);
+        }
+        doze(world, here);
+    }
+
+    /**
+     * Plans the fungi's actions when the simulator commits intents (see {@link #act(World)}).
+     *
+     * @param world    the world in which the fungi exists
+     * @param location the location of the fungi
+     * @param intents  to record the deletion or infections in
+     */
+    @Override
+    public void plan(World world, Location location, Intents intents) {
+        lifespan -= stepsSinceActing(world);
+        if (lifespan <= 0) {
+            intents.delete(this);
+            return;
+        }
+
+        if (location == null) return;
 
-        for (Location tileInRadius : tilesInInfectionRadius) {
-            Object o = world.getTile(tileInRadius);
-            if (o instanceof Carcass carcass) {
+        for (Carcass carcass : world.getAll(Carcass.class, location, getInfectionRadius())) {
+            intents.update(carcass, w -> {
                 infectNearbyCarcass(carcass);
-            }
+                w.wake(carcass);
+            });
         }
+        doze(world, location);
+    }
+
+    // the steps since the fungi last acted, i.e., 1 unless it was dozing
+    private int stepsSinceActing(World world) {
+        long now = world.getStepCount();
+        long from = dozedAt;
+        dozedAt = -1;
+        if (from < 0 || from >= now) return 1;
+        return (int) Math.min(now - from, lifespan);
+    }
+
+    // dozes until a tile within the infection radius changes, or until the fungi turns small or dies
+    private void doze(World world, Location here) {
+        if (!world.contains(this)) return;
+        dozedAt = world.getStepCount();
+        world.sleepUntilDisturbed(this, here, getInfectionRadius(), lifespan >= 30 ? lifespan - 29 : lifespan);
     }
 
     /**
@@ -78,10 +156,18 @@ public class Fungi extends Landscape {
      * @return set of locations within the infection radius
      */
     public Set<Location> getInfectionArea(World world) {
-        int radius = 2;
         Location here = getFungiLocation(world);
         if (here == null) return Set.of();
-        return world.getSurroundingTiles(here, radius);
+        return world.getSurroundingTiles(here, getInfectionRadius());
+    }
+
+    /**
+     * Returns the radius within which the fungi infects carcasses.
+     *
+     * @return the infection radius
+     */
+    public int getInfectionRadius() {
+        return 2;
     }
 
     /**
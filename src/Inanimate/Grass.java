@@ -11,7 +11,7 @@ public class Grass extends Landscape {
      * Constructor for normal use in the simulator.
      */
     public Grass() {
-        this(new Random());
+        super();
     }
 
     /**
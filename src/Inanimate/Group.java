@@ -2,6 +2,9 @@ package Inanimate;
 
 import Actors.Animal;
 import itumulator.simulator.Actor;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.Checkpointable;
 import itumulator.world.Location;
 import itumulator.world.NonBlocking;
 import itumulator.world.World;
@@ -16,7 +19,7 @@ import java.util.List;
  * @param <T> the type of Animal that can be part of the group
  */
 public abstract class Group<T extends Animal>
-        implements Groupable<T>, Actor, NonBlocking {
+        implements Groupable<T>, Actor, NonBlocking, Checkpointable {
 
     private final List<T> members = new ArrayList<>();
     private Location home;
@@ -84,12 +87,38 @@ public abstract class Group<T extends Animal>
     }
 
     /**
-     * The act method for the group. Currently, the group does not perform any actions.
+     * The act method for the group. Currently, the group does not perform any actions,
+     * so it becomes dormant and is not asked to act again.
      *
      * @param world the world in which the group exists
      */
     @Override
     public void act(World world) {
+        world.sleep(this);
+    }
+
+    /**
+     * Writes the members and home of the group to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        out.writeObjects(members);
+        out.writeLocation(home);
+    }
+
+    /**
+     * Reads the members and home of the group from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void readState(CheckpointInput in) {
+        members.clear();
+        in.readObjects(Animal.class, (List<Animal>) (List<? extends Animal>) members);
+        home = in.readLocation();
     }
 
 }
@@ -2,38 +2,100 @@ package Inanimate;
 
 import itumulator.executable.DisplayInformation;
 import itumulator.executable.DynamicDisplayInformationProvider;
-import itumulator.simulator.Actor;
+import itumulator.simulator.IntentActor;
+import itumulator.simulator.Intents;
+import itumulator.simulator.LocalActor;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.Checkpointable;
+import itumulator.world.Layer;
+import itumulator.world.NeighbourMask;
 import itumulator.world.NonBlocking;
+import itumulator.world.Randomized;
 import itumulator.world.World;
 import itumulator.world.Location;
 
-import java.util.Random;
-import java.util.Set;
+import java.util.random.RandomGenerator;
 
 /**
  * An abstract class representing non-blocking landscape elements in the world.
  * Landscape elements can act and spread to neighboring tiles.
  */
-public abstract class Landscape implements NonBlocking, Actor, DynamicDisplayInformationProvider {
-    protected Random random;
+public abstract class Landscape implements NonBlocking, LocalActor, IntentActor, Randomized, Checkpointable, DynamicDisplayInformationProvider {
+    protected RandomGenerator random; // provided by the world, unless given by a test
     protected Location location;
+    private long restedAt = -1; // the step the landscape element began resting in, or -1 if it is not resting
+    private long spreadAt; // the step the resting landscape element spreads in
 
     /**
-     * Default constructor initializing the random number generator.
+     * Default constructor. The random number generator is provided by the world (see {@link #provideRandom(RandomGenerator)}).
      */
     public Landscape() {
-        this.random = new Random();
+    }
+
+    /**
+     * Provides the landscape element its random stream when it enters a world, unless it was given a source of randomness already (e.g., by a test).
+     *
+     * @param random the stream provided by the world
+     */
+    @Override
+    public void provideRandom(RandomGenerator random) {
+        if (this.random == null) this.random = random;
+    }
+
+    /**
+     * Writes the state of the landscape element to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        out.writeRandom(random);
+        out.writeLocation(location);
+        out.writeLong(restedAt);
+        out.writeLong(spreadAt);
+    }
+
+    /**
+     * Reads the state of the landscape element from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        random = in.readRandom();
+        location = in.readLocation();
+        restedAt = in.readLong();
+        spreadAt = in.readLong();
     }
 
     /**
      * Updates the landscape's state each simulation step.
-     * Handles the spreading behavior to adjacent tiles.
+     * Handles the spreading behavior to adjacent tiles, and rests until the next spreading if possible (see {@link #canRest()}).
      *
      * @param world the world in which the landscape exists
      */
     @Override
     public void act(World world) {
         spread(world);
+        rest(world);
+    }
+
+    /**
+     * Plans the landscape's spreading when the simulator commits intents (see {@link #act(World)}).
+     *
+     * @param world    the world in which the landscape exists
+     * @param location the location of the landscape
+     * @param intents  to record the new landscape elements in
+     */
+    @Override
+    public void plan(World world, Location location, Intents intents) {
+        if (location == null) return;
+        for (int free = spreadTargets(world, location); free != 0; free &= free - 1) {
+            int i = Integer.numberOfTrailingZeros(free);
+            intents.spawn(world.locationAt(location.getX() + NeighbourMask.dx(i), location.getY() + NeighbourMask.dy(i)), createNewInstance());
+        }
+        rest(world);
     }
 
     /**
@@ -43,15 +105,61 @@ public abstract class Landscape implements NonBlocking, Actor, DynamicDisplayInf
      */
     public void spread(World world) {
         Location location = world.getLocation(this);
-        Set<Location> neighbours = world.getSurroundingTiles(location);
-
-        if (random.nextInt(100) <= spreadChance()) {
-            for (Location neighbour : neighbours) {
-                if (!world.containsNonBlocking(neighbour)) {
-                    world.setTile(neighbour, createNewInstance());
-                }
-            }
+
+        for (int free = spreadTargets(world, location); free != 0; free &= free - 1) {
+            int i = Integer.numberOfTrailingZeros(free);
+            world.setTile(world.locationAt(location.getX() + NeighbourMask.dx(i), location.getY() + NeighbourMask.dy(i)), createNewInstance());
+        }
+    }
+
+    // the empty neighbouring tiles to spread to (as a mask), or 0 if not spreading this time
+    private int spreadTargets(World world, Location location) {
+        if (!isSpreading(world)) return 0;
+        return world.getEmptyNeighbourMask(location.getX(), location.getY(), Layer.NON_BLOCKING);
+    }
+
+    // whether to spread this step: drawn each step, unless resting since an earlier step (as the step was drawn when resting)
+    private boolean isSpreading(World world) {
+        long now = world.getStepCount();
+        if (restedAt < 0 || restedAt >= now) {
+            restedAt = -1;
+            return random.nextInt(100) <= spreadChance();
+        }
+        return now >= spreadAt;
+    }
+
+    /**
+     * Lets the landscape element rest until it spreads next, if it can (see {@link #canRest()}), so it is not asked to act meanwhile.
+     * The step of spreading is drawn in advance, with the same odds as drawing every step, and kept if woken earlier.
+     *
+     * @param world the world in which the landscape exists
+     */
+    private void rest(World world) {
+        if (!canRest() || !world.contains(this)) {
+            restedAt = -1;
+            return;
         }
+        long now = world.getStepCount();
+        if (restedAt < 0 || spreadAt <= now) spreadAt = now + stepsUntilSpreading();
+        restedAt = now;
+        if (spreadAt - now > 1) world.sleepFor(this, (int) Math.min(spreadAt - now, Integer.MAX_VALUE));
+    }
+
+    // draws the steps until the next spreading, i.e., the first of the steps drawn each step (given spreadChance()) to spread
+    private long stepsUntilSpreading() {
+        double chance = (spreadChance() + 1) / 100.0;
+        if (chance >= 1) return 1;
+        return 1 + (long) Math.min(Math.log(1 - random.nextDouble()) / Math.log(1 - chance), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Determines whether the landscape element has nothing to do but spread, so it may rest until it spreads next.
+     * Landscape elements with more to do every step override this.
+     *
+     * @return true if the landscape element can rest
+     */
+    protected boolean canRest() {
+        return true;
     }
 
     /**
@@ -1,6 +1,8 @@
 package Inanimate;
 
 import Actors.Wolf;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
 
 /**
  * A class representing a pack of wolves.
@@ -29,5 +31,27 @@ public class Pack extends Group<Wolf> {
         return den;
     }
 
+    /**
+     * Writes the state of the pack to a checkpoint of the world.
+     *
+     * @param out the checkpoint to write to
+     */
+    @Override
+    public void writeState(CheckpointOutput out) {
+        super.writeState(out);
+        out.writeObject(den);
+    }
+
+    /**
+     * Reads the state of the pack from a checkpoint of the world.
+     *
+     * @param in the checkpoint to read from
+     */
+    @Override
+    public void readState(CheckpointInput in) {
+        super.readState(in);
+        den = in.readObject(Den.class);
+    }
+
 }
 
@@ -0,0 +1,38 @@
+import itumulator.simulator.PopulationBands;
+import itumulator.simulator.ReplicaRunner;
+
+import java.io.FileNotFoundException;
+
+/**
+ * Runs many headless replicas of a scenario with different seeds, and prints the bands of the populations to expect
+ * (see {@link PopulationBands}), e.g., for capacity planning.
+ */
+public class Replicas {
+    /**
+     * Entry point for running replicas.
+     *
+     * @param args Command line arguments: the input file (e.g., "input_files/tf4-MAX_Integer.txt"), the amount of replicas
+     *             and the amount of steps per replica, optionally followed by the seed and the amount of threads
+     *             (by default the amount of cores).
+     * @throws FileNotFoundException If the input file is not found.
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length < 3) {
+            System.out.println("Brug: Replicas <inputfil> <replikaer> <skridt> [seed] [tr\u00e5de]");
+            return;
+        }
+        Scenario scenario = Scenario.load(args[0]);
+        int replicas = Integer.parseInt(args[1]);
+        int steps = Integer.parseInt(args[2]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        PopulationBands bands = new ReplicaRunner(threads).run(scenario::build, replicas, steps, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.print(bands.toTable(Math.max(1, steps / 20)));
+        System.out.printf("%s (seed %d) p\u00e5 %d tr\u00e5de: %.1f s, %.1f skridt/s i alt%n",
+                bands, seed, threads, seconds, (double) replicas * steps / seconds);
+    }
+}
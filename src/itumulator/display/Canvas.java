@@ -2,13 +2,14 @@ package itumulator.display;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.swing.*;
 
@@ -20,11 +21,18 @@ import itumulator.display.utility.IsomorphicUtility;
 import itumulator.display.utility.Point2DInt;
 import itumulator.executable.DisplayInformation;
 import itumulator.executable.DynamicDisplayInformationProvider;
+import itumulator.world.DirtyTiles;
 import itumulator.world.Location;
 import itumulator.world.World;
 
 /**
  * Provides a canvas painting the various objects within our world. This is not relevant to continue the project.
+ * <p>
+ * Painting happens in three stages, each on its own thread, handing over to the next through a {@link SnapshotRing}: the simulator
+ * takes a snapshot of what changed in the world after each step, a render thread draws the images of the snapshots, and the Swing
+ * thread shows the images. The simulator thus only waits for the drawing when the ring of snapshots is full, and simulating the next
+ * step overlaps with drawing the previous ones.
+ * </p>
  */
 public class Canvas extends JPanel {
     private final static Color COLOR_EMPTY = Color.WHITE; // used as the color representing empty vlaues
@@ -32,27 +40,37 @@ public class Canvas extends JPanel {
     private final static int MS_PER_FRAME = 4; 
     private final static int SLOW_DOWN_FRAMES = 6; // used to reduce the queued amount of images (for render)
     private final static int IMAGE_CACHE_SIZE = 60; // to avoid memory overflow, correct this one
-    private final static int RENDER_PERMITS = 2; // to control how long the simulator awaits next simulate step
-    
+    private final static int SNAPSHOT_CAPACITY = 2; // to control how far the simulator runs ahead of the images shown
+    private final static Color COLOR_TILE = new Color(250, 250, 250); // used as the color of tiles without any objects
+
     private World world; 
     private Graphics graphics;
     private int size;
-    private boolean isomorphic;
+    private volatile boolean isomorphic;
     private BufferedImage isoBackgroundImage;
     private AnimationFactory af;
+    private Image gridImage; // the grid view as of the previous image, updated where tiles changed (by the render thread)
+    private boolean gridStarted; // whether a snapshot of every tile has been taken for the grid view
     private java.util.Map<Class, Color> colorMap;
-    List<Image> queue; // queue of images to render
+    private final SnapshotRing<Snapshot> snapshots; // taken by the simulator, drawn by the render thread
+    private final SnapshotRing<Shot> images; // drawn by the render thread, shown by the Swing thread
+    private final Object snapshotLock = new Object(); // lets the threads taking snapshots take turns
+    private volatile boolean swingWaiting; // whether the Swing thread waits for the snapshots to be drawn
+    private volatile int view; // counts the swaps between views, so images of the previous view are dropped
+    private volatile int thinTo; // the amount of images to reduce the queue to (0 if not requested)
+    private volatile boolean updateRequested; // whether the animations should start over from the world as it is (see takeIsoSnapshot)
+    private Image shown; // the image currently shown
+    private int stride = 1; // images taken per image shown while reducing the queue
+    private int thinning; // images left to take while reducing the queue
     private boolean lastView; // used to clear queue of images
     private ExecutorService executor;
-    private Semaphore renderPermits;
-    private int renderCount;
-    private int lastDelay;
     
     public Canvas(World world, int size, boolean startIso) {
         super();
 
         // 1 main thread
         // 1 simulator thread
+        // 1 render thread (drawing the snapshots taken by the simulator)
         // 1 java thread
         // 1 overlay rendering thread
         // 1 buffer for safety
@@ -69,13 +87,16 @@ public class Canvas extends JPanel {
 
         this.world = world;
         this.size = size;
-        this.renderPermits = new Semaphore(RENDER_PERMITS);
         this.af = new AnimationFactory(world);
         new Random();
         colorMap = new java.util.HashMap<>();
-        queue = new LinkedList<>();
+        snapshots = new SnapshotRing<>(SNAPSHOT_CAPACITY);
+        images = new SnapshotRing<>(IMAGE_CACHE_SIZE);
         BufferedImage img = ImageResourceCache.Instance().getImage("base");
         isoBackgroundImage = ImageUtility.getScaledImage(img, IsomorphicCoordinateFactory.Instance().getDisplaySize(), IsomorphicCoordinateFactory.Instance().getDisplaySize());
+        Thread renderer = new Thread(this::render, "itumulator-render");
+        renderer.setDaemon(true);
+        renderer.start();
         setIsomorphic(startIso);
     }
 
@@ -86,37 +107,22 @@ public class Canvas extends JPanel {
         return isomorphic;
     }
 
-    /**
-     * Acquire a new render permit (total permits acccording to RENDER_PERMITS)
-     */
-    public void acquireRenderPermit(){
-        try {
-            if(isomorphic) renderPermits.acquire();
-        } catch (Exception e){{
-            // error might occur when pausing when trying to acquire permit.
-        }}
-        
-    }
-
     /**
      * Boolean to control whether to render isomorphic or topdown
      * @param isomorphic sets the boolean
      */
     public void setIsomorphic(boolean isomorphic) {
         this.isomorphic = isomorphic;
-        // in case we are swapping view we want to clear the queue of images.
+        // request an update, made along with the next snapshot so it takes turns with the simulator taking snapshots.
+        if (isomorphic){
+            updateRequested = true;
+        }
+        // in case we are swapping view we want to drop the images of the previous view.
         if(lastView != isomorphic) {
             lastView = isomorphic;
-            queue.clear();
-            int available = renderPermits.availablePermits();
-            int missing = RENDER_PERMITS - available;
-            renderPermits.release( missing > 0 ? missing : 0);
+            view++;
             paintImage();
         }
-        // and request an update.
-        if (isomorphic){
-            af.requestUpdate();
-        }
     }
 
     /**
@@ -125,6 +131,11 @@ public class Canvas extends JPanel {
      * @param di the {@link DisplayInformation} to associate the type of object with.
      */
     public void setDisplayInformation(Class cl, DisplayInformation di){
+        updateDisplayInformation(cl, di);
+        world.getDirtyTiles().markAll(); // objects of the type might be drawn anywhere
+    }
+
+    private void updateDisplayInformation(Class<?> cl, DisplayInformation di){
         colorMap.put(cl, di.getColor());
         af.setDisplayInformation(cl, di);
     }
@@ -137,102 +148,187 @@ public class Canvas extends JPanel {
     }
 
     /**
-     * Paints the proper image depending on whether we are showing grid or isomorphic view.
+     * Paints the proper image depending on whether we are showing grid or isomorphic view. A snapshot of what changed in the
+     * world is taken right away, and drawn by the render thread afterwards. Waits while the render thread is behind by
+     * more than a couple of snapshots.
      * @param delay
      */
     public void paintImage(int delay) {
-        this.lastDelay = delay;
-        if (isomorphic){
+        boolean swing = SwingUtilities.isEventDispatchThread();
+        synchronized (snapshotLock) {
             try {
-                // Queue all images for parallel execution
-                List<Future<BufferedImage>> queue = executor.invokeAll(af.getImages(delay == 0 ? 1 : delay/MS_PER_FRAME));
-                
-                /** draw each of the images with the appropriate background using isomorphic helpers */
-                for (Future<BufferedImage> future : queue) {
-                    Image img = createImage(size, size);
-                    graphics = img.getGraphics();
-                    graphics.drawImage(isoBackgroundImage, 0,IsomorphicCoordinateFactory.Instance().getDisplaySize()/2, null);
-                    graphics.setColor(new Color(150, 210, 131));
-                    graphics.fillPolygon(IsomorphicUtility.getIsoPolygon((IsomorphicCoordinateFactory.Instance().getDisplaySize()/2), IsomorphicCoordinateFactory.Instance().getDisplaySize()/2, IsomorphicCoordinateFactory.Instance().getDisplaySize()/2, IsomorphicCoordinateFactory.Instance().getDisplaySize()/4));
-                    graphics.drawImage(future.get(), 0, 0,null);
-                    this.queue.add(img);
-                    repaint(); // bad practice, but appears to help rendering time on windows machines
-                }
-                System.gc();
+                swingWaiting = swing; // the render thread does not wait for the Swing thread to show images meanwhile
+                snapshots.awaitSpace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // e.g., the simulation was stopped (what changed is kept for the next snapshot)
+                return;
+            } finally {
+                swingWaiting = false;
+            }
+            try {
+                snapshots.offer(isomorphic ? takeIsoSnapshot(delay) : takeGridSnapshot());
             } catch (Exception e) {
-                // This can happen because we start tasks and
-                // futures from within the simulator thread
-                // and it can't stacktrace and locate
-                // the exception error
                 if (e.getMessage() != null){
                     if(e instanceof NullPointerException && e.getMessage().contains("img")){
                         // image not loaded yet...
                     } else {   
                         System.out.println("Canvas thread error: " + e.getMessage() );
                     }
-                    
                 }
             }
-        } else {
-            /** For the non isomorphic view we simply use the colors to paint each square */
-            try { 
-                Image img = createImage(size, size);
-                this.queue.add(img);
-                graphics = img.getGraphics();
-
-                graphics.setColor(COLOR_EMPTY);
-                graphics.fillRect(0, 0, size, size);
-                int tiles = world.getSize();
-                for (int y = tiles-1; y >= 0; y--) {
-                    for (int x = 0; x < tiles; x++) {
-                        Location l = new Location(x, y);
-                        Object o = world.getTile(l);
-                        drawGridElement(l, o);
-                    }
+        }
+    }
+
+    // determines the animations of the objects which changed since the previous snapshot (see AnimationFactory)
+    private Snapshot takeIsoSnapshot(int delay) {
+        if (updateRequested) {
+            updateRequested = false;
+            af.requestUpdate();
+        }
+        return new Snapshot(view, af.getImages(delay == 0 ? 1 : delay/MS_PER_FRAME));
+    }
+
+    // determines the colors of the tiles which changed since the previous snapshot (or of every tile for the first one)
+    private Snapshot takeGridSnapshot() {
+        DirtyTiles dirty = world.getDirtyTiles();
+        if (!gridStarted) {
+            gridStarted = true;
+            dirty.markAll();
+        }
+        int tiles = world.getSize();
+        int[] positions = null;
+        int[] colors;
+        if (dirty.isAll()) {
+            colors = new int[tiles * tiles];
+            for (int y = 0; y < tiles; y++) {
+                for (int x = 0; x < tiles; x++) {
+                    colors[y * tiles + x] = getGridColor(world.locationAt(x, y), world.getTile(x, y));
                 }
-                repaint();
-            } catch (Exception e){
-                // error might occur due to too fast image switching
+            }
+        } else {
+            positions = new int[dirty.size()];
+            colors = new int[dirty.size()];
+            for (int i = 0; i < dirty.size(); i++) {
+                Location l = world.locationAt(dirty.getX(i), dirty.getY(i));
+                positions[i] = l.getY() * tiles + l.getX();
+                colors[i] = getGridColor(l, world.getTile(l));
             }
         }
+        dirty.clear();
+        return new Snapshot(view, positions, colors);
     }
 
     /**
-     * Draws each element as a square
-     * @param l location to write the element on
-     * @param o the object to draw (used to determine color)
+     * Determines the color of a tile, i.e., of the object on top, where non blocking objects are drawn as flat squares below
+     * @param l location of the tile
+     * @param o the object on top of the tile
+     * @return the color as RGB
      */
-    private void drawGridElement(Location l, Object o) {
-        int tiles = world.getSize();
-        int pixelSize = size / tiles;
-        Point2DInt pixelPoint;
-        pixelPoint = new Point2DInt(pixelSize * l.getX(), pixelSize * l.getY());
-
-        graphics.setColor(new Color(250, 250, 250));
-        graphics.fillRect(pixelPoint.getX(), pixelPoint.getY(), pixelSize, pixelSize);
-        
-        // if the element is nonBlocking, draw it as a flat square
-        if (world.containsNonBlocking(l) && world.getNonBlocking(l) != o)
-            drawGridElement(l, world.getNonBlocking(l));
+    private int getGridColor(Location l, Object o) {
+        // if the element is nonBlocking, draw it as a flat square (which is hidden by the object on top, if any)
+        if (o == null && world.containsNonBlocking(l))
+            o = world.getNonBlocking(l);
+        if (o == null)
+            return COLOR_TILE.getRGB();
 
         // if a dynamic display information provider is used, dynamically determine the color
         if (o instanceof DynamicDisplayInformationProvider){
-                setDisplayInformation(o.getClass(), ((DynamicDisplayInformationProvider)o).getInformation());
+                updateDisplayInformation(o.getClass(), ((DynamicDisplayInformationProvider)o).getInformation());
         }
 
         // otherwise, we simply draw it (if it is given a color)
-        if (o != null){
-            if (colorMap.containsKey(o.getClass())) {
-                graphics.setColor(colorMap.get(o.getClass()));
-            } else {
-                graphics.setColor(COLOR_NON_PAINTABLE);
+        if (colorMap.containsKey(o.getClass())) {
+            return colorMap.get(o.getClass()).getRGB();
+        }
+        return COLOR_NON_PAINTABLE.getRGB();
+    }
+
+    // Rendering (on the render thread)
+
+    private void render() {
+        try {
+            while (true) {
+                Snapshot snapshot = snapshots.take();
+                try {
+                    if (snapshot.sets != null) {
+                        if (snapshot.view == view) renderIso(snapshot); // otherwise taken before swapping view
+                    } else {
+                        renderGrid(snapshot);
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    // error might occur due to too fast image switching
+                    if (e.getMessage() != null && !(e instanceof NullPointerException && e.getMessage().contains("img"))) {
+                        System.out.println("Canvas thread error: " + e.getMessage() );
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // the render thread is a daemon, so it is never interrupted in practice
+        }
+    }
+
+    private void renderIso(Snapshot snapshot) throws Exception {
+        // Queue all images for parallel execution
+        List<Future<BufferedImage>> futures = executor.invokeAll(snapshot.sets);
+        
+        /** draw each of the images with the appropriate background using isomorphic helpers */
+        for (Future<BufferedImage> future : futures) {
+            Image img = createImage(size, size);
+            graphics = img.getGraphics();
+            graphics.drawImage(isoBackgroundImage, 0,IsomorphicCoordinateFactory.Instance().getDisplaySize()/2, null);
+            graphics.setColor(new Color(150, 210, 131));
+            graphics.fillPolygon(IsomorphicUtility.getIsoPolygon((IsomorphicCoordinateFactory.Instance().getDisplaySize()/2), IsomorphicCoordinateFactory.Instance().getDisplaySize()/2, IsomorphicCoordinateFactory.Instance().getDisplaySize()/2, IsomorphicCoordinateFactory.Instance().getDisplaySize()/4));
+            graphics.drawImage(future.get(), 0, 0,null);
+            show(img, snapshot.view);
+        }
+    }
+
+    /** For the non isomorphic view we simply use the colors to paint each square (only redrawing the squares which changed) */
+    private void renderGrid(Snapshot snapshot) {
+        int tiles = world.getSize();
+        if (gridImage == null) gridImage = createImage(size, size);
+        graphics = gridImage.getGraphics();
+
+        if (snapshot.positions == null) {
+            graphics.setColor(COLOR_EMPTY);
+            graphics.fillRect(0, 0, size, size);
+            for (int i = 0; i < snapshot.colors.length; i++) {
+                drawGridElement(i % tiles, i / tiles, snapshot.colors[i]);
             }
-            int x = pixelPoint.getX();
-            int y = pixelPoint.getY();
-            int width = pixelSize;
-            int height = pixelSize;
-            graphics.fillRect(x, y, width, height);
+        } else {
+            for (int i = 0; i < snapshot.positions.length; i++) {
+                drawGridElement(snapshot.positions[i] % tiles, snapshot.positions[i] / tiles, snapshot.colors[i]);
+            }
+        }
+
+        Image img = createImage(size, size);
+        img.getGraphics().drawImage(gridImage, 0, 0, null);
+        show(img, snapshot.view);
+    }
+
+    /**
+     * Draws each element as a square
+     * @param x coordinate of the tile to draw
+     * @param y coordinate of the tile to draw
+     * @param rgb the color of the tile
+     */
+    private void drawGridElement(int x, int y, int rgb) {
+        int pixelSize = size / world.getSize();
+        Point2DInt pixelPoint = new Point2DInt(pixelSize * x, pixelSize * y);
+        graphics.setColor(new Color(rgb));
+        graphics.fillRect(pixelPoint.getX(), pixelPoint.getY(), pixelSize, pixelSize);
+    }
+
+    // hands an image over to the Swing thread, waiting while too many images are queued (unless the Swing thread waits for us)
+    private void show(Image img, int view) {
+        Shot shot = new Shot(img, view);
+        while (!images.offer(shot)) {
+            if (swingWaiting || view != this.view) return; // dropped, as it would not be shown (in time) anyway
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(MS_PER_FRAME));
         }
+        repaint();
     }
 
     /**
@@ -240,40 +336,69 @@ public class Canvas extends JPanel {
      */
     @Override
     protected void paintComponent(Graphics g) {
-        if(!queue.isEmpty()){
-            reduceImgQueue(IMAGE_CACHE_SIZE); // in case of issues, maintain reduction of image queue
-            Image img = queue.get(0);
-            if(queue.size() > 1) queue.remove(0);
-            g.drawImage(img, (this.getWidth()/2)-(size/2), (this.getHeight()/2)-(size/2), null);
-            
-            if(isomorphic){
-                renderCount++;
-                if(renderCount >= (lastDelay == 0 ? 0 : lastDelay / MS_PER_FRAME)){
-                    renderCount = 0;
-                    if(renderPermits.availablePermits() < RENDER_PERMITS) renderPermits.release();
-                }
+        int amount = thinTo;
+        if (amount > 0) {
+            thinTo = 0;
+            int queued = images.size();
+            if (queued > amount*2) {
+                stride = queued / amount;
+                thinning = queued;
             }
-            
         }
-            
+
+        Shot shot = null;
+        for (int taken = 0; taken < stride; taken++) {
+            Shot next = images.poll();
+            if (next == null) break;
+            if (next.view == view) shot = next; // otherwise drawn before swapping view
+            thinning--;
+        }
+        if (thinning <= 0) stride = 1;
+        if (shot != null) shown = shot.image;
+
+        if (shown != null) {
+            g.drawImage(shown, (this.getWidth()/2)-(size/2), (this.getHeight()/2)-(size/2), null);
+        }
+        if (!images.isEmpty()) repaint(); // keep showing the images queued
     }
 
     /**
      * To speed up the process of pausing, you can reduce the amount of remaining frames (according to SLOW_DOWN_FRAMES).
      */
     public void reduceImgQueue(){
-        reduceImgQueue(SLOW_DOWN_FRAMES);
+        thinTo = SLOW_DOWN_FRAMES; // carried out by the Swing thread, which takes the images
     }
 
-    private void reduceImgQueue(int amount){
-        int size = queue.size();
-        if( size > amount*2){
-            List<Image> imgs = new LinkedList<>();
-            int nr = (size / (amount));
-            for(int i = 0; i < size; i += nr){
-                imgs.add(queue.get(i));
-            }
-            queue = imgs;
+    // A snapshot of what changed in the world, for either view
+    private static final class Snapshot {
+        private final int view;
+        private final List<Callable<BufferedImage>> sets; // the frames to draw for the isomorphic view
+        private final int[] positions; // the tiles changed for the grid view, or null if every tile
+        private final int[] colors; // the colors of the tiles changed
+
+        Snapshot(int view, List<Callable<BufferedImage>> sets) {
+            this.view = view;
+            this.sets = sets;
+            this.positions = null;
+            this.colors = null;
+        }
+
+        Snapshot(int view, int[] positions, int[] colors) {
+            this.view = view;
+            this.sets = null;
+            this.positions = positions;
+            this.colors = colors;
+        }
+    }
+
+    // An image drawn for a view
+    private static final class Shot {
+        private final Image image;
+        private final int view;
+
+        Shot(Image image, int view) {
+            this.image = image;
+            this.view = view;
         }
     }
 
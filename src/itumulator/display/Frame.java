@@ -142,7 +142,16 @@ public class Frame extends JFrame {
     }
 
     public void updateStepLabel(int steps) {
-        textField.setText("Steps " + steps);
+        updateStepLabel(steps, false);
+    }
+
+    /**
+     * Shows the amount of steps executed, and whether the latest step is still in progress (see {@link Simulator#setStepBudget(int)}).
+     * @param steps executed (including the step in progress).
+     * @param inProgress true if not every actor has acted yet in the latest step.
+     */
+    public void updateStepLabel(int steps, boolean inProgress) {
+        textField.setText("Steps " + steps + (inProgress ? " (in progress)" : ""));
 
         setTextFieldWidth(textField);
         textField.setSize(textField.getPreferredSize());
@@ -0,0 +1,110 @@
+package itumulator.display;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded ring buffer handing items from a single producer thread to a single consumer thread without locking, e.g., the snapshots
+ * of the world taken by the simulator for the render thread to draw. Either side only waits (parks) when the ring is full or empty,
+ * respectively, and is woken by the other side once that changes. Several threads may produce as long as they take turns (e.g.,
+ * by synchronizing), and the same goes for consuming.
+ *
+ * @param <T> the type of the items handed over.
+ */
+final class SnapshotRing<T> {
+    private final Object[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // the next item to take (only moved by the consumer)
+    private final AtomicLong tail = new AtomicLong(); // the next slot to put in (only moved by the producer)
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+
+    /**
+     * @param capacity the amount of items the ring holds (rounded up to a power of two).
+     * @throws IllegalArgumentException if the capacity is less than 1.
+     */
+    SnapshotRing(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1");
+        int slots = Integer.highestOneBit(capacity);
+        if (slots < capacity) slots <<= 1;
+        this.slots = new Object[slots];
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Puts an item in the ring unless it is full (called by the producer).
+     * @param item to put.
+     * @return true if the item was put, false if the ring is full.
+     */
+    boolean offer(T item) {
+        long t = tail.get();
+        if (t - head.get() == slots.length) return false;
+        slots[(int) t & mask] = item;
+        tail.set(t + 1);
+        Thread consumer = waitingConsumer;
+        if (consumer != null) LockSupport.unpark(consumer);
+        return true;
+    }
+
+    /**
+     * Waits until the ring is not full (called by the producer).
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void awaitSpace() throws InterruptedException {
+        while (isFull()) {
+            waitingProducer = Thread.currentThread();
+            if (isFull()) LockSupport.park(this); // rechecked, as the consumer might have taken an item before seeing us wait
+            waitingProducer = null;
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Takes the next item unless the ring is empty (called by the consumer).
+     * @return the next item, or null if the ring is empty.
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long h = head.get();
+        if (h == tail.get()) return null;
+        int slot = (int) h & mask;
+        T item = (T) slots[slot];
+        slots[slot] = null;
+        head.set(h + 1);
+        Thread producer = waitingProducer;
+        if (producer != null) LockSupport.unpark(producer);
+        return item;
+    }
+
+    /**
+     * Takes the next item, waiting until there is one (called by the consumer).
+     * @return the next item.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    T take() throws InterruptedException {
+        while (true) {
+            T item = poll();
+            if (item != null) return item;
+            waitingConsumer = Thread.currentThread();
+            if (isEmpty()) LockSupport.park(this);
+            waitingConsumer = null;
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /**
+     * @return the amount of items in the ring (which the other side may change meanwhile).
+     */
+    int size() {
+        long h = head.get();
+        return (int) Math.min(tail.get() - h, slots.length);
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    boolean isFull() {
+        return size() == slots.length;
+    }
+}
@@ -20,13 +20,18 @@ import itumulator.display.animation.components.StillAnimation;
 import itumulator.executable.DisplayInformation;
 import itumulator.executable.DynamicDisplayInformationProvider;
 import itumulator.world.Location;
+import itumulator.world.MutationJournal;
 import itumulator.world.World;
 
 /**
  * The AnimationFactory is used to determine which animations should be used for individual objects. It does so by comparing e (previous entities and their location in {@link World}) to e' (latest set of entitites and their location in {@link World}).
  * By comparing the individual objects changes in location (and whether they still exist / are in the world) allow us to determine which animations to use.
+ * Rather than copying every entity of the world for each image, e' is kept up to date from the {@link MutationJournal} of the world, and e only holds the
+ * previous location of the objects which changed since the last images were generated.
  */
 public class AnimationFactory {
+    private static final Location ABSENT = new Location(-1, -1); // marks objects which did not exist in e
+
     private World world;
     private boolean isDay;
     private boolean isDayPrime;
@@ -39,17 +44,25 @@ public class AnimationFactory {
         this.world = world;
         objectMap = new HashMap<>();
         displayMap = new HashMap<>();
-        e = world.getEntities();
+        e = new HashMap<>();
+        ePrime = world.getEntities();
         isDay = world.isDay();
+        world.addMutationListener(this::applyMutations);
     }
 
     public void setDisplayInformation(Class cl, DisplayInformation di){
         displayMap.put(cl, di);
     }
 
+    // the journal is flushed before taking the lock of the factory, as flushing locks the journal and then (through applyMutations)
+    // the factory, so taking them the other way around could deadlock with the simulator flushing after a step
     public void requestUpdate(){
-        e = world.getEntities();
-        isDay = world.isDay();
+        world.flushJournal();
+        synchronized (this) {
+            world.getEntities(ePrime);
+            e.clear();
+            isDay = world.isDay();
+        }
     }
 
     /**
@@ -58,28 +71,28 @@ public class AnimationFactory {
      * @return a list of callable bufferedimages, generatable
      */
     public List<Callable<BufferedImage>> getImages(int length){
-        ePrime = world.getEntities();
+        world.flushJournal(); // bring e' up to date (before taking the lock of the factory, see requestUpdate)
+        return animate(length);
+    }
+
+    private synchronized List<Callable<BufferedImage>> animate(int length){
         isDayPrime = world.isDay();
-        
-        if(e == null) return new ArrayList<>();
-        
 
         List<Animation> animations = new ArrayList<>();
 
-        for (Entry<Object, Location> kvp : e.entrySet()) {
+        for (Entry<Object, Location> kvp : ePrime.entrySet()) {
             Object k = kvp.getKey();
-            Location l = kvp.getValue();
+            Location lPrime = kvp.getValue();
+            // objects which did not change remain where they were
+            Location l = e.containsKey(k) ? e.get(k) : lPrime;
             ObjectInformation oi = getObjectInformation(k);
-            
-            // if the object has been deleted, do hide animation
-            if (!ePrime.containsKey(k)){
-                // and that it hasn't already been hidden:
-                if(e.get(k) != null) animations.add(new HideAnimation(oi, l, length));
+
+            // if the element is completely new, do an appear animation (if it isn't hidden of course)
+            if (l == ABSENT){
+                if(lPrime != null) animations.add(new AppearAnimation(oi, lPrime, length));
                 continue;
-            } 
+            }
 
-            Location lPrime = ePrime.get(k);
-            
             // if the object has been put on the map do an appear animation.
             if (l == null && lPrime != null){
                 animations.add(new AppearAnimation(oi, lPrime, length));
@@ -105,14 +118,14 @@ public class AnimationFactory {
             animations.add(new MoveAnimation(oi, l, length, lPrime));
         }
 
-        // if the element is completely new, also do an appear animation (if it isn't hidden of course)
-        for (Entry<Object, Location> kvp : ePrime.entrySet()){
+        // if the object has been deleted, do hide animation
+        for (Entry<Object, Location> kvp : e.entrySet()){
             Object k = kvp.getKey();
             Location l = kvp.getValue();
-            ObjectInformation oi = getObjectInformation(k);
-            if (!e.containsKey(k)){
-                if(l != null) animations.add(new AppearAnimation(oi, l, length));
-            }
+            if (ePrime.containsKey(k)) continue;
+            // given that it existed and hasn't already been hidden:
+            if(l != ABSENT && l != null) animations.add(new HideAnimation(getObjectInformation(k), l, length));
+            objectMap.remove(k); // it will not be rendered again
         }
 
         // sort the animations so that the elements in the front are rendered first
@@ -141,12 +154,24 @@ public class AnimationFactory {
         }
 
         // update e to e'
-        if(ePrime != null) e = ePrime;
+        e.clear();
         isDay = isDayPrime;
-        ePrime = null;
         return sets;
     }
 
+    // Keeps e' up to date, remembering the location each changed object had in e
+    private synchronized void applyMutations(MutationJournal journal){
+        for (int i = 0; i < journal.size(); i++) {
+            Object k = journal.getEntity(i);
+            if (!e.containsKey(k)) e.put(k, ePrime.containsKey(k) ? ePrime.get(k) : ABSENT);
+            if (journal.getKind(i) == MutationJournal.DELETE){
+                ePrime.remove(k);
+            } else {
+                ePrime.put(k, journal.getTo(i));
+            }
+        }
+    }
+
     //  Helper method for determining object information
     private ObjectInformation getObjectInformation(Object obj){
         ObjectInformation oi;
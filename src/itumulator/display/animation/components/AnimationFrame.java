@@ -18,6 +18,8 @@ import itumulator.display.utility.Point2DInt;
 public class AnimationFrame{
     private final float SHADOW_OPACITY = 0.5f;
     private ObjectInformation oi;
+    private BufferedImage objectImage; // of the object, as it looked when the frame was created
+    private Color objectColor;
     private Point2DInt pixelPoint;
     private AlphaComposite alphaComp;
     private float opfloat;
@@ -34,6 +36,8 @@ public class AnimationFrame{
 
     public AnimationFrame(ObjectInformation oi, Point2DInt pixelPoint, int opacity){
         this.oi = oi;
+        this.objectImage = oi.getImage(); // the object may change while the frame is drawn on another thread
+        this.objectColor = oi.getColor();
         this.pixelPoint = pixelPoint;
         opfloat = opacity > 0 ? (float)((opacity * 1.0)/255) : 0f;
         alphaComp = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opfloat);
@@ -54,9 +58,9 @@ public class AnimationFrame{
             // We assume draw to exact location 
             g.drawImage(img, pixelPoint.getX(), pixelPoint.getY(), null);
         } else {
-            if (oi.getImage() != null){
+            if (objectImage != null){
                 if (oi.isGroundObject()){
-                    BufferedImage scaledImg = IsomorphicCoordinateFactory.Instance().getScaledImage(oi.getImage());
+                    BufferedImage scaledImg = IsomorphicCoordinateFactory.Instance().getScaledImage(objectImage);
 
                     double rotRadians = Math.toRadians(45);
 
@@ -90,7 +94,7 @@ public class AnimationFrame{
                         pixelPoint.getY(),
                          null);
                 } else {
-                    BufferedImage scaledImg = IsomorphicCoordinateFactory.Instance().getScaledImage(oi.getImage());
+                    BufferedImage scaledImg = IsomorphicCoordinateFactory.Instance().getScaledImage(objectImage);
                     // Draw shadow oval
                     float shadow = SHADOW_OPACITY * opfloat - 0.1f;
                     ((Graphics2D)g).setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, shadow > 0 ? shadow : 0));
@@ -116,7 +120,7 @@ public class AnimationFrame{
                     }
                 } else {
                     // Draw polygon with color
-                    g.setColor(oi.getColor());
+                    g.setColor(objectColor);
                     g.fillPolygon(IsomorphicUtility.getIsoPolygon(pixelPoint.getX(), pixelPoint.getY()+(int)tileHeight/2, (int)tileHeight, (int)tileHeight/2));
             }
         }
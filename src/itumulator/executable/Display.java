@@ -0,0 +1,35 @@
+package itumulator.executable;
+
+import itumulator.simulator.Simulator;
+
+/**
+ * Shows the progress of a {@link Simulator}, e.g., in the graphical interface set up by a {@link Program}. The simulator only
+ * knows its display through this interface, so simulating does not depend on how (or whether) the world is drawn.
+ * The methods are called by the thread simulating.
+ */
+public interface Display {
+
+    /**
+     * Shows whether it is day or night, called once a new step is started.
+     * @param isDay true if it is day in the world.
+     */
+    public void showDayNight(boolean isDay);
+
+    /**
+     * Shows the amount of steps executed, and whether the latest step is still in progress (see {@link Simulator#setStepBudget(int)}).
+     * @param steps executed (including the step in progress).
+     * @param inProgress true if not every actor has acted yet in the latest step.
+     */
+    public void showSteps(int steps, boolean inProgress);
+
+    /**
+     * Paints the current state of the world. May wait while the display is behind painting the previous steps.
+     * @param delay between steps in ms (when using {@link Simulator#run() run}).
+     */
+    public void paint(int delay);
+
+    /**
+     * Lets the display drop some of the images it has yet to show, called once {@link Simulator#run() run} is stopped.
+     */
+    public void reduceQueue();
+}
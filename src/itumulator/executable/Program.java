@@ -1,5 +1,7 @@
 package itumulator.executable;
 
+import java.awt.GraphicsEnvironment;
+
 import itumulator.display.Canvas;
 import itumulator.display.Frame;
 import itumulator.display.utility.IsomorphicCoordinateFactory;
@@ -10,6 +12,8 @@ import itumulator.world.World;
  * Sets up the program to run simulations. The Program will handle creation of {@link World}, {@link Simulator}, {@link Canvas}, {@link Frame} and correctly
  * connect these. As such, one can instantiate a single {@link Program} and access relevant objects through this, as well as running the simulation.
  * The Program contains two views (changable by clicking the topic right button). It defaults to the isomorphic 2.5d perspective, unless the size of the map exceeds 20.
+ * Programs can also be headless (see {@link #Program(int)}), in which case no graphical interface is created and nothing is drawn.
+ * Steps of crowded worlds can be spread over several rounds (see {@link #setStepBudget(int)}) so the window keeps updating.
  */
 public class Program {
     private final int MAX_2D_SIZE_DEFAULT = 20;
@@ -27,14 +31,38 @@ public class Program {
      */
     public Program(int size, int display_size, int delay){
         this.size = size;
-        IsomorphicCoordinateFactory.setupFactory(display_size, size);
         w = new World(size);
+        if (GraphicsEnvironment.isHeadless()) {
+            // no display available (e.g., when running tests on a server), so simulate without the graphical interface
+            s = new Simulator(w);
+            return;
+        }
+        IsomorphicCoordinateFactory.setupFactory(display_size, size);
         boolean startIso = size <= MAX_2D_SIZE_DEFAULT;
 
         c = new Canvas(w, display_size, startIso);
-        s = new Simulator(w, c, delay);
+        s = new Simulator(w, new FrameDisplay(), delay);
         f = new Frame(c, s, display_size, startIso);
-        s.setFrame(f);
+    }
+
+    /**
+     * Produces a new headless program, i.e., one without a graphical interface. Simulations are executed exactly as they would be
+     * otherwise, but nothing is drawn, which allows running simulations without a display (e.g., for batch runs and tests).
+     * This is also what the other constructor produces when no display is available.
+     * @param size the size of the world (will be square).
+     */
+    public Program(int size){
+        this.size = size;
+        w = new World(size);
+        s = new Simulator(w);
+    }
+
+    /**
+     * Determines whether the program is headless (see {@link #Program(int)}).
+     * @return true if the program has no graphical interface.
+     */
+    public boolean isHeadless(){
+        return c == null;
     }
     
     /**
@@ -55,7 +83,7 @@ public class Program {
 
     /**
      * Provides the canvas itself, responsible for drawing contents (Not necessary to execute the simulation).
-     * @return Canvas.
+     * @return Canvas (null if the program is headless).
      */
     public Canvas getCanvas(){
         return c;
@@ -63,7 +91,7 @@ public class Program {
 
     /**
      * Provides the frame itself, responsible for buttons (Not necessary to execute the simulation).
-     * @return Frame.
+     * @return Frame (null if the program is headless).
      */
     public Frame getFrame(){
         return f;
@@ -78,9 +106,10 @@ public class Program {
     }
 
     /**
-     * Used to initially show the graphical interface.
+     * Used to initially show the graphical interface (does nothing if the program is headless).
      */
     public void show(){
+        if (isHeadless()) return;
         f.setVisible(true);
         c.paintImage();
     }
@@ -93,6 +122,15 @@ public class Program {
         s.simulate();
     }
 
+    /**
+     * Executes a number of 'steps' of simulation back to back.
+     * @param steps the amount of steps to execute.
+     * @return the throughput achieved in steps per second.
+     */
+    public double simulate(int steps){
+        return s.simulate(steps);
+    }
+
     /**
      * Executes rounds of simulation using the delay (in ms) given.
      */
@@ -108,6 +146,15 @@ public class Program {
         s.setDelay(delay);
     }
 
+    /**
+     * Adjust the time (in ms) each round of simulation may spend on the actors before the rest of the step is left for the next
+     * round (see {@link Simulator#setStepBudget(int)}). Defaults to 0 (no limit).
+     * @param budget in ms
+     */
+    public void setStepBudget(int budget){
+        s.setStepBudget(budget);
+    }
+
     /**
      * Get the current delay (in ms)
      * @return int.
@@ -122,7 +169,31 @@ public class Program {
      * @param di the {@link DisplayInformation} to associate the type of object with.
      */
     public void setDisplayInformation(Class cl, DisplayInformation di){
+        if (isHeadless()) return;
         c.setDisplayInformation(cl, di);
     }
 
+    // shows the simulation on the canvas and frame of the program
+    private final class FrameDisplay implements Display {
+        @Override
+        public void showDayNight(boolean isDay) {
+            if (f != null) f.updateDayNightLabel(isDay); // the frame is created after the simulator
+        }
+
+        @Override
+        public void showSteps(int steps, boolean inProgress) {
+            if (f != null) f.updateStepLabel(steps, inProgress);
+        }
+
+        @Override
+        public void paint(int delay) {
+            c.paintImage(delay);
+        }
+
+        @Override
+        public void reduceQueue() {
+            c.reduceImgQueue();
+        }
+    }
+
 }
@@ -0,0 +1,155 @@
+package itumulator.simulator;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how much memory is allocated by each step of a {@link Simulator}, and by the actors of each class during the steps.
+ * Measurements use the allocation counter the JVM keeps for each thread letting actors act, so nothing is sampled or estimated.
+ * Attach to a simulator using {@link Simulator#setAllocationTelemetry(AllocationTelemetry)}.
+ */
+public class AllocationTelemetry {
+    private final com.sun.management.ThreadMXBean threads;
+    private final int logInterval;
+    private final Map<Class<?>, long[]> perClass; // class -> {bytes, acts}
+    private long steps;
+    private long totalBytes;
+    private long lastStepBytes;
+    private long intervalBytes; // allocated since the last log line
+
+    /**
+     * Creates telemetry which periodically logs a summary line.
+     * @param logInterval the amount of steps between log lines (0 to never log).
+     * @throws IllegalArgumentException
+     *          if the interval is negative.
+     * @throws IllegalStateException
+     *          if the JVM cannot measure allocations (see {@link #isSupported()}).
+     */
+    public AllocationTelemetry(int logInterval) {
+        if (logInterval < 0) throw new IllegalArgumentException("Log interval cannot be a negative number");
+        if (!isSupported()) throw new IllegalStateException("Allocation measurements are not supported by this JVM");
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.threads.setThreadAllocatedMemoryEnabled(true);
+        this.logInterval = logInterval;
+        this.perClass = new HashMap<>();
+    }
+
+    /**
+     * Determines whether the JVM can measure the memory allocated by a thread.
+     * @return true if telemetry can be created.
+     */
+    public static boolean isSupported() {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t && t.isThreadAllocatedMemorySupported();
+    }
+
+    /**
+     * @return the amount of steps measured.
+     */
+    public synchronized long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the bytes allocated by all steps measured.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return the bytes allocated by the latest step measured.
+     */
+    public synchronized long getLastStepBytes() {
+        return lastStepBytes;
+    }
+
+    /**
+     * Provides the bytes allocated by the actors of each class (while acting) across all steps measured.
+     * @return a copy of the totals per actor class.
+     */
+    public synchronized Map<Class<?>, Long> getBytesByClass() {
+        Map<Class<?>, Long> copy = new HashMap<>();
+        for (Map.Entry<Class<?>, long[]> entry : perClass.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return copy;
+    }
+
+    /**
+     * Provides how many times the actors of each class have acted across all steps measured.
+     * @return a copy of the counts per actor class.
+     */
+    public synchronized Map<Class<?>, Long> getActsByClass() {
+        Map<Class<?>, Long> copy = new HashMap<>();
+        for (Map.Entry<Class<?>, long[]> entry : perClass.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue()[1]);
+        }
+        return copy;
+    }
+
+    /**
+     * Forgets everything measured so far.
+     */
+    public synchronized void reset() {
+        perClass.clear();
+        steps = 0;
+        totalBytes = 0;
+        lastStepBytes = 0;
+        intervalBytes = 0;
+    }
+
+    /**
+     * Provides a one line summary of the measurements, listing the actor classes by the bytes they allocated (most first).
+     * @return the summary.
+     */
+    public synchronized String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Allocations after ").append(steps).append(" steps: ")
+          .append(format(steps == 0 ? 0 : totalBytes / steps)).append("/step");
+        List<Map.Entry<Class<?>, long[]>> entries = new ArrayList<>(perClass.entrySet());
+        entries.sort(Collections.reverseOrder((a, b) -> Long.compare(a.getValue()[0], b.getValue()[0])));
+        for (Map.Entry<Class<?>, long[]> entry : entries) {
+            long[] counts = entry.getValue();
+            sb.append(", ").append(entry.getKey().getSimpleName()).append(' ')
+              .append(format(counts[1] == 0 ? 0 : counts[0] / counts[1])).append("/act");
+        }
+        return sb.toString();
+    }
+
+    // Measurements (called by the simulator, where actors may be measured on several threads when acting in parallel)
+
+    long allocatedBytes() {
+        return threads.getCurrentThreadAllocatedBytes();
+    }
+
+    synchronized void actorFinished(Class<?> cl, long bytes) {
+        long[] counts = perClass.get(cl);
+        if (counts == null) {
+            counts = new long[2];
+            perClass.put(cl, counts);
+        }
+        counts[0] += bytes;
+        counts[1]++;
+    }
+
+    synchronized void stepFinished(long bytes) {
+        steps++;
+        totalBytes += bytes;
+        lastStepBytes = bytes;
+        intervalBytes += bytes;
+        if (logInterval > 0 && steps % logInterval == 0) {
+            System.out.println(getSummary() + " (last " + logInterval + " steps: " + format(intervalBytes / logInterval) + "/step)");
+            intervalBytes = 0;
+        }
+    }
+
+    private static String format(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,27 @@
+package itumulator.simulator;
+
+import itumulator.world.Location;
+import itumulator.world.World;
+
+/**
+ * An {@link Actor} which can act in two phases, as done when the simulator commits intents (see {@link Simulator#setIntentCommit(boolean)}).
+ * First, every intent actor plans its actions by reading the world, which is read-only meanwhile, and recording what it intends to do.
+ * Afterwards the intents of all actors are carried out one at a time in a fixed order, where an intent conflicting with an earlier one
+ * (e.g., moving onto a tile which was just taken) is dropped. The outcome thus does not depend on the order in which actors planned,
+ * so actors may plan in parallel, and repeating a run with the same randomness gives the same result.
+ * <p>
+ * While planning, an actor may modify its own state but not the world nor any other object (use {@link Intents#update} instead).
+ * The 'current location' of the world is not set while planning, so use the location given instead.
+ * </p>
+ */
+public interface IntentActor extends Actor {
+
+    /**
+     * The method called whenever the actor needs to plan its actions when the simulator commits intents.
+     * @param world to read (but not modify) the state of.
+     * @param location of the actor, or null if it is not on the map.
+     * @param intents to record the intended actions in.
+     */
+    public void plan(World world, Location location, Intents intents);
+
+}
@@ -0,0 +1,103 @@
+package itumulator.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import itumulator.world.EntityCursor;
+import itumulator.world.World;
+
+/**
+ * Lets the actors of a world act in two phases (see {@link IntentActor}). Every intent actor first plans while the world is read-only,
+ * where the objects of the world are split into one share per thread when acting in parallel. The intents of the shares are then
+ * committed in order, so the outcome is the same regardless of the amount of threads. Every other actor acts afterwards, one at a time.
+ */
+final class IntentStepper {
+    private Intents[] intents = new Intents[0]; // per share
+    private final List<List<Actor>> others = new ArrayList<>(); // per share, actors acting after the commit
+    private long dropped;
+
+    /**
+     * @return the amount of intents dropped due to conflicts so far.
+     */
+    long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Lets every actor of the world act once (actors deleted before their turn do not act, and actors added do not act until the next call).
+     * @param world to act in.
+     * @param parallel to plan in parallel with, or null to plan on the calling thread.
+     * @param telemetry to measure the actors with, or null.
+     * @param profiler to time the actors with, or null.
+     * @return the bytes allocated by other threads than the calling thread (only measured when given telemetry).
+     */
+    long actAll(World world, ParallelStepper parallel, AllocationTelemetry telemetry, StepProfiler profiler) {
+        int shares = parallel == null ? 1 : parallel.getThreads();
+        ensureShares(shares);
+        EntityCursor[] cursors = world.activationCursors(shares);
+        long poolBytes = 0;
+        try {
+            world.setReadOnly(true);
+            try {
+                if (parallel == null) {
+                    plan(world, cursors[0], 0, telemetry, profiler);
+                } else {
+                    poolBytes = parallel.forEachThread(i -> plan(world, cursors[i], i, telemetry, profiler), telemetry);
+                }
+            } finally {
+                world.setReadOnly(false);
+            }
+
+            Set<Object> claimed = Intents.claimedSet();
+            for (int i = 0; i < shares; i++) {
+                dropped += intents[i].commit(world, claimed);
+            }
+
+            for (int i = 0; i < shares; i++) {
+                for (Actor actor : others.get(i)) {
+                    if (!world.contains(actor)) continue;
+                    world.setCurrentLocation(world.isOnTile(actor) ? world.getLocation(actor) : null);
+                    ParallelStepper.act(actor, world, telemetry, profiler);
+                }
+            }
+        } finally {
+            for (int i = 0; i < shares; i++) {
+                intents[i].clear();
+                others.get(i).clear();
+            }
+        }
+        return poolBytes;
+    }
+
+    private void plan(World world, EntityCursor cursor, int share, AllocationTelemetry telemetry, StepProfiler profiler) {
+        Intents intents = this.intents[share];
+        List<Actor> others = this.others.get(share);
+        while (cursor.next()) {
+            Object o = cursor.entity();
+            if (o instanceof IntentActor actor) {
+                if (telemetry == null && profiler == null) {
+                    intents.plan(actor, world, cursor.location());
+                } else {
+                    long before = telemetry == null ? 0 : telemetry.allocatedBytes();
+                    long start = profiler == null ? 0 : System.nanoTime();
+                    intents.plan(actor, world, cursor.location());
+                    if (profiler != null) profiler.actorFinished(o.getClass(), System.nanoTime() - start);
+                    if (telemetry != null) telemetry.actorFinished(o.getClass(), telemetry.allocatedBytes() - before);
+                }
+            } else if (o instanceof Actor actor) {
+                others.add(actor);
+            }
+        }
+    }
+
+    private void ensureShares(int shares) {
+        if (intents.length < shares) {
+            Intents[] grown = new Intents[shares];
+            System.arraycopy(intents, 0, grown, 0, intents.length);
+            for (int i = intents.length; i < shares; i++) grown[i] = new Intents();
+            intents = grown;
+        }
+        while (others.size() < shares) others.add(new ArrayList<>());
+    }
+}
@@ -0,0 +1,223 @@
+package itumulator.simulator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import itumulator.world.Location;
+import itumulator.world.NonBlocking;
+import itumulator.world.World;
+
+/**
+ * Records what {@link IntentActor intent actors} intend to do while planning, so the intents can be carried out afterwards in a
+ * single commit (see {@link Simulator#setIntentCommit(boolean)}). Intents are carried out in the order the actors planned in
+ * (i.e., the order of the objects of the world), and the intents of each actor in the order they were recorded.
+ * An intent conflicting with the world as modified by earlier intents is dropped, e.g.,
+ * <ul>
+ * <li>moving or spawning onto a tile whose layer has already been taken,</li>
+ * <li>eating or killing an object which another actor has already eaten or killed during the step, and</li>
+ * <li>any intent of an actor which has been deleted (e.g., killed) by an earlier intent.</li>
+ * </ul>
+ */
+public final class Intents {
+    private static final byte MOVE = 0;
+    private static final byte SPAWN = 1;
+    private static final byte DELETE = 2;
+    private static final byte EAT = 3;
+    private static final byte KILL = 4;
+    private static final byte UPDATE = 5;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] kinds;
+    private Object[] actors; // the actor recording each intent
+    private Object[] targets;
+    private Object[] arguments; // location or effect, depending on the kind
+    private int size;
+    private Object actor; // currently planning
+
+    Intents() {
+        kinds = new byte[INITIAL_CAPACITY];
+        actors = new Object[INITIAL_CAPACITY];
+        targets = new Object[INITIAL_CAPACITY];
+        arguments = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Intends to move an object (normally the actor itself) to another tile. Dropped if the object is no longer on the map,
+     * or if the tile is taken (in the layer of the object) by then.
+     * @param object to move.
+     * @param to the tile to move to.
+     */
+    public void move(Object object, Location to) {
+        record(MOVE, object, to);
+    }
+
+    /**
+     * Intends to place a new object on the map. Dropped if the tile is taken (in the layer of the object) by then.
+     * @param location to place the object on.
+     * @param object to place (which must not exist in the world).
+     */
+    public void spawn(Location location, Object object) {
+        record(SPAWN, object, location);
+    }
+
+    /**
+     * Intends to delete an object from the world (e.g., the actor itself dying). Dropped if the object is already deleted.
+     * @param object to delete.
+     */
+    public void delete(Object object) {
+        record(DELETE, object, null);
+    }
+
+    /**
+     * Intends to eat from an object. Only the first actor eating (or killing) an object during a step gets to eat it, and only if the
+     * object still exists in the world by then.
+     * @param food the object to eat from.
+     * @param effect carried out if the actor gets to eat, e.g., to take meat from the food and gain energy.
+     */
+    public void eat(Object food, Consumer<World> effect) {
+        record(EAT, food, effect);
+    }
+
+    /**
+     * Intends to kill an object. Only the first actor eating or killing an object during a step gets to kill it, and only if the object
+     * still exists in the world by then. The object is deleted from the world after the effect (unless the effect did so already).
+     * @param prey the object to kill.
+     * @param effect carried out if the actor gets to kill, before the prey is deleted (e.g., to leave a carcass behind).
+     */
+    public void kill(Object prey, Consumer<World> effect) {
+        record(KILL, prey, effect);
+    }
+
+    /**
+     * Intends to modify another object than the actor itself, or to let the actor modify the world around it once its earlier intents
+     * are carried out (e.g., to act as usual, for what it cannot plan). Carried out if the object still exists in the world by then,
+     * regardless of other actors modifying the same object.
+     * @param object to modify.
+     * @param effect which modifies the object.
+     */
+    public void update(Object object, Consumer<World> effect) {
+        record(UPDATE, object, effect);
+    }
+
+    /**
+     * @return the amount of intents recorded.
+     */
+    public int size() {
+        return size;
+    }
+
+    // Planning and committing (called by the simulator)
+
+    void plan(IntentActor actor, World world, Location location) {
+        this.actor = actor;
+        try {
+            actor.plan(world, location, this);
+        } finally {
+            this.actor = null;
+        }
+    }
+
+    /**
+     * Carries out the intents recorded, in order, and forgets them afterwards.
+     * @param world to modify.
+     * @param claimed the objects eaten or killed so far during the step (shared by the intents of every actor).
+     * @return the amount of intents dropped.
+     */
+    @SuppressWarnings("unchecked")
+    int commit(World world, Set<Object> claimed) {
+        int dropped = 0;
+        try {
+            for (int i = 0; i < size; i++) {
+                Object target = targets[i];
+                if (!world.contains(actors[i])) {
+                    dropped++; // the actor was deleted before its turn
+                    continue;
+                }
+                boolean done = switch (kinds[i]) {
+                    case MOVE -> {
+                        Location to = (Location) arguments[i];
+                        if (!world.contains(target) || !world.isOnTile(target) || isTaken(world, to, target)) yield false;
+                        world.move(target, to);
+                        yield true;
+                    }
+                    case SPAWN -> {
+                        Location location = (Location) arguments[i];
+                        if (world.contains(target) || isTaken(world, location, target)) yield false;
+                        world.setTile(location, target);
+                        yield true;
+                    }
+                    case DELETE -> {
+                        if (!world.contains(target)) yield false;
+                        world.delete(target);
+                        yield true;
+                    }
+                    case EAT, KILL -> {
+                        if (!world.contains(target) || !claimed.add(target)) yield false;
+                        ((Consumer<World>) arguments[i]).accept(world);
+                        if (kinds[i] == KILL && world.contains(target)) world.delete(target);
+                        yield true;
+                    }
+                    default -> {
+                        if (!world.contains(target)) yield false;
+                        ((Consumer<World>) arguments[i]).accept(world);
+                        yield true;
+                    }
+                };
+                if (!done) dropped++;
+            }
+        } finally {
+            clear();
+        }
+        return dropped;
+    }
+
+    /**
+     * Provides a set to keep track of the objects claimed by eating or killing during a step.
+     * @return an empty identity based set.
+     */
+    static Set<Object> claimedSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    void clear() {
+        Arrays.fill(actors, 0, size, null);
+        Arrays.fill(targets, 0, size, null);
+        Arrays.fill(arguments, 0, size, null);
+        size = 0;
+    }
+
+    // Private methods
+
+    private void record(byte kind, Object target, Object argument) {
+        if (actor == null) throw new IllegalStateException("Intents can only be recorded while planning");
+        if (target == null) throw new IllegalArgumentException("Object cannot be null");
+        if (argument == null && kind != DELETE) throw new IllegalArgumentException(kind == MOVE || kind == SPAWN ? "Location cannot be null" : "Effect cannot be null");
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            actors = Arrays.copyOf(actors, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            arguments = Arrays.copyOf(arguments, capacity);
+        }
+        kinds[size] = kind;
+        actors[size] = actor;
+        targets[size] = target;
+        arguments[size] = argument;
+        size++;
+    }
+
+    // determines whether a tile is taken in the layer of an object (by another object)
+    private static boolean isTaken(World world, Location location, Object object) {
+        Object occupant;
+        if (object instanceof NonBlocking) {
+            occupant = world.getNonBlocking(location);
+        } else {
+            occupant = world.isTileEmpty(location) ? null : world.getTile(location);
+        }
+        return occupant != null && occupant != object;
+    }
+}
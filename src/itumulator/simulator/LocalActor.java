@@ -0,0 +1,13 @@
+package itumulator.simulator;
+
+import itumulator.world.World;
+
+/**
+ * An {@link Actor} whose actions only concern its surroundings: when acting, it only reads and modifies the tiles (and the objects on them)
+ * within a short distance of its own tile, and it shares no other state with actors elsewhere on the map. This allows local actors far
+ * away from each other to act at the same time, see {@link Simulator#setParallelism(int, int)}.
+ * Local actors may act concurrently with other local actors, so they must not use the methods relying on the 'current location' of the
+ * world (e.g., {@link World#getSurroundingTiles()}), but use the methods which accept a location instead.
+ */
+public interface LocalActor extends Actor {
+}
@@ -0,0 +1,194 @@
+package itumulator.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+import itumulator.world.EntityCursor;
+import itumulator.world.Location;
+import itumulator.world.World;
+
+/**
+ * Lets the actors of a world act using several threads. The map is split into horizontal stripes which are high enough for the actors
+ * of every other stripe to act at the same time (see {@link World#getStripeHeight(int)}). The {@link LocalActor local actors} of the
+ * even stripes act first and those of the odd stripes afterwards, where the stripes act in parallel and the actors within a stripe act
+ * one at a time (in the usual order). Every other actor acts afterwards on the calling thread, as it might interact with anything.
+ * Animals are not local actors, as packs, herds and burrows are shared across the whole map, so in a world of plants and animals
+ * every plant acts before any animal (whereas they take turns when acting one at a time).
+ * <p>
+ * Sorting the actors into stripes is itself split between the threads, each sorting a share of the objects of the world, as merely
+ * visiting every object of a large world takes about as long as letting most of them act.
+ * </p>
+ */
+final class ParallelStepper {
+    private static final int NOT_ACTOR = 0, ACTOR = 1, LOCAL = 2;
+    // kind of actor per class, as checking every object against two interfaces in turn is slow (especially on several threads)
+    private static final ClassValue<Integer> KINDS = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            if (LocalActor.class.isAssignableFrom(type)) return LOCAL;
+            return Actor.class.isAssignableFrom(type) ? ACTOR : NOT_ACTOR;
+        }
+    };
+
+    private final ForkJoinPool pool;
+    private final int interactionRadius;
+    private final Share[] shares;
+
+    ParallelStepper(int threads, int interactionRadius) {
+        this.pool = new ForkJoinPool(threads);
+        this.interactionRadius = interactionRadius;
+        this.shares = new Share[threads];
+        for (int i = 0; i < threads; i++) {
+            shares[i] = new Share();
+        }
+    }
+
+    int getThreads() {
+        return pool.getParallelism();
+    }
+
+    int getInteractionRadius() {
+        return interactionRadius;
+    }
+
+    /**
+     * Lets every actor of the world act once (actors deleted before their turn do not act, and actors added do not act until the next call).
+     * @param world to act in.
+     * @param telemetry to measure the actors with, or null.
+     * @param profiler to time the actors with, or null.
+     * @return the bytes allocated by the threads of the pool (only measured when given telemetry).
+     */
+    long actAll(World world, AllocationTelemetry telemetry, StepProfiler profiler) {
+        int height = world.getStripeHeight(interactionRadius);
+        int stripes = (world.getSize() + height - 1) / height;
+        EntityCursor[] cursors = world.activationCursors(shares.length);
+        AtomicLong allocated = new AtomicLong();
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < shares.length; i++) {
+                Share share = shares[i];
+                EntityCursor cursor = cursors[i];
+                tasks.add(pool.submit(() -> share.sort(cursor, height, stripes)));
+            }
+            joinAll(tasks);
+            world.setConcurrent(true);
+            try {
+                for (int parity = 0; parity < 2; parity++) {
+                    tasks.clear();
+                    for (int s = parity; s < stripes; s += 2) {
+                        int stripe = s;
+                        if (!isEmpty(stripe)) tasks.add(pool.submit(() -> actStripe(world, stripe, telemetry, profiler, allocated)));
+                    }
+                    joinAll(tasks); // every stripe must be done before the next ones start
+                }
+            } finally {
+                world.setConcurrent(false);
+            }
+
+            for (Share share : shares) {
+                for (Actor actor : share.others) {
+                    if (!world.contains(actor)) continue;
+                    world.setCurrentLocation(world.isOnTile(actor) ? world.getLocation(actor) : null);
+                    act(actor, world, telemetry, profiler);
+                }
+            }
+        } finally {
+            for (Share share : shares) share.clear();
+        }
+        return allocated.get();
+    }
+
+    /**
+     * Runs a task once per thread of the pool (see {@link #getThreads()}) and waits for every task to finish.
+     * @param task to run, given the index of the task.
+     * @param telemetry to measure the tasks with, or null.
+     * @return the bytes allocated by the tasks (only measured when given telemetry).
+     */
+    long forEachThread(IntConsumer task, AllocationTelemetry telemetry) {
+        AtomicLong allocated = new AtomicLong();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < shares.length; i++) {
+            int index = i;
+            tasks.add(pool.submit(() -> {
+                long start = telemetry == null ? 0 : telemetry.allocatedBytes();
+                task.accept(index);
+                if (telemetry != null) allocated.addAndGet(telemetry.allocatedBytes() - start);
+            }));
+        }
+        joinAll(tasks);
+        return allocated.get();
+    }
+
+    /**
+     * Stops the threads of the pool (once they are done).
+     */
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private boolean isEmpty(int stripe) {
+        for (Share share : shares) {
+            if (!share.stripes.get(stripe).isEmpty()) return false;
+        }
+        return true;
+    }
+
+    private void actStripe(World world, int stripe, AllocationTelemetry telemetry, StepProfiler profiler, AtomicLong allocated) {
+        long start = telemetry == null ? 0 : telemetry.allocatedBytes();
+        for (Share share : shares) {
+            for (Actor actor : share.stripes.get(stripe)) {
+                if (world.contains(actor)) act(actor, world, telemetry, profiler);
+            }
+        }
+        if (telemetry != null) allocated.addAndGet(telemetry.allocatedBytes() - start);
+    }
+
+    static void act(Actor actor, World world, AllocationTelemetry telemetry, StepProfiler profiler) {
+        if (telemetry == null && profiler == null) {
+            actor.act(world);
+            return;
+        }
+        long before = telemetry == null ? 0 : telemetry.allocatedBytes();
+        long start = profiler == null ? 0 : System.nanoTime();
+        actor.act(world);
+        if (profiler != null) profiler.actorFinished(actor.getClass(), System.nanoTime() - start);
+        if (telemetry != null) telemetry.actorFinished(actor.getClass(), telemetry.allocatedBytes() - before);
+    }
+
+    private static void joinAll(List<ForkJoinTask<?>> tasks) {
+        for (ForkJoinTask<?> task : tasks) task.quietlyJoin(); // wait for every task, even if some failed
+        for (ForkJoinTask<?> task : tasks) task.join(); // rethrows the failure of a task (if any)
+    }
+
+    /**
+     * The actors of a share of the objects of the world, sorted by the stripe they act in.
+     */
+    private static final class Share {
+        private final List<List<Actor>> stripes = new ArrayList<>(); // stripe -> local actors in the order they act
+        private final List<Actor> others = new ArrayList<>(); // actors acting on the calling thread, after the stripes
+
+        void sort(EntityCursor cursor, int height, int count) {
+            while (stripes.size() < count) stripes.add(new ArrayList<>());
+            while (cursor.next()) {
+                Object o = cursor.entity();
+                int kind = KINDS.get(o.getClass());
+                if (kind == NOT_ACTOR) continue;
+                Location location = kind == LOCAL ? cursor.location() : null;
+                if (location == null) {
+                    others.add((Actor) o);
+                } else {
+                    stripes.get(location.getY() / height).add((Actor) o);
+                }
+            }
+        }
+
+        void clear() {
+            for (List<Actor> stripe : stripes) stripe.clear();
+            others.clear();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package itumulator.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The populations of many replicas of a scenario (see {@link ReplicaRunner}), i.e., the amount of objects of each class after each step
+ * in each replica. Rather than following a single run, the percentiles of the replicas give a band of the populations to expect, e.g.,
+ * the 5th and 95th percentile bound the populations of 90% of the runs. A class missing from a replica counts as 0 objects.
+ */
+public final class PopulationBands {
+    private final int replicas;
+    private final int steps;
+    private final Map<Class<?>, int[][]> counts; // species -> step -> counts of the replicas (sorted)
+
+    private PopulationBands(int replicas, int steps, Map<Class<?>, int[][]> counts) {
+        this.replicas = replicas;
+        this.steps = steps;
+        this.counts = counts;
+    }
+
+    /**
+     * Merges the counts of the replicas.
+     * @param replicas the counts of each replica, per class and step.
+     * @param steps the amount of steps simulated per replica.
+     * @return the merged populations.
+     */
+    static PopulationBands merge(List<Map<Class<?>, int[]>> replicas, int steps) {
+        List<Class<?>> species = new ArrayList<>();
+        for (Map<Class<?>, int[]> replica : replicas) {
+            for (Class<?> c : replica.keySet()) {
+                if (!species.contains(c)) species.add(c);
+            }
+        }
+        species.sort(Comparator.comparing(Class::getSimpleName));
+
+        Map<Class<?>, int[][]> counts = new LinkedHashMap<>();
+        for (Class<?> c : species) {
+            int[][] perStep = new int[steps + 1][replicas.size()];
+            for (int r = 0; r < replicas.size(); r++) {
+                int[] replica = replicas.get(r).get(c);
+                if (replica == null) continue;
+                for (int step = 0; step <= steps; step++) perStep[step][r] = replica[step];
+            }
+            for (int[] step : perStep) Arrays.sort(step);
+            counts.put(c, perStep);
+        }
+        return new PopulationBands(replicas.size(), steps, counts);
+    }
+
+    /**
+     * @return the amount of replicas merged.
+     */
+    public int getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @return the amount of steps simulated per replica (the populations are known for step 0, i.e., before the first step, up to this).
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the classes of the objects found in any of the replicas (ordered by name).
+     */
+    public List<Class<?>> getSpecies() {
+        return List.copyOf(counts.keySet());
+    }
+
+    /**
+     * Provides a percentile of the population of a class after a step, i.e., the smallest population which at least the given
+     * percentage of the replicas did not exceed.
+     * @param species the class of the objects.
+     * @param step the step (0 for the population before the first step).
+     * @param percentile between 0 and 100 (e.g., 50 for the median).
+     * @return the population.
+     * @throws IllegalArgumentException
+     *          if the step or percentile is out of bounds.
+     */
+    public int getPercentile(Class<?> species, int step, double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        int[] sorted = getCounts(species, step);
+        if (sorted == null) return 0;
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Provides the mean population of a class after a step.
+     * @param species the class of the objects.
+     * @param step the step (0 for the population before the first step).
+     * @return the mean population.
+     * @throws IllegalArgumentException
+     *          if the step is out of bounds.
+     */
+    public double getMean(Class<?> species, int step) {
+        int[] sorted = getCounts(species, step);
+        if (sorted == null) return 0;
+        long sum = 0;
+        for (int count : sorted) sum += count;
+        return (double) sum / sorted.length;
+    }
+
+    /**
+     * Provides a table of the 5th, 50th and 95th percentile of the population of each class, every given amount of steps.
+     * @param every the amount of steps between the rows (the last step is always included).
+     * @return the table, one row per step.
+     * @throws IllegalArgumentException
+     *          if every is less than 1.
+     */
+    public String toTable(int every) {
+        if (every < 1) throw new IllegalArgumentException("Every must be at least 1");
+        StringBuilder sb = new StringBuilder("step");
+        for (Class<?> c : counts.keySet()) sb.append(String.format(Locale.ROOT, " %22s", c.getSimpleName() + " p5/p50/p95"));
+        sb.append('\n');
+        for (int step = 0; step <= steps; step = step == steps ? steps + 1 : Math.min(step + every, steps)) {
+            sb.append(String.format(Locale.ROOT, "%4d", step));
+            for (Class<?> c : counts.keySet()) {
+                sb.append(String.format(Locale.ROOT, " %22s", getPercentile(c, step, 5) + "/" + getPercentile(c, step, 50) + "/" + getPercentile(c, step, 95)));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d replicas of %d steps, %d classes of objects", replicas, steps, counts.size());
+    }
+
+    private int[] getCounts(Class<?> species, int step) {
+        if (step < 0 || step > steps) throw new IllegalArgumentException("Step must be between 0 and " + steps);
+        int[][] perStep = counts.get(species);
+        return perStep == null ? null : perStep[step];
+    }
+}
@@ -0,0 +1,104 @@
+package itumulator.simulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The time spent by a range of steps measured by a {@link StepProfiler}: the duration of the steps, of each phase of the steps and
+ * of every act (or plan) of the actors of each class. A report does not change once made.
+ */
+public final class ProfileReport {
+    private final long firstStep;
+    private final long lastStep;
+    private final TimeHistogram steps;
+    private final Map<StepProfiler.Phase, TimeHistogram> phases;
+    private final Map<Class<?>, TimeHistogram> actors; // by total time (most first)
+
+    ProfileReport(long firstStep, long lastStep, TimeHistogram steps, Map<StepProfiler.Phase, TimeHistogram> phases, Map<Class<?>, TimeHistogram> actors) {
+        this.firstStep = firstStep;
+        this.lastStep = lastStep;
+        this.steps = steps.copy();
+        this.phases = new EnumMap<>(StepProfiler.Phase.class);
+        for (Map.Entry<StepProfiler.Phase, TimeHistogram> entry : phases.entrySet()) this.phases.put(entry.getKey(), entry.getValue().copy());
+        List<Map.Entry<Class<?>, TimeHistogram>> entries = new ArrayList<>();
+        for (Map.Entry<Class<?>, TimeHistogram> entry : actors.entrySet()) {
+            if (entry.getValue().getCount() > 0) entries.add(entry);
+        }
+        entries.sort(Collections.reverseOrder((a, b) -> Long.compare(a.getValue().getTotalNanos(), b.getValue().getTotalNanos())));
+        this.actors = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, TimeHistogram> entry : entries) this.actors.put(entry.getKey(), entry.getValue().copy());
+    }
+
+    /**
+     * @return the first step measured (counting the steps measured by the profiler from 1).
+     */
+    public long getFirstStep() {
+        return firstStep;
+    }
+
+    /**
+     * @return the last step measured.
+     */
+    public long getLastStep() {
+        return lastStep;
+    }
+
+    /**
+     * @return the durations of the steps as a whole.
+     */
+    public TimeHistogram getSteps() {
+        return steps;
+    }
+
+    /**
+     * @param phase of the steps.
+     * @return the durations of the phase, one per step.
+     */
+    public TimeHistogram getPhase(StepProfiler.Phase phase) {
+        return phases.get(phase);
+    }
+
+    /**
+     * @return the classes of the actors which acted (ordered by the total time spent acting, most first).
+     */
+    public List<Class<?>> getActorClasses() {
+        return List.copyOf(actors.keySet());
+    }
+
+    /**
+     * @param actorClass the concrete class of the actors.
+     * @return the durations of the acts of the actors of the class, or null if none acted.
+     */
+    public TimeHistogram getActor(Class<?> actorClass) {
+        return actors.get(actorClass);
+    }
+
+    /**
+     * Provides a table of the steps, the phases and the actor classes, with their counts, total time and mean, 50th percentile,
+     * 99th percentile and maximum durations.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Steps %d-%d%n", firstStep, lastStep));
+        sb.append(String.format(Locale.ROOT, "%-20s %9s %11s %11s %11s %11s %11s%n", "", "count", "total ms", "mean us", "p50 us", "p99 us", "max us"));
+        row(sb, "step", steps);
+        for (Map.Entry<StepProfiler.Phase, TimeHistogram> entry : phases.entrySet()) {
+            row(sb, "  " + entry.getKey().name().toLowerCase(Locale.ROOT).replace('_', ' '), entry.getValue());
+        }
+        for (Map.Entry<Class<?>, TimeHistogram> entry : actors.entrySet()) {
+            row(sb, "    " + entry.getKey().getSimpleName(), entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    private static void row(StringBuilder sb, String name, TimeHistogram h) {
+        sb.append(String.format(Locale.ROOT, "%-20s %9d %11.1f %11.1f %11.1f %11.1f %11.1f%n", name, h.getCount(), h.getTotalNanos() / 1e6,
+                h.getMeanNanos() / 1e3, h.getPercentileNanos(50) / 1e3, h.getPercentileNanos(99) / 1e3, h.getMaxNanos() / 1e3));
+    }
+}
@@ -0,0 +1,102 @@
+package itumulator.simulator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+import itumulator.world.EntityCursor;
+import itumulator.world.World;
+
+/**
+ * Runs many replicas of the same scenario, each in a headless world of its own built with a different seed (see {@link World#setSeed(long)}),
+ * and counts the population of every class of objects after each step. The replicas are simulated in parallel on a bounded pool of threads,
+ * one replica per thread at a time, so the throughput scales with the amount of cores as long as there are more replicas than threads.
+ * The counts of all replicas are merged into {@link PopulationBands}.
+ */
+public final class ReplicaRunner {
+    private final int threads;
+
+    /**
+     * @param threads the amount of replicas to simulate at a time.
+     * @throws IllegalArgumentException if threads is less than 1.
+     */
+    public ReplicaRunner(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Threads must be at least 1");
+        this.threads = threads;
+    }
+
+    /**
+     * @return the amount of replicas simulated at a time.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Simulates replicas of a scenario and merges their populations. The seeds of the replicas are derived from the seed given,
+     * so the outcome is repeatable (regardless of the amount of threads) if the scenario only uses the randomness of its world.
+     * @param scenario builds and populates a new world given the seed to set before placing anything (called once per replica, possibly
+     *                 on several threads at once).
+     * @param replicas the amount of replicas to simulate.
+     * @param steps the amount of steps to simulate per replica.
+     * @param seed from which the seeds of the replicas are derived.
+     * @return the populations of the replicas.
+     * @throws IllegalArgumentException
+     *          if replicas is less than 1 or steps is negative.
+     * @throws IllegalStateException
+     *          if a replica fails (with the failure as cause), or if interrupted while waiting for the replicas.
+     */
+    public PopulationBands run(LongFunction<World> scenario, int replicas, int steps, long seed) {
+        if (replicas < 1) throw new IllegalArgumentException("Replicas must be at least 1");
+        if (steps < 0) throw new IllegalArgumentException("Steps cannot be a negative number");
+        SplittableRandom seeds = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, replicas));
+        try {
+            List<Future<Map<Class<?>, int[]>>> futures = new ArrayList<>(replicas);
+            for (int i = 0; i < replicas; i++) {
+                long replicaSeed = seeds.nextLong();
+                futures.add(pool.submit(() -> simulate(scenario.apply(replicaSeed), steps)));
+            }
+            List<Map<Class<?>, int[]>> counts = new ArrayList<>(replicas);
+            for (int i = 0; i < replicas; i++) {
+                try {
+                    counts.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Replica " + i + " failed", e.getCause());
+                }
+            }
+            return PopulationBands.merge(counts, steps);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the replicas", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // simulates a replica, counting the objects of each class before the first step and after every step
+    private static Map<Class<?>, int[]> simulate(World world, int steps) {
+        Map<Class<?>, int[]> counts = new LinkedHashMap<>();
+        Simulator simulator = new Simulator(world);
+        count(world, counts, 0, steps);
+        for (int step = 1; step <= steps; step++) {
+            simulator.simulate();
+            count(world, counts, step, steps);
+        }
+        return counts;
+    }
+
+    private static void count(World world, Map<Class<?>, int[]> counts, int step, int steps) {
+        EntityCursor cursor = world.entityCursor(false);
+        while (cursor.next()) {
+            counts.computeIfAbsent(cursor.entity().getClass(), c -> new int[steps + 1])[step]++;
+        }
+    }
+}
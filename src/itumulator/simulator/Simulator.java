@@ -1,45 +1,166 @@
 package itumulator.simulator;
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
-import itumulator.display.Canvas;
-import itumulator.display.Frame;
-import itumulator.world.Location;
+import itumulator.executable.Display;
+import itumulator.world.CheckpointInput;
+import itumulator.world.CheckpointOutput;
+import itumulator.world.EntityCursor;
 import itumulator.world.World;
 
 /**
  * Simulator handles the execution of actual simulations and keeps track of how many steps have been executed (Not required to execute and build simulations).
  */
 public class Simulator {
+    private static final long MAX_LAG = 1_000_000_000L; // ns behind schedule after which the missed steps are given up on
+    private static final long RATE_WINDOW = 500_000_000L; // ns over which the achieved rate is measured
+    private static final int BUDGET_CHECK_MASK = 15; // the budget is checked every 16 actors
+
     private World world;
-    private Canvas canvas;
+    private Display display; // null when headless
     private int steps;
     private AtomicBoolean running;
     private ExecutorService executor;
-    private int delay;
-    private Frame frame;
+    private volatile long period; // ns between the starts of steps when running (0 to run as fast as possible)
+    private volatile boolean renderSkipping;
+    private volatile double achievedRate;
+    private volatile long lag; // ns behind schedule
+    private volatile long skippedRenders;
+    private AllocationTelemetry telemetry;
+    private volatile StepProfiler profiler; // null when not profiling
+    private ParallelStepper parallel; // null when acting sequentially
+    private IntentStepper intents; // null when actors act directly
+    private volatile long budget; // ns each call to simulate may spend on the actors (0 to always finish the step)
+    private PartialStep partial; // null unless a step is in progress
 
     /**
-     * Initializes a new simulation based on an existing world, canvas, and initial delay.
+     * Initializes a new simulation based on an existing world, display, and initial delay.
      * @param world the world to simulate.
-     * @param canvas the canvas to use for simulation.
+     * @param display to show the simulation on.
      * @param delay between executing simulations in ms (when using {@link run() run}).
      */
-    public Simulator(World world, Canvas canvas, int delay) {
+    public Simulator(World world, Display display, int delay) {
         this.world = world;
-        this.canvas = canvas;
+        this.display = display;
         running = new AtomicBoolean(false);
-        this.delay = delay;
+        setDelay(delay);
+    }
+
+    /**
+     * Initializes a new headless simulation based on an existing world, i.e., without any display to update.
+     * Nothing is drawn, which allows simulations to run without a display (e.g., for batch runs and tests).
+     * @param world the world to simulate.
+     */
+    public Simulator(World world) {
+        this(world, null, 0);
+    }
+
+    /**
+     * Determines whether the simulation is headless (i.e., has no display to draw on).
+     * @return true if nothing is drawn when simulating.
+     */
+    public boolean isHeadless() {
+        return display == null;
+    }
+
+    /**
+     * Attaches telemetry measuring the memory allocated by each step (and by each class of actors).
+     * @param telemetry to attach, or null to stop measuring.
+     */
+    public void setAllocationTelemetry(AllocationTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * Provides the telemetry currently attached.
+     * @return the telemetry or null if allocations are not measured.
+     */
+    public AllocationTelemetry getAllocationTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * Attaches a profiler measuring the time spent by each step, by each of its phases and by each class of actors.
+     * May be attached while running, taking effect from the next step.
+     * @param profiler to attach, or null to stop measuring.
+     */
+    public void setStepProfiler(StepProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Provides the profiler currently attached.
+     * @return the profiler or null if steps are not measured.
+     */
+    public StepProfiler getStepProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Lets the {@link LocalActor local actors} act in parallel, using the given amount of threads. The map is split into horizontal stripes
+     * which are more than twice the interaction radius high, so that the local actors of every other stripe can act at the same time
+     * without touching the same tiles. Any other actor acts afterwards, one at a time, as it might interact with anything on the map.
+     * The actors thus act in another order than they do one at a time: the local actors of the even stripes first, then those of the odd
+     * stripes and then every other actor. A seeded run therefore ends differently than with a single thread. It ends like a run acting
+     * one at a time in that order, e.g., a world of local actors only whose activation order ranks the even stripes before the odd stripes
+     * (see {@link World#setActivationOrder(itumulator.world.ActivationOrder)}), and tiles by position otherwise.
+     * @param threads the amount of threads to use (1 to let every actor act one at a time).
+     * @param interactionRadius the largest distance (in tiles) from its own tile at which a local actor reads or modifies the world.
+     * @throws IllegalArgumentException
+     *          if threads is less than 1 or the interaction radius is negative.
+     * @throws IllegalStateException
+     *          if modifying the parallelism while running {@link run() run}.
+     */
+    public void setParallelism(int threads, int interactionRadius) {
+        if (isRunning()) throw new IllegalStateException("Cannot modify parallelism while executing run");
+        if (threads < 1) throw new IllegalArgumentException("Threads must be at least 1");
+        if (interactionRadius < 0) throw new IllegalArgumentException("Interaction radius cannot be a negative number");
+        if (parallel != null) parallel.shutdown();
+        parallel = threads == 1 ? null : new ParallelStepper(threads, interactionRadius);
     }
 
     /**
-     * Sets the containing frame to allow updating of meta world information (day/night cycle).
-     * @param frame to use.
+     * Provides the amount of threads used for letting the actors act (see {@link #setParallelism(int, int)}).
+     * @return the amount of threads (1 if acting sequentially).
      */
-    public void setFrame(Frame frame) {
-        this.frame = frame;
+    public int getParallelism() {
+        return parallel == null ? 1 : parallel.getThreads();
+    }
+
+    /**
+     * Sets whether the {@link IntentActor intent actors} act in two phases: first every intent actor plans its actions while the world
+     * is read-only, after which the intents of all actors are committed one at a time in the order of the objects of the world, dropping
+     * intents conflicting with earlier ones. Any other actor acts afterwards. Planning is done in parallel when using several threads
+     * (see {@link #setParallelism(int, int)}), which does not affect the outcome.
+     * @param enabled true to commit intents, false to let every actor act directly.
+     * @throws IllegalStateException
+     *          if modifying the mode while running {@link run() run}.
+     */
+    public void setIntentCommit(boolean enabled) {
+        if (isRunning()) throw new IllegalStateException("Cannot modify intent commit while executing run");
+        if (enabled == (intents != null)) return;
+        intents = enabled ? new IntentStepper() : null;
+    }
+
+    /**
+     * Provides an indicator of whether intent actors act in two phases (see {@link #setIntentCommit(boolean)}).
+     * @return true if intents are committed.
+     */
+    public boolean isIntentCommit() {
+        return intents != null;
+    }
+
+    /**
+     * Provides the amount of intents dropped due to conflicts with earlier intents, since intents began being committed.
+     * @return the amount of intents dropped (0 if not committing intents).
+     */
+    public long getDroppedIntents() {
+        return intents == null ? 0 : intents.getDropped();
     }
 
     /**
@@ -50,40 +171,254 @@ public class Simulator {
         return steps;
     }
 
+    /**
+     * Provides the world simulated
+     * @return the world.
+     */
+    public World getWorld() {
+        return world;
+    }
+
     /**
      * Provides the current delay
      * @return the delay currently employed.
      */
     public int getDelay(){
-        return delay;
+        return (int) Math.round(period / 1e6);
+    }
+
+    /**
+     * Provides the amount of steps per second aimed for when using {@link run() run}.
+     * @return the steps per second, or 0 if running as fast as possible.
+     */
+    public double getTargetRate() {
+        long period = this.period;
+        return period == 0 ? 0 : 1e9 / period;
+    }
+
+    /**
+     * Provides the amount of steps per second achieved by {@link run() run} lately (measured over the last half second or so).
+     * @return the steps per second (0 if not running yet).
+     */
+    public double getAchievedRate() {
+        return achievedRate;
+    }
+
+    /**
+     * Provides how far {@link run() run} is behind its schedule, e.g., when steps take longer than the time between steps.
+     * Once behind by more than a second, the steps missed are given up on (so the lag does not exceed a second or so).
+     * @return the lag in ms (0 if on schedule or running as fast as possible).
+     */
+    public double getLag() {
+        return lag / 1e6;
+    }
+
+    /**
+     * Sets whether {@link run() run} skips painting steps while it is behind its schedule, so it catches up sooner. The changes of the
+     * steps skipped are painted along with the next step painted.
+     * @param enabled true to skip painting while behind.
+     */
+    public void setRenderSkipping(boolean enabled) {
+        this.renderSkipping = enabled;
+    }
+
+    /**
+     * Provides an indicator of whether painting is skipped while behind (see {@link #setRenderSkipping(boolean)}).
+     * @return true if painting is skipped while behind.
+     */
+    public boolean isRenderSkipping() {
+        return renderSkipping;
+    }
+
+    /**
+     * Provides the amount of steps which were not painted in order to catch up (see {@link #setRenderSkipping(boolean)}).
+     * @return the amount of steps not painted.
+     */
+    public long getSkippedRenders() {
+        return skippedRenders;
     }
 
     /**
-     * Simulate am iteration.
+     * Simulate am iteration. With a step budget (see {@link #setStepBudget(int)}), only as much of the iteration is simulated as the
+     * budget allows, and the next call continues it.
      */
     public void simulate() {
-        // increment both internal tracking of steps as well as for the world.
-        steps++; 
-        world.step();
-        // update frame settings regarding change of cycle
-        frame.updateDayNightLabel(world.isDay());
-        frame.updateStepLabel(steps);
+        simulate(true, budget);
+    }
+
+    /**
+     * Limits the time spent on the actors by each call to {@link #simulate()} (and by each round of {@link run() run}), so that steps
+     * of crowded worlds do not keep the display from updating for long. Once the budget is spent, the actors not reached yet are left
+     * for the next call, which continues where this call stopped, and the display shows that the step is still in progress (see
+     * {@link #isStepInProgress()}). Every actor thus still acts once per step, in the same order, so the outcome is the same as
+     * without a budget. The budget only applies to actors acting one at a time, without intent commit (otherwise steps are always
+     * finished at once). May be updated while running, taking effect from the next call.
+     * @param budget in ms (0 to always finish the step).
+     * @throws IllegalArgumentException
+     *          if the budget is negative.
+     */
+    public void setStepBudget(int budget) {
+        if (budget < 0) throw new IllegalArgumentException("Budget cannot be a negative number");
+        this.budget = budget * 1_000_000L;
+    }
+
+    /**
+     * Provides the time each call to {@link #simulate()} may spend on the actors (see {@link #setStepBudget(int)}).
+     * @return the budget in ms (0 if steps are always finished).
+     */
+    public int getStepBudget() {
+        return (int) (budget / 1_000_000L);
+    }
+
+    /**
+     * Provides an indicator of whether a step was started but not every actor has acted yet, as the step budget ran out
+     * (see {@link #setStepBudget(int)}).
+     * @return true if the next call to {@link #simulate()} continues the current step rather than starting a new one.
+     */
+    public boolean isStepInProgress() {
+        return partial != null;
+    }
+
+    // simulates an iteration (or as much of it as the budget in ns allows, unless 0), painting it unless told otherwise
+    // returns true if the iteration was finished
+    private boolean simulate(boolean paint, long budget) {
+        AllocationTelemetry telemetry = this.telemetry;
+        StepProfiler profiler = this.profiler;
+        PartialStep partial = this.partial;
+        long stepStart = telemetry == null ? 0 : telemetry.allocatedBytes();
+        long start = profiler == null && budget == 0 ? 0 : System.nanoTime();
+        EntityCursor cursor = null;
+        if (partial == null) {
+            // increment both internal tracking of steps as well as for the world.
+            steps++; 
+            world.step();
+            if (profiler != null) profiler.phaseFinished(StepProfiler.Phase.WORLD_STEP, System.nanoTime() - start);
+            // update display settings regarding change of cycle
+            if (display != null) display.showDayNight(world.isDay());
+        } else {
+            cursor = partial.cursor; // continue where the previous call stopped
+        }
+        long actorsStart = profiler == null ? 0 : System.nanoTime();
 
         // iterate all actors of the world and execute their actions.
-        Map<Object, Location> entities = world.getEntities();
-        for(Object o : entities.keySet()){
-            if(o instanceof Actor){
-                if(!world.contains(o)) continue;
-                Location l = null;
-                if(world.isOnTile(o)) l = world.getLocation(o);
-                world.setCurrentLocation(l);
-                ((Actor)o).act(world);
+        // (the cursor skips actors deleted during the step and leaves actors added during the step for the next step,
+        // and skips dormant actors without visiting them one by one)
+        long poolBytes = 0; // allocated by other threads than this one
+        boolean finished = true;
+        if (cursor == null && intents != null) {
+            poolBytes = intents.actAll(world, parallel, telemetry, profiler);
+        } else if (cursor == null && parallel != null) {
+            poolBytes = parallel.actAll(world, telemetry, profiler);
+        } else {
+            if (cursor == null) cursor = world.activationCursors(1)[0];
+            int acted = 0;
+            while(cursor.next()){
+                Object o = cursor.entity();
+                if(o instanceof Actor){
+                    world.setCurrentLocation(cursor.location());
+                    if(telemetry == null && profiler == null){
+                        ((Actor)o).act(world);
+                    } else {
+                        ParallelStepper.act((Actor)o, world, telemetry, profiler);
+                    }
+                    // the clock is read every few actors only, as most actors take far less time to act than reading it
+                    if (budget > 0 && (++acted & BUDGET_CHECK_MASK) == 0 && System.nanoTime() - start >= budget) {
+                        finished = false;
+                        break;
+                    }
+                }
             }
         }
-        entities = null; // to avoid memory leak
-        System.gc(); // force garbage collection to reduce leak
+        long renderStart = profiler == null ? 0 : System.nanoTime();
+        if (display != null) display.showSteps(steps, !finished);
+        world.flushJournal(); // let listeners (e.g., the animations) know what changed during the step
         // Here removed painting cycle (i.e., canvas.paintImage()) as I believe it was unecessary.
-        canvas.paintImage(delay); //repaint according to updated simulation.
+        if (display != null && paint) display.paint(getDelay()); //repaint according to updated simulation (e.g., drawn on the render thread of the canvas).
+        long bytes = telemetry == null ? 0 : telemetry.allocatedBytes() - stepStart + poolBytes;
+        long end = profiler == null ? 0 : System.nanoTime();
+
+        // the measurements of a step spread over several calls are added up until the step is finished
+        if (!finished) {
+            if (partial == null) this.partial = partial = new PartialStep();
+            partial.cursor = cursor;
+            partial.bytes += bytes;
+            if (profiler != null) {
+                partial.actorNanos += renderStart - actorsStart;
+                partial.renderNanos += end - renderStart;
+                partial.nanos += end - start;
+            }
+            return false;
+        }
+        this.partial = null;
+        if (partial == null) partial = PartialStep.NONE;
+        if (telemetry != null) telemetry.stepFinished(partial.bytes + bytes);
+        if (profiler != null) {
+            profiler.phaseFinished(StepProfiler.Phase.ACTORS, partial.actorNanos + renderStart - actorsStart);
+            profiler.phaseFinished(StepProfiler.Phase.RENDER, partial.renderNanos + end - renderStart);
+            profiler.stepFinished(partial.nanos + end - start);
+        }
+        return true;
+    }
+
+    /**
+     * Simulate a number of iterations back to back (without any delay), e.g., for batch runs. Every iteration is finished regardless
+     * of the step budget (see {@link #setStepBudget(int)}), starting with the step in progress if any. The iterations are not painted
+     * one by one; a display (if any) is painted once after the last iteration, showing everything that changed meanwhile.
+     * @param steps the amount of iterations to execute.
+     * @return the throughput achieved in iterations per second.
+     * @throws IllegalArgumentException
+     *          if steps is negative.
+     * @throws IllegalStateException
+     *          if {@link run() run} is currently executing.
+     */
+    public double simulate(int steps) {
+        if (steps < 0) throw new IllegalArgumentException("Steps cannot be a negative number");
+        if (isRunning()) throw new IllegalStateException("Cannot simulate while executing run");
+        long start = System.nanoTime();
+        for (int i = 0; i < steps; i++) {
+            simulate(false, 0);
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        if (display != null && steps > 0) display.paint(getDelay());
+        return steps * 1e9 / elapsed;
+    }
+
+    /**
+     * Writes a checkpoint of the simulation, i.e., the amount of steps executed and the state of the world (see {@link World#checkpoint(CheckpointOutput)}).
+     * A simulation restored from it (see {@link #restore(InputStream)}) continues exactly like this simulation would, given the same parallelism and
+     * intent commit (which are settings rather than state, so they are not part of the checkpoint).
+     * @param out to write the checkpoint to.
+     * @throws IOException if the stream fails.
+     * @throws IllegalStateException
+     *          if {@link run() run} is currently executing, or if a step is in progress (see {@link #isStepInProgress()}).
+     * @throws IllegalArgumentException
+     *          if an object within the world cannot be checkpointed (see {@link itumulator.world.Checkpointable}).
+     */
+    public void checkpoint(OutputStream out) throws IOException {
+        if (isRunning()) throw new IllegalStateException("Cannot checkpoint while executing run");
+        if (isStepInProgress()) throw new IllegalStateException("Cannot checkpoint while a step is in progress");
+        CheckpointOutput checkpoint = new CheckpointOutput(out);
+        checkpoint.writeInt(steps);
+        world.checkpoint(checkpoint);
+        checkpoint.finish();
+    }
+
+    /**
+     * Restores a headless simulation from a checkpoint (see {@link #checkpoint(OutputStream)}), which is much faster than simulating the steps again.
+     * @param in to read the checkpoint from.
+     * @return the simulation restored, along with its world.
+     * @throws IOException if the stream fails.
+     * @throws IllegalStateException
+     *          if the stream does not contain a checkpoint.
+     */
+    public static Simulator restore(InputStream in) throws IOException {
+        CheckpointInput checkpoint = new CheckpointInput(in);
+        int steps = checkpoint.readInt();
+        World world = World.restore(checkpoint);
+        checkpoint.finish();
+        Simulator simulator = new Simulator(world);
+        simulator.steps = steps;
+        return simulator;
     }
 
     /**
@@ -95,18 +430,27 @@ public class Simulator {
     }
 
     /**
-     * Updates the delay to be used.
-     * @param delay to use in ms.
+     * Updates the delay to be used, i.e., the time from the start of a step to the start of the next step when using {@link run() run}.
+     * The time taken by the step itself is thus accounted for. May be updated while running, taking effect from the next step.
+     * @param delay to use in ms (0 to run as fast as possible).
      * @throws IllegalArgumentException
      *          if delay is negative.
-     * @throws IllegalStateException
-     *          if modifying delay while running {@link run() run}.
-     *      
      */
     public void setDelay(int delay){
-        if(isRunning()) throw new IllegalStateException("Cannot modify delay while executing run");
         if(delay < 0) throw new IllegalArgumentException("Delay cannot be a negative number");
-        this.delay = delay;
+        this.period = delay * 1_000_000L;
+    }
+
+    /**
+     * Sets the amount of steps per second to aim for when using {@link run() run} (see {@link #setDelay(int)}).
+     * May be updated while running, taking effect from the next step.
+     * @param stepsPerSecond to aim for.
+     * @throws IllegalArgumentException
+     *          if steps per second is not positive.
+     */
+    public void setTargetRate(double stepsPerSecond) {
+        if (!(stepsPerSecond > 0)) throw new IllegalArgumentException("Steps per second must be positive");
+        this.period = Math.max(1, Math.round(1e9 / stepsPerSecond));
     }
 
     /**
@@ -117,7 +461,7 @@ public class Simulator {
     public synchronized void stop(){
         if(!isRunning()) throw new IllegalStateException("No current execution to stop");
         executor.shutdownNow();
-        canvas.reduceImgQueue();
+        if (display != null) display.reduceQueue();
         running.set(false);
     }
 
@@ -138,24 +482,52 @@ public class Simulator {
         executor.execute(new Runnable() {
             @Override
             public void run() {
-                while (true){
-                    try {
-                        if(!isRunning()){
-                            Thread.currentThread().interrupt();
-                            return;
-                        }
-                        canvas.acquireRenderPermit(); // to not produce too many images
-                        simulate();
-                        if (delay == 0){
-                            continue;
-                        }
-                        Thread.sleep(delay);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
+                // steps are started at fixed times (as long as they keep up), rather than waiting a fixed time after each step,
+                // so the time taken by the steps does not add up
+                long next = System.nanoTime();
+                long windowStart = next;
+                int windowSteps = 0;
+                while (isRunning()) {
+                    long now = System.nanoTime();
+                    long period = Simulator.this.period;
+                    long behind = now - next;
+                    if (period == 0 || behind > MAX_LAG) {
+                        next = now; // give up on the steps missed
+                        behind = 0;
+                    }
+                    lag = Math.max(0, behind);
+                    boolean paint = !(renderSkipping && behind >= period && period > 0);
+                    // waits if the display is too far behind drawing the previous steps
+                    if (!simulate(paint, budget)) continue; // continue the step right away, having let the display show it in progress
+                    if (!paint) skippedRenders++; // the round finishing the step decides whether the step is painted
+
+                    windowSteps++;
+                    now = System.nanoTime();
+                    if (now - windowStart >= RATE_WINDOW) {
+                        achievedRate = windowSteps * 1e9 / (now - windowStart);
+                        windowStart = now;
+                        windowSteps = 0;
+                    }
+
+                    next += period;
+                    while (isRunning() && (now = System.nanoTime()) < next) {
+                        LockSupport.parkNanos(next - now);
+                        if (Thread.interrupted()) break; // stopped
                     }
                 }
+                lag = 0;
             }
         });
     }
 
+    // a step which ran out of budget: the actors left to act, and what was measured so far
+    private static final class PartialStep {
+        private static final PartialStep NONE = new PartialStep();
+
+        private EntityCursor cursor;
+        private long bytes;
+        private long actorNanos;
+        private long renderNanos;
+        private long nanos;
+    }
 }
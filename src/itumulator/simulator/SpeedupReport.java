@@ -0,0 +1,95 @@
+package itumulator.simulator;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import itumulator.world.World;
+
+/**
+ * Compares the throughput of letting actors act in parallel (see {@link Simulator#setParallelism(int, int)}) with letting them act one
+ * at a time, as measured by {@link Simulator#simulate(int)}. Each mode simulates a fresh world built by the same scenario, and each mode
+ * is run once beforehand on a world of its own, so that the comparison is not skewed by the JVM still compiling the simulation.
+ */
+public final class SpeedupReport {
+    private final int steps;
+    private final int threads;
+    private final double sequential;
+    private final double parallel;
+
+    private SpeedupReport(int steps, int threads, double sequential, double parallel) {
+        this.steps = steps;
+        this.threads = threads;
+        this.sequential = sequential;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Measures the speedup of acting in parallel for a scenario.
+     * @param scenario builds the world to simulate (called once per run, so it must build a new world every time).
+     * @param steps the amount of steps to simulate per run.
+     * @param threads the amount of threads to act in parallel with.
+     * @param interactionRadius the largest distance (in tiles) from its own tile at which a local actor reads or modifies the world.
+     * @return the report of the measurements.
+     * @throws IllegalArgumentException
+     *          if steps is less than 1, threads is less than 1 or the interaction radius is negative.
+     */
+    public static SpeedupReport measure(Supplier<World> scenario, int steps, int threads, int interactionRadius) {
+        if (steps < 1) throw new IllegalArgumentException("Steps must be at least 1");
+        run(scenario.get(), steps, 1, interactionRadius); // warm up
+        run(scenario.get(), steps, threads, interactionRadius);
+        double sequential = run(scenario.get(), steps, 1, interactionRadius);
+        double parallel = run(scenario.get(), steps, threads, interactionRadius);
+        return new SpeedupReport(steps, threads, sequential, parallel);
+    }
+
+    /**
+     * @return the amount of steps simulated per run.
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the amount of threads acted in parallel with.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the throughput achieved acting one at a time in iterations per second.
+     */
+    public double getSequentialStepsPerSecond() {
+        return sequential;
+    }
+
+    /**
+     * @return the throughput achieved acting in parallel in iterations per second.
+     */
+    public double getParallelStepsPerSecond() {
+        return parallel;
+    }
+
+    /**
+     * @return how many times faster acting in parallel was (below 1 if it was slower).
+     */
+    public double getSpeedup() {
+        return parallel / sequential;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d steps: %.1f steps/s sequentially, %.1f steps/s on %d threads (speedup %.2fx)",
+                steps, sequential, parallel, threads, getSpeedup());
+    }
+
+    private static double run(World world, int steps, int threads, int interactionRadius) {
+        Simulator simulator = new Simulator(world);
+        simulator.setParallelism(threads, interactionRadius);
+        try {
+            return simulator.simulate(steps);
+        } finally {
+            simulator.setParallelism(1, interactionRadius);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package itumulator.simulator;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Measures the wall time spent by each step of a {@link Simulator}, split into the phases of the step, and the time spent by every
+ * act of the actors of each class. The durations are kept in histograms (see {@link TimeHistogram}), so measuring allocates nothing
+ * once every actor class has been seen. Every given amount of steps, the measurements are turned into a {@link ProfileReport} and
+ * started over. Attach to a simulator using {@link Simulator#setStepProfiler(StepProfiler)}; nothing is measured without a profiler.
+ * <p>
+ * When actors act in parallel (see {@link Simulator#setParallelism(int, int)}), the acts of several threads overlap, so the time of
+ * the actor classes may add up to more than the time of the actor phase. With intent commit (see {@link Simulator#setIntentCommit(boolean)}),
+ * the time of an intent actor is the time it spent planning.
+ * </p>
+ */
+public class StepProfiler {
+    /**
+     * The phases of a step.
+     */
+    public enum Phase {
+        /** Advancing the clock of the world, which wakes the dormant objects due (see {@link itumulator.world.World#step()}). */
+        WORLD_STEP,
+        /** Letting every actor act (including planning and committing intents). */
+        ACTORS,
+        /** Handing the world over to be drawn, including waiting for the canvas to keep up (only when not headless). */
+        RENDER
+    }
+
+    private final int reportInterval;
+    private final TimeHistogram stepTimes;
+    private final Map<Phase, TimeHistogram> phases;
+    private final Map<Class<?>, TimeHistogram> actors;
+    private long steps;
+    private volatile ProfileReport lastReport;
+    private volatile Consumer<ProfileReport> listener;
+
+    /**
+     * @param reportInterval the amount of steps per report.
+     * @throws IllegalArgumentException
+     *          if the interval is less than 1.
+     */
+    public StepProfiler(int reportInterval) {
+        if (reportInterval < 1) throw new IllegalArgumentException("Report interval must be at least 1");
+        this.reportInterval = reportInterval;
+        this.stepTimes = new TimeHistogram();
+        this.phases = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) phases.put(phase, new TimeHistogram());
+        this.actors = new HashMap<>();
+    }
+
+    /**
+     * @return the amount of steps per report.
+     */
+    public int getReportInterval() {
+        return reportInterval;
+    }
+
+    /**
+     * @return the amount of steps measured.
+     */
+    public synchronized long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the report of the latest steps reported, or null if there has not been enough steps for a report yet.
+     */
+    public ProfileReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Sets who receives the reports as they are made (on the thread simulating).
+     * @param listener to receive the reports, or null.
+     */
+    public void setReportListener(Consumer<ProfileReport> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Forgets the steps measured since the latest report.
+     */
+    public synchronized void reset() {
+        clear();
+        steps -= steps % reportInterval;
+    }
+
+    // Measurements (called by the simulator, where actors may be measured on several threads when acting in parallel)
+
+    synchronized void phaseFinished(Phase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    synchronized void actorFinished(Class<?> cl, long nanos) {
+        TimeHistogram h = actors.get(cl);
+        if (h == null) {
+            h = new TimeHistogram();
+            actors.put(cl, h);
+        }
+        h.record(nanos);
+    }
+
+    void stepFinished(long nanos) {
+        ProfileReport report;
+        synchronized (this) {
+            steps++;
+            stepTimes.record(nanos);
+            if (steps % reportInterval != 0) return;
+            report = new ProfileReport(steps - reportInterval + 1, steps, stepTimes, phases, actors);
+            clear();
+        }
+        lastReport = report;
+        Consumer<ProfileReport> listener = this.listener;
+        if (listener != null) listener.accept(report);
+    }
+
+    // empties the histograms rather than replacing them, so the classes seen are kept (and left out of reports while empty)
+    private void clear() {
+        stepTimes.clear();
+        for (TimeHistogram h : phases.values()) h.clear();
+        for (TimeHistogram h : actors.values()) h.clear();
+    }
+}
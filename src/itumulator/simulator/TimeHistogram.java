@@ -0,0 +1,114 @@
+package itumulator.simulator;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counts durations in buckets of powers of two nanoseconds, i.e., bucket {@code i} counts the durations of {@code 2^(i-1)} up to
+ * {@code 2^i - 1} ns (and bucket 0 those of 0 ns). Recording a duration thus costs a few instructions and no allocation, whereas
+ * percentiles are only known up to a factor of two. The total and the maximum are kept exactly. Used by {@link StepProfiler}.
+ * Histograms are not thread-safe.
+ */
+public final class TimeHistogram {
+    private static final int BUCKETS = 64;
+
+    private final long[] buckets = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * Records a duration.
+     * @param nanos the duration (negative durations, e.g., due to a clock adjusting, count as 0).
+     */
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    /**
+     * Adds the durations recorded by another histogram to this histogram.
+     * @param other the histogram to add.
+     */
+    void add(TimeHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) buckets[i] += other.buckets[i];
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets every duration recorded.
+     */
+    void clear() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * @return a copy of the histogram.
+     */
+    TimeHistogram copy() {
+        TimeHistogram copy = new TimeHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * @return the amount of durations recorded.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the sum of the durations recorded in ns.
+     */
+    public long getTotalNanos() {
+        return total;
+    }
+
+    /**
+     * @return the longest duration recorded in ns (0 if none).
+     */
+    public long getMaxNanos() {
+        return max;
+    }
+
+    /**
+     * @return the mean duration in ns (0 if none were recorded).
+     */
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Provides an upper bound of a percentile of the durations, i.e., the end of the bucket holding it (but no more than the maximum).
+     * @param percentile between 0 and 100 (e.g., 99 for the duration which 99% of the durations did not exceed).
+     * @return the bound in ns (0 if none were recorded).
+     * @throws IllegalArgumentException
+     *          if the percentile is out of bounds.
+     */
+    public long getPercentileNanos(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) return i == 0 ? 0 : Math.min(max, (1L << i) - 1);
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d times, %.1f us mean, %.1f us p99, %.1f us max",
+                count, getMeanNanos() / 1e3, getPercentileNanos(99) / 1e3, max / 1e3);
+    }
+}
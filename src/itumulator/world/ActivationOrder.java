@@ -0,0 +1,54 @@
+package itumulator.world;
+
+/**
+ * Decides the order in which the objects of a {@link World} are activated each step (see {@link World#setActivationOrder(ActivationOrder)}),
+ * by ranking the tiles of the map. Objects on tiles of a lower rank are visited first, so an order which ranks nearby tiles closely
+ * lets consecutive actors work on nearby parts of the map (which tend to be in the cache already).
+ * Ranks are compared as unsigned integers, i.e., every int is a valid rank and -1 is the highest. Objects on tiles of equal rank are
+ * visited in the order of their internal handles, and objects which are not on the map are visited last.
+ */
+@FunctionalInterface
+public interface ActivationOrder {
+    /** The largest chunk size supported by {@link #rowMajorChunks(int)}. */
+    int MAX_CHUNK_SIZE = 1024;
+
+    /**
+     * Visits the tiles along a Z-order curve, i.e., by interleaving the bits of the coordinates, so that every aligned square of
+     * 2x2, 4x4, 8x8, ... tiles is visited before moving on to the next.
+     */
+    ActivationOrder MORTON = (x, y, size) -> spread(x) | spread(y) << 1;
+
+    /**
+     * Ranks a tile.
+     * @param x coordinate of the tile.
+     * @param y coordinate of the tile.
+     * @param size of the map.
+     * @return the rank of the tile (compared as an unsigned integer).
+     */
+    int rank(int x, int y, int size);
+
+    /**
+     * Provides an order visiting the map in square chunks, row by row, and the tiles of each chunk row by row.
+     * @param chunkSize the width (and height) of the chunks in tiles, where 1 visits the whole map row by row.
+     * @return the order.
+     * @throws IllegalArgumentException if the chunk size is less than 1 or greater than {@link #MAX_CHUNK_SIZE}.
+     */
+    static ActivationOrder rowMajorChunks(int chunkSize) {
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE)
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + MAX_CHUNK_SIZE + ".");
+        return (x, y, size) -> {
+            int chunksPerRow = (size + chunkSize - 1) / chunkSize;
+            int chunk = (y / chunkSize) * chunksPerRow + x / chunkSize;
+            return chunk * chunkSize * chunkSize + (y % chunkSize) * chunkSize + x % chunkSize; // at most (MAX_SIZE + MAX_CHUNK_SIZE)^2 < 2^32
+        };
+    }
+
+    // spreads the lower 16 bits of a coordinate over the even bits of an int
+    private static int spread(int v) {
+        v &= 0xFFFF;
+        v = (v | v << 8) & 0x00FF00FF;
+        v = (v | v << 4) & 0x0F0F0F0F;
+        v = (v | v << 2) & 0x33333333;
+        return (v | v << 1) & 0x55555555;
+    }
+}
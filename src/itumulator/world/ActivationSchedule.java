@@ -0,0 +1,113 @@
+package itumulator.world;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the objects of a {@link World} which are not dormant sorted by an {@link ActivationOrder}. The sorted handles are kept from
+ * one step to the next, and only repaired when refreshed: objects which moved are re-ranked in place and moved into position (as
+ * most objects move at most a few tiles, only few of them move far in the order), objects deleted or fallen dormant are dropped,
+ * and objects added or woken since are sorted on their own and merged in. Those are found 64 handles at a time from the dormancy
+ * bits of the {@link EntityIndex}, so refreshing costs about a pass over the objects which are awake rather than a full sort.
+ * The same objects in the same places always end up in the same order, regardless of how they got there.
+ */
+final class ActivationSchedule {
+    private static final int NOT_ON_MAP = -1; // the highest rank
+
+    private final ActivationOrder order;
+    private final int size;
+    private long[] entries; // rank (flipped to compare as signed) << 32 | handle, sorted
+    private long[] merged; // scratch space for merging in the entries added
+    private long[] scheduled; // bit per handle, set while the handle is among the entries
+    private int count;
+
+    ActivationSchedule(ActivationOrder order, int size) {
+        this.order = order;
+        this.size = size;
+        this.entries = new long[16];
+        this.merged = new long[0];
+        this.scheduled = new long[1];
+    }
+
+    ActivationOrder order() {
+        return order;
+    }
+
+    /**
+     * Brings the order up to date with the objects of the world which are not dormant and their current positions.
+     * @param index of the objects of the world.
+     * @return the handles of the objects, in order (a new array which is not modified afterwards).
+     */
+    int[] refresh(EntityIndex index) {
+        int limit = index.limit();
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int handle = (int) entries[i];
+            if (index.entity(handle) != null && !index.isDormant(handle)) {
+                entries[kept++] = entry(index, handle);
+            } else {
+                scheduled[handle >>> 6] &= ~(1L << handle); // deleted (its handle may be reused later on) or dormant
+            }
+        }
+        count = kept;
+        insertionSort(kept);
+
+        if (scheduled.length < (limit + 63) >>> 6) scheduled = Arrays.copyOf(scheduled, Math.max(scheduled.length * 2, (limit + 63) >>> 6));
+        for (int word = 0; word << 6 < limit; word++) {
+            long missing = ~(scheduled[word] | index.dormantWord(word));
+            if ((word + 1) << 6 > limit) missing &= (1L << limit) - 1;
+            while (missing != 0) {
+                int handle = word << 6 | Long.numberOfTrailingZeros(missing);
+                missing &= missing - 1;
+                if (index.entity(handle) == null) continue; // free
+                if (count == entries.length) entries = Arrays.copyOf(entries, count * 2);
+                entries[count++] = entry(index, handle);
+                scheduled[word] |= 1L << handle;
+            }
+        }
+        if (count > kept) {
+            Arrays.sort(entries, kept, count);
+            merge(kept);
+        }
+
+        int[] handles = new int[count];
+        for (int i = 0; i < count; i++) handles[i] = (int) entries[i];
+        return handles;
+    }
+
+    private long entry(EntityIndex index, int handle) {
+        int position = index.position(handle);
+        int rank = position == EntityIndex.NOT_ON_MAP ? NOT_ON_MAP : order.rank(position % size, position / size, size);
+        return (long) (rank ^ Integer.MIN_VALUE) << 32 | handle;
+    }
+
+    // sorts the first entries, which are mostly sorted already, falling back to a full sort if too many are out of place
+    private void insertionSort(int length) {
+        long budget = 4L * length + 64;
+        for (int i = 1; i < length; i++) {
+            long entry = entries[i];
+            int j = i - 1;
+            if (entries[j] <= entry) continue;
+            while (j >= 0 && entries[j] > entry) {
+                entries[j + 1] = entries[j];
+                j--;
+            }
+            entries[j + 1] = entry;
+            budget -= i - j;
+            if (budget < 0) {
+                Arrays.sort(entries, 0, length);
+                return;
+            }
+        }
+    }
+
+    // merges the sorted entries from the given index on into the sorted entries before it
+    private void merge(int from) {
+        if (from == 0 || entries[from - 1] <= entries[from]) return;
+        if (merged.length < count) merged = new long[entries.length];
+        int i = 0, j = from, k = 0;
+        while (i < from && j < count) merged[k++] = entries[i] <= entries[j] ? entries[i++] : entries[j++];
+        while (i < from) merged[k++] = entries[i++];
+        while (j < count) merged[k++] = entries[j++];
+        System.arraycopy(merged, 0, entries, 0, count);
+    }
+}
@@ -0,0 +1,184 @@
+package itumulator.world;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.random.RandomGenerator;
+
+/**
+ * Reads a checkpoint written by {@link CheckpointOutput}, in the same order as it was written. Every object of the checkpoint is
+ * created up front (see {@link Checkpointable}), so references can be read before the fields of the objects referred to, and the
+ * fields of the objects are read when the checkpoint is finished (see {@link #finish()}).
+ * <p>
+ * A checkpoint which is not in the format expected causes an {@link IllegalStateException} when read.
+ * </p>
+ */
+public final class CheckpointInput {
+    private final byte[] data;
+    private int position;
+    private final Checkpointable[] objects; // by number
+    private boolean finished;
+
+    /**
+     * Reads the whole checkpoint from a stream and creates its objects.
+     * @param in to read the checkpoint from.
+     * @throws IOException if the stream fails.
+     * @throws IllegalStateException if the stream does not contain a checkpoint, or if an object cannot be created.
+     */
+    public CheckpointInput(InputStream in) throws IOException {
+        this.data = in.readAllBytes();
+        int magic = 0;
+        for (int i = 0; i < 4; i++) magic = (magic << 8) | readByte();
+        if (magic != CheckpointOutput.MAGIC)
+            throw new IllegalStateException("Not a checkpoint");
+        int version = readInt();
+        if (version != CheckpointOutput.VERSION)
+            throw new IllegalStateException("Unsupported checkpoint version " + version);
+
+        Constructor<?>[] constructors = new Constructor<?>[readCount()];
+        for (int i = 0; i < constructors.length; i++) {
+            int length = readCount();
+            if (length > data.length - position) throw new IllegalStateException("Checkpoint is truncated");
+            String name = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            constructors[i] = constructorOf(name);
+        }
+        objects = new Checkpointable[readCount()];
+        for (int i = 0; i < objects.length; i++) {
+            int index = readCount();
+            if (index >= constructors.length) throw new IllegalStateException("Checkpoint is corrupt");
+            try {
+                objects[i] = (Checkpointable) constructors[index].newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create a " + constructors[index].getDeclaringClass().getName(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the value read.
+     */
+    public int readInt() {
+        long value = readLong();
+        if (value != (int) value) throw new IllegalStateException("Checkpoint is corrupt");
+        return (int) value;
+    }
+
+    /**
+     * @return the value read.
+     */
+    public long readLong() {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 63) throw new IllegalStateException("Checkpoint is corrupt");
+            int b = readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * @return the value read.
+     */
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    /**
+     * @return the value read.
+     */
+    public double readDouble() {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) bits = (bits << 8) | readByte();
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * @return the location read (can be null).
+     */
+    public Location readLocation() {
+        int x = readInt();
+        if (x == -1) return null;
+        return new Location(x, readInt());
+    }
+
+    /**
+     * @return a stream continuing with the numbers of the stream written (can be null).
+     */
+    public RandomGenerator readRandom() {
+        if (!readBoolean()) return null;
+        long seed = readLong();
+        long gamma = readLong();
+        return new SplitMixRandom(seed, gamma);
+    }
+
+    /**
+     * Reads a reference to an object.
+     * @param <T> the type of the object.
+     * @param type the type of the object.
+     * @return the object referred to (can be null), whose fields may not have been read yet.
+     * @throws IllegalStateException if the object is not of the given type.
+     */
+    public <T> T readObject(Class<T> type) {
+        int id = readCount();
+        if (id == 0) return null;
+        if (id > objects.length) throw new IllegalStateException("Checkpoint is corrupt");
+        Object o = objects[id - 1];
+        if (!type.isInstance(o))
+            throw new IllegalStateException("Expected a " + type.getName() + " but found a " + o.getClass().getName());
+        return type.cast(o);
+    }
+
+    /**
+     * Reads the references written by {@link CheckpointOutput#writeObjects(java.util.List)} into a collection.
+     * @param <T> the type of the objects.
+     * @param type the type of the objects.
+     * @param into the collection to add the objects to.
+     */
+    public <T> void readObjects(Class<T> type, Collection<? super T> into) {
+        int count = readCount();
+        for (int i = 0; i < count; i++) into.add(readObject(type));
+    }
+
+    /**
+     * Reads the fields of every object of the checkpoint. Nothing can be read afterwards.
+     * @throws IllegalStateException if already finished, or if anything was left unread.
+     */
+    public void finish() {
+        if (finished) throw new IllegalStateException("Checkpoint is already finished");
+        finished = true;
+        for (Checkpointable o : objects) o.readState(this);
+        if (position != data.length) throw new IllegalStateException("Checkpoint is corrupt");
+    }
+
+    // Private methods
+
+    private int readByte() {
+        if (position >= data.length) throw new IllegalStateException("Checkpoint is truncated");
+        return data[position++] & 0xFF;
+    }
+
+    private int readCount() {
+        int count = readInt();
+        if (count < 0) throw new IllegalStateException("Checkpoint is corrupt");
+        return count;
+    }
+
+    private static Constructor<?> constructorOf(String name) {
+        try {
+            Class<?> type = Class.forName(name);
+            if (!Checkpointable.class.isAssignableFrom(type))
+                throw new IllegalStateException(name + " is not Checkpointable");
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unknown class " + name, e);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(name + " has no constructor without parameters", e);
+        }
+    }
+}
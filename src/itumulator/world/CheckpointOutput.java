@@ -0,0 +1,172 @@
+package itumulator.world;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Writes a checkpoint of the state of a simulation in a compact binary format, which {@link CheckpointInput} reads back.
+ * Numbers are written as variable length integers (so small numbers take a single byte), and objects are written once
+ * no matter how often they are referred to, by giving each a number when first seen. The fields of the objects referred
+ * to are written when the checkpoint is finished (see {@link #finish()}).
+ * <p>
+ * Everything is collected in memory, so nothing is written to the stream unless the whole checkpoint succeeds.
+ * </p>
+ */
+public final class CheckpointOutput {
+    static final int MAGIC = 0x49545543; // "ITUC"
+    static final int VERSION = 1;
+
+    private final OutputStream out;
+    private final ByteArrayOutputStream body;
+    private final Map<Object, Integer> ids; // object -> number
+    private final List<Checkpointable> objects; // by number
+    private final Map<Class<?>, Integer> classes; // class -> index in the class table
+    private boolean finished;
+
+    /**
+     * @param out to write the checkpoint to once finished.
+     */
+    public CheckpointOutput(OutputStream out) {
+        this.out = out;
+        this.body = new ByteArrayOutputStream();
+        this.ids = new IdentityHashMap<>();
+        this.objects = new ArrayList<>();
+        this.classes = new HashMap<>();
+    }
+
+    /**
+     * @param value to write (takes fewer bytes the closer it is to 0).
+     */
+    public void writeInt(int value) {
+        writeLong(value);
+    }
+
+    /**
+     * @param value to write (takes fewer bytes the closer it is to 0).
+     */
+    public void writeLong(long value) {
+        writeVarLong(body, value);
+    }
+
+    /**
+     * @param value to write.
+     */
+    public void writeBoolean(boolean value) {
+        body.write(value ? 1 : 0);
+    }
+
+    /**
+     * @param value to write.
+     */
+    public void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) body.write((int) (bits >>> shift));
+    }
+
+    /**
+     * @param location to write (can be null).
+     */
+    public void writeLocation(Location location) {
+        if (location == null) {
+            writeInt(-1);
+        } else {
+            writeInt(location.getX());
+            writeInt(location.getY());
+        }
+    }
+
+    /**
+     * Writes the state of a random stream, such that the restored stream continues with the same numbers.
+     * @param random to write (can be null).
+     * @throws IllegalArgumentException if the stream was not provided by a world (e.g., a {@link java.util.Random} given by a test).
+     */
+    public void writeRandom(RandomGenerator random) {
+        if (random == null) {
+            writeBoolean(false);
+            return;
+        }
+        if (!(random instanceof SplitMixRandom stream))
+            throw new IllegalArgumentException("Only random streams provided by a world can be checkpointed, not " + random.getClass().getName());
+        writeBoolean(true);
+        writeLong(stream.getSeed());
+        writeLong(stream.getGamma());
+    }
+
+    /**
+     * Writes a reference to an object. The fields of the object are written once, however many references to it are written.
+     * @param object to refer to (can be null).
+     * @throws IllegalArgumentException if the object does not implement {@link Checkpointable}.
+     */
+    public void writeObject(Object object) {
+        if (object == null) {
+            writeInt(0);
+            return;
+        }
+        Integer id = ids.get(object);
+        if (id == null) {
+            if (!(object instanceof Checkpointable checkpointable))
+                throw new IllegalArgumentException("Cannot checkpoint " + object.getClass().getName() + " as it is not Checkpointable");
+            id = objects.size();
+            ids.put(object, id);
+            objects.add(checkpointable);
+            classes.putIfAbsent(object.getClass(), classes.size());
+        }
+        writeInt(id + 1);
+    }
+
+    /**
+     * Writes the amount of objects in a list followed by references to them (see {@link #writeObject(Object)}).
+     * @param list of objects to refer to.
+     */
+    public void writeObjects(List<?> list) {
+        writeInt(list.size());
+        for (Object o : list) writeObject(o);
+    }
+
+    /**
+     * Writes the fields of every object referred to and then writes the whole checkpoint to the stream. Nothing can be written afterwards.
+     * @throws IOException if the stream fails.
+     * @throws IllegalStateException if already finished.
+     */
+    public void finish() throws IOException {
+        if (finished) throw new IllegalStateException("Checkpoint is already finished");
+        for (int i = 0; i < objects.size(); i++) { // objects first referred to by the fields of others are appended meanwhile
+            objects.get(i).writeState(this);
+        }
+        finished = true;
+
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        for (int shift = 24; shift >= 0; shift -= 8) head.write(MAGIC >>> shift);
+        writeVarLong(head, VERSION);
+        String[] names = new String[classes.size()];
+        classes.forEach((c, i) -> names[i] = c.getName());
+        writeVarLong(head, names.length);
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(head, bytes.length);
+            head.write(bytes, 0, bytes.length);
+        }
+        writeVarLong(head, objects.size());
+        for (Checkpointable o : objects) writeVarLong(head, classes.get(o.getClass()));
+        head.writeTo(out);
+        body.writeTo(out);
+        out.flush();
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream to, long value) {
+        long v = (value << 1) ^ (value >> 63); // zigzag, so small negative numbers are small as well
+        while ((v & ~0x7FL) != 0) {
+            to.write((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        to.write((int) v);
+    }
+}
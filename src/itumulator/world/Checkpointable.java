@@ -0,0 +1,22 @@
+package itumulator.world;
+
+/**
+ * By implementing this interface, an object can be part of a checkpoint of a {@link World} (see {@link World#checkpoint(CheckpointOutput)}),
+ * i.e., every object within a world checkpointed and every object they refer to must implement it. When restoring, the object is
+ * created using its constructor without parameters (which may be private) and its fields are then read back in the order written.
+ * Subclasses adding fields should write and read them after calling the methods of their superclass.
+ */
+public interface Checkpointable {
+
+    /**
+     * Writes the fields of the object.
+     * @param out to write to.
+     */
+    public void writeState(CheckpointOutput out);
+
+    /**
+     * Reads the fields of the object, as written by {@link #writeState(CheckpointOutput)}. Objects referred to may not have been read yet.
+     * @param in to read from.
+     */
+    public void readState(CheckpointInput in);
+}
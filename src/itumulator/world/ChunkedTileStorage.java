@@ -0,0 +1,57 @@
+package itumulator.world;
+
+/**
+ * Stores the map in square chunks of tiles which are only allocated once something is placed within them, and released again
+ * once they become empty. Memory use is thereby proportional to the populated area of the map rather than its size, which allows
+ * sparsely populated maps far larger than what could be allocated up front.
+ */
+final class ChunkedTileStorage implements TileStorage {
+    /** The width (and height) of a chunk in tiles (as a power of two). */
+    static final int CHUNK_SHIFT = 4;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int chunksPerSide;
+    private final Object[][] chunks; // chunk -> layers of its tiles ((y * CHUNK_SIZE + x) * 2 + layer), null if empty
+    private final int[] occupied; // chunk -> amount of objects within it
+
+    ChunkedTileStorage(int size) {
+        this.chunksPerSide = (size + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunks = new Object[chunksPerSide * chunksPerSide][];
+        this.occupied = new int[chunksPerSide * chunksPerSide];
+    }
+
+    @Override
+    public Object get(int x, int y, int layer) {
+        Object[] chunk = chunks[chunk(x, y)];
+        if (chunk == null) return null;
+        return chunk[slot(x, y, layer)];
+    }
+
+    @Override
+    public void set(int x, int y, int layer, Object o) {
+        int c = chunk(x, y);
+        Object[] chunk = chunks[c];
+        if (chunk == null) {
+            if (o == null) return;
+            chunk = new Object[CHUNK_SIZE * CHUNK_SIZE * 2];
+            chunks[c] = chunk;
+        }
+        int slot = slot(x, y, layer);
+        Object previous = chunk[slot];
+        chunk[slot] = o;
+        if (previous == null && o != null) {
+            occupied[c]++;
+        } else if (previous != null && o == null && --occupied[c] == 0) {
+            chunks[c] = null; // release empty chunks
+        }
+    }
+
+    private int chunk(int x, int y) {
+        return (y >> CHUNK_SHIFT) * chunksPerSide + (x >> CHUNK_SHIFT);
+    }
+
+    private static int slot(int x, int y, int layer) {
+        return ((((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)) << 1) | layer;
+    }
+}
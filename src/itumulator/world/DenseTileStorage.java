@@ -0,0 +1,27 @@
+package itumulator.world;
+
+/**
+ * Stores every tile of the map up front, as one flat array per layer indexed by {@code y * size + x}.
+ * This is the fastest storage for small and densely populated maps, and row by row scans of the map read memory sequentially.
+ */
+final class DenseTileStorage implements TileStorage {
+    private final int size;
+    private final Object[] nonBlocking;
+    private final Object[] blocking;
+
+    DenseTileStorage(int size) {
+        this.size = size;
+        this.nonBlocking = new Object[size * size];
+        this.blocking = new Object[size * size];
+    }
+
+    @Override
+    public Object get(int x, int y, int layer) {
+        return (layer == 0 ? nonBlocking : blocking)[y * size + x];
+    }
+
+    @Override
+    public void set(int x, int y, int layer, Object o) {
+        (layer == 0 ? nonBlocking : blocking)[y * size + x] = o;
+    }
+}
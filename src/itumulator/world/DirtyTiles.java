@@ -0,0 +1,103 @@
+package itumulator.world;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of the tiles of a {@link World} which changed since they were last cleared, i.e., tiles on which an object was
+ * placed or from which an object was lifted, as well as tiles marked using {@link World#markDirty(Location)}.
+ * This allows renderers to redraw only what changed. Obtained through {@link World#getDirtyTiles()}.
+ * <p>
+ * Each tile is listed at most once. If a large part of the map changes, the individual tiles are no longer listed and
+ * {@link #isAll()} reports that everything should be considered changed instead.
+ * </p>
+ */
+public final class DirtyTiles {
+    private final int size;
+    private final int limit; // listing more tiles than this is pointless compared to redrawing everything
+    private final long[] bits; // one bit per tile, indexed by y * size + x
+    private int[] positions;
+    private int count;
+    private boolean all;
+
+    DirtyTiles(int size) {
+        this.size = size;
+        this.limit = Math.max(64, size * size / 8);
+        this.bits = new long[(size * size + 63) >> 6];
+        this.positions = new int[64];
+        this.all = true; // nothing has been drawn yet
+    }
+
+    /**
+     * @return true if every tile should be considered changed (the individual tiles are then not listed).
+     */
+    public boolean isAll() {
+        return all;
+    }
+
+    /**
+     * @return the amount of tiles listed as changed.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param i the index of a changed tile (below {@link #size()}).
+     * @return the x coordinate of the tile.
+     */
+    public int getX(int i) {
+        validateIndex(i);
+        return positions[i] % size;
+    }
+
+    /**
+     * @param i the index of a changed tile (below {@link #size()}).
+     * @return the y coordinate of the tile.
+     */
+    public int getY(int i) {
+        validateIndex(i);
+        return positions[i] / size;
+    }
+
+    /**
+     * Considers every tile changed, e.g., when the way objects are drawn changes.
+     */
+    public void markAll() {
+        all = true;
+        count = 0;
+    }
+
+    /**
+     * Forgets all changes, e.g., once they have been drawn.
+     */
+    public void clear() {
+        if (all) {
+            Arrays.fill(bits, 0);
+        } else {
+            for (int i = 0; i < count; i++) {
+                bits[positions[i] >> 6] = 0;
+            }
+        }
+        count = 0;
+        all = false;
+    }
+
+    void mark(int position) {
+        if (all) return;
+        long bit = 1L << position;
+        if ((bits[position >> 6] & bit) != 0) return;
+        bits[position >> 6] |= bit;
+        if (count == limit) {
+            all = true;
+            count = 0;
+            return;
+        }
+        if (count == positions.length) positions = Arrays.copyOf(positions, count * 2);
+        positions[count++] = position;
+    }
+
+    private void validateIndex(int i) {
+        if (i < 0 || i >= count)
+            throw new IndexOutOfBoundsException("No tile with index " + i);
+    }
+}
@@ -0,0 +1,235 @@
+package itumulator.world;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of what the dormant objects of a {@link World} are waiting for (see {@link World#sleep(Object)}), i.e., the start of
+ * the day, a step or a change of the tiles near them. Whether an object is dormant is kept by the {@link EntityIndex}, and each wait
+ * remembers the time the object became dormant, so waits outlived by an explicit wake up (or by the object being deleted) are
+ * simply ignored once their time comes. Objects may fall dormant on several threads at once.
+ */
+final class Dormancy {
+    private static final int BLOCK_SHIFT = 4; // tiles are watched in blocks of 16x16 tiles
+    // what a dormant object waits for, as written to checkpoints
+    private static final int UNTIL_WOKEN = 0;
+    private static final int UNTIL_DAY = 1;
+    private static final int UNTIL_STEP = 2;
+    private static final int UNTIL_DISTURBED = 3;
+
+    private final EntityIndex entities;
+    private final int blocksPerSide;
+    private final List<Sleeper> untilDay;
+    private final TimerWheel<Sleeper> timers;
+    private final Map<Integer, List<Sleeper>> watchers; // block -> sleepers watching tiles in it
+    private volatile int watching; // sleepers waiting to be disturbed
+
+    Dormancy(EntityIndex entities, int size) {
+        this.entities = entities;
+        this.blocksPerSide = (size + (1 << BLOCK_SHIFT) - 1) >> BLOCK_SHIFT;
+        this.untilDay = new ArrayList<>();
+        this.timers = new TimerWheel<>();
+        this.watchers = new HashMap<>();
+    }
+
+    /**
+     * Marks an object dormant until it is woken explicitly.
+     * @param handle of the object.
+     * @return identifies this time of becoming dormant.
+     */
+    int sleep(int handle) {
+        return entities.setDormant(handle);
+    }
+
+    synchronized void sleepUntilDay(int handle, Object object) {
+        untilDay.add(new Sleeper(object, sleep(handle)));
+    }
+
+    synchronized void sleepUntil(int handle, Object object, long step) {
+        timers.schedule(new Sleeper(object, sleep(handle)), step);
+    }
+
+    /**
+     * Marks an object dormant until a tile near it changes, or until a step if given.
+     * @param step to wake the object at regardless, or -1 to wait for a change only.
+     */
+    synchronized void sleepUntilDisturbed(int handle, Object object, int x, int y, int radius, int size, long step) {
+        Sleeper sleeper = new Sleeper(object, sleep(handle), x, y, radius);
+        if (step >= 0) timers.schedule(sleeper, step); // whichever comes first wakes the sleeper, and the other finds it done
+        int fromX = Math.max(0, x - radius) >> BLOCK_SHIFT, toX = Math.min(size - 1, x + radius) >> BLOCK_SHIFT;
+        int fromY = Math.max(0, y - radius) >> BLOCK_SHIFT, toY = Math.min(size - 1, y + radius) >> BLOCK_SHIFT;
+        for (int by = fromY; by <= toY; by++) {
+            for (int bx = fromX; bx <= toX; bx++) {
+                watchers.computeIfAbsent(by * blocksPerSide + bx, b -> new ArrayList<>()).add(sleeper);
+            }
+        }
+        watching++;
+    }
+
+    /**
+     * Wakes the sleepers waiting for the start of the day.
+     */
+    synchronized void dayStarted() {
+        for (Sleeper sleeper : untilDay) wake(sleeper);
+        untilDay.clear();
+    }
+
+    /**
+     * Wakes the sleepers waiting for a step (or an earlier step).
+     * @param step the step just started.
+     */
+    synchronized void stepStarted(long step) {
+        timers.advanceTo(step, this::wake);
+    }
+
+    /**
+     * @return true if any sleeper waits for a tile to change (so {@link #changed(int, int)} needs to be called).
+     */
+    boolean isWatching() {
+        return watching > 0;
+    }
+
+    /**
+     * Wakes the sleepers watching a tile which just changed.
+     * @param x coordinate of the tile.
+     * @param y coordinate of the tile.
+     */
+    synchronized void changed(int x, int y) {
+        List<Sleeper> sleepers = watchers.get((y >> BLOCK_SHIFT) * blocksPerSide + (x >> BLOCK_SHIFT));
+        if (sleepers == null) return;
+        for (Iterator<Sleeper> it = sleepers.iterator(); it.hasNext(); ) {
+            Sleeper sleeper = it.next();
+            if (sleeper.done) {
+                it.remove(); // woken by another block (or stale)
+            } else if (Math.abs(sleeper.x - x) <= sleeper.radius && Math.abs(sleeper.y - y) <= sleeper.radius) {
+                wake(sleeper);
+                it.remove();
+            }
+        }
+        if (watching == 0) {
+            watchers.clear();
+        } else if (sleepers.isEmpty()) {
+            watchers.remove((y >> BLOCK_SHIFT) * blocksPerSide + (x >> BLOCK_SHIFT));
+        }
+    }
+
+    /**
+     * Writes what every dormant object waits for, leaving out sleepers outlived by an explicit wake up (as they no longer do anything).
+     * @param out the checkpoint to write to.
+     * @param limit one past the highest handle in use.
+     */
+    synchronized void checkpoint(CheckpointOutput out, int limit) {
+        Map<Integer, Sleeper> live = new HashMap<>(); // handle -> what its object waits for
+        Map<Sleeper, Long> steps = new IdentityHashMap<>();
+        for (Sleeper sleeper : untilDay) {
+            if (isLive(sleeper)) live.put(entities.handleOf(sleeper.object), sleeper);
+        }
+        timers.forEach((sleeper, step) -> {
+            if (isLive(sleeper)) {
+                live.put(entities.handleOf(sleeper.object), sleeper);
+                steps.put(sleeper, step);
+            }
+        });
+        for (List<Sleeper> sleepers : watchers.values()) {
+            for (Sleeper sleeper : sleepers) {
+                if (isLive(sleeper)) live.put(entities.handleOf(sleeper.object), sleeper);
+            }
+        }
+
+        int dormant = 0;
+        for (int handle = 0; handle < limit; handle++) {
+            if (entities.isDormant(handle)) dormant++;
+        }
+        out.writeInt(dormant);
+        for (int handle = 0; handle < limit; handle++) {
+            if (!entities.isDormant(handle)) continue;
+            out.writeInt(handle);
+            Sleeper sleeper = live.get(handle);
+            if (sleeper == null) {
+                out.writeInt(UNTIL_WOKEN);
+            } else if (sleeper.radius >= 0) {
+                out.writeInt(UNTIL_DISTURBED);
+                out.writeInt(sleeper.x);
+                out.writeInt(sleeper.y);
+                out.writeInt(sleeper.radius);
+                out.writeLong(steps.getOrDefault(sleeper, -1L));
+            } else if (steps.containsKey(sleeper)) {
+                out.writeInt(UNTIL_STEP);
+                out.writeLong(steps.get(sleeper));
+            } else {
+                out.writeInt(UNTIL_DAY);
+            }
+        }
+    }
+
+    /**
+     * Makes the objects of a restored world dormant again (see {@link #checkpoint(CheckpointOutput, int)}).
+     * @param in the checkpoint to read from.
+     * @param step the step the world restored is at.
+     * @param size of the map.
+     */
+    synchronized void restore(CheckpointInput in, long step, int size) {
+        timers.advanceTo(step, this::wake); // nothing is scheduled yet, so the wheel merely catches up with the world
+        int dormant = in.readInt();
+        for (int i = 0; i < dormant; i++) {
+            int handle = in.readInt();
+            Object object = handle >= 0 && handle < entities.limit() ? entities.entity(handle) : null;
+            if (object == null) throw new IllegalStateException("Checkpoint is corrupt");
+            switch (in.readInt()) {
+                case UNTIL_WOKEN -> sleep(handle);
+                case UNTIL_DAY -> sleepUntilDay(handle, object);
+                case UNTIL_STEP -> sleepUntil(handle, object, in.readLong());
+                case UNTIL_DISTURBED -> {
+                    int x = in.readInt();
+                    int y = in.readInt();
+                    int radius = in.readInt();
+                    sleepUntilDisturbed(handle, object, x, y, radius, size, in.readLong());
+                }
+                default -> throw new IllegalStateException("Checkpoint is corrupt");
+            }
+        }
+    }
+
+    // determines whether a sleeper would still wake its object
+    private boolean isLive(Sleeper sleeper) {
+        if (sleeper.done) return false;
+        int handle = entities.handleOf(sleeper.object);
+        return handle != EntityIndex.NO_HANDLE && entities.isDormant(handle) && entities.sleepId(handle) == sleeper.id;
+    }
+
+    // wakes a sleeper if its object is still dormant since the time the sleeper was created
+    private void wake(Sleeper sleeper) {
+        if (sleeper.done) return;
+        sleeper.done = true;
+        if (sleeper.radius >= 0) watching--;
+        int handle = entities.handleOf(sleeper.object);
+        if (handle != EntityIndex.NO_HANDLE && entities.isDormant(handle) && entities.sleepId(handle) == sleeper.id) {
+            entities.setAwake(handle);
+        }
+    }
+
+    private static final class Sleeper {
+        private final Object object;
+        private final int id;
+        private final int x;
+        private final int y;
+        private final int radius; // of the tiles watched, or -1 if not watching any
+        private boolean done;
+
+        Sleeper(Object object, int id) {
+            this(object, id, 0, 0, -1);
+        }
+
+        Sleeper(Object object, int id, int x, int y, int radius) {
+            this.object = object;
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+        }
+    }
+}
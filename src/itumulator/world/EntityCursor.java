@@ -0,0 +1,89 @@
+package itumulator.world;
+
+/**
+ * Iterates the objects of a {@link World} directly from its internal index, i.e., without copying them. Obtained through
+ * {@link World#entityCursor()} (or {@link World#entityCursors(int)} to iterate using several threads), or through
+ * {@link World#entityCursor(boolean)} to skip the dormant objects (see {@link World#sleep(Object)}). Cursors obtained through
+ * {@link World#activationCursors(int)} visit the objects in the activation order of the world (see {@link World#setActivationOrder(ActivationOrder)}),
+ * which is fixed when the cursor is created.
+ * <p>
+ * The cursor is stable while the world is modified: an object deleted before the cursor reaches it is skipped, and any
+ * object added after the cursor was created is not visited, even if it reuses the internal slot of a deleted object.
+ * </p>
+ */
+public final class EntityCursor {
+    private final World world;
+    private final EntityIndex index;
+    private final int generation;
+    private final int[] order; // handles in the order to visit them, or null to visit them by handle
+    private final int from;
+    private final int limit;
+    private final boolean awakeOnly;
+    private int position; // within the order (or the handle itself)
+    private int handle;
+
+    EntityCursor(World world, EntityIndex index, boolean awakeOnly) {
+        this(world, index, index.nextGeneration(), null, 0, index.limit(), awakeOnly);
+    }
+
+    // a cursor visiting the objects with handles from (inclusive) up to limit (exclusive), or those of the handles of the order
+    // at positions from up to limit
+    EntityCursor(World world, EntityIndex index, int generation, int[] order, int from, int limit, boolean awakeOnly) {
+        this.world = world;
+        this.index = index;
+        this.generation = generation;
+        this.order = order;
+        this.from = from;
+        this.limit = limit;
+        this.awakeOnly = awakeOnly;
+        this.position = from - 1;
+        this.handle = -1;
+    }
+
+    /**
+     * Advances the cursor to the next object.
+     * @return true if the cursor is positioned on an object, false if there are no more objects.
+     */
+    public boolean next() {
+        if (order != null) {
+            while (++position < limit) {
+                handle = order[position];
+                if (awakeOnly && index.isDormant(handle)) continue;
+                if (index.entity(handle) != null && index.registeredBefore(handle, generation)) return true;
+            }
+            return false;
+        }
+        while (++position < limit) {
+            if (awakeOnly && (position = index.nextAwake(position, limit)) == limit) break;
+            handle = position;
+            if (index.entity(handle) != null && index.registeredBefore(handle, generation)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Provides the object the cursor is currently positioned on.
+     * @return the current object.
+     * @throws IllegalStateException if the cursor is not positioned on an object.
+     */
+    public Object entity() {
+        validatePosition();
+        return index.entity(handle);
+    }
+
+    /**
+     * Provides the location of the object the cursor is currently positioned on (at the time of calling).
+     * @return the location of the current object or null if it is not currently on the map.
+     * @throws IllegalStateException if the cursor is not positioned on an object.
+     */
+    public Location location() {
+        validatePosition();
+        int position = index.position(handle);
+        return position == EntityIndex.NOT_ON_MAP ? null : world.toLocation(position);
+    }
+
+    private void validatePosition() {
+        if (position < from || position >= limit || index.entity(handle) == null || !index.registeredBefore(handle, generation))
+            throw new IllegalStateException("Cursor is not positioned on an object");
+    }
+}
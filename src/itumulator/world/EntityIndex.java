@@ -0,0 +1,364 @@
+package itumulator.world;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Keeps track of every object within a {@link World}. Each object is given a dense integer handle when it enters the world,
+ * and the tile it resides on is stored as a packed index ({@code y * size + x}) in a primitive array indexed by that handle.
+ * Objects are looked up by identity (using an open addressing table), so finding the handle of an object costs a single hash
+ * and looking up its position costs a single array read afterwards.
+ * Handles of deleted objects are reused by objects added later on.
+ * Each handle is stamped with the generation it was registered in, which allows iterations to tell apart objects that
+ * were added after the iteration began (including objects which were given the handle of a deleted object).
+ * <p>
+ * While concurrent (see {@link #setConcurrent(boolean)}), objects can be registered and looked up by several threads at once.
+ * The arrays indexed by handle are split into pages which are never moved once allocated, so positions can be updated without
+ * locking, whereas registrations are serialized and lookups validate that no registration happened while they were searching.
+ * </p>
+ * <p>
+ * Objects can be marked dormant (see {@link World#sleep(Object)}), which is kept as a bit per handle so that iterations can skip
+ * 64 dormant objects at a time.
+ * </p>
+ */
+final class EntityIndex {
+    /** Position used for objects which exist in the world but are not placed on the map. */
+    static final int NOT_ON_MAP = -1;
+    /** Returned when an object has no handle (i.e., it does not exist in the world). */
+    static final int NO_HANDLE = -1;
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int INITIAL_TABLE_CAPACITY = 128;
+    private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // handle -> entity / position (by page of PAGE_SIZE handles)
+    private Object[][] entities;
+    private int[][] positions;
+    private int[][] stamps; // generation each handle was registered in
+    private long[][] dormant; // bit per handle, set while the object is dormant (updated atomically)
+    private int[][] sleeps; // how many times each handle has become dormant, telling apart stale wake ups
+    private int generation;
+    private int limit; // one past the highest handle ever handed out
+    private int count;
+
+    // handles available for reuse (stack)
+    private int[] freeHandles;
+    private int freeCount;
+
+    // identity hash table: object -> handle
+    private Object[] keys;
+    private int[] values;
+    private int shift;
+
+    private final StampedLock lock; // guards registrations while concurrent
+    private boolean concurrent;
+
+    EntityIndex() {
+        entities = new Object[1][PAGE_SIZE];
+        positions = new int[1][PAGE_SIZE];
+        stamps = new int[1][PAGE_SIZE];
+        dormant = new long[1][PAGE_SIZE >>> 6];
+        sleeps = new int[1][PAGE_SIZE];
+        freeHandles = new int[PAGE_SIZE];
+        keys = new Object[INITIAL_TABLE_CAPACITY];
+        values = new int[INITIAL_TABLE_CAPACITY];
+        shift = 32 - Integer.numberOfTrailingZeros(keys.length);
+        lock = new StampedLock();
+    }
+
+    /**
+     * Sets whether the index is used by several threads at once. Must not be changed while other threads use the index.
+     * @param concurrent true if objects are registered and looked up concurrently from now on.
+     */
+    void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * Provides the handle of an object.
+     * @param o the object to look up.
+     * @return the handle of the object or {@link #NO_HANDLE} if it does not exist in the world.
+     */
+    int handleOf(Object o) {
+        if (!concurrent) return find(o);
+        long stamp = lock.tryOptimisticRead();
+        int handle = findOptimistically(o);
+        if (lock.validate(stamp)) return handle;
+        stamp = lock.readLock(); // an object was registered or removed while searching
+        try {
+            return find(o);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Registers an object and provides it a handle.
+     * @param o the object to register (must not already be registered).
+     * @param position the packed position of the object or {@link #NOT_ON_MAP}.
+     * @return the handle given to the object.
+     */
+    int register(Object o, int position) {
+        if (!concurrent) return add(o, position);
+        long stamp = lock.writeLock();
+        try {
+            return add(o, position);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes an object from the index, making its handle available for reuse.
+     * @param handle of the object to remove.
+     */
+    void unregister(int handle) {
+        if (!concurrent) {
+            remove(handle);
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            remove(handle);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    Object entity(int handle) {
+        return entities[handle >>> PAGE_SHIFT][handle & PAGE_MASK];
+    }
+
+    int position(int handle) {
+        return positions[handle >>> PAGE_SHIFT][handle & PAGE_MASK];
+    }
+
+    void setPosition(int handle, int position) {
+        positions[handle >>> PAGE_SHIFT][handle & PAGE_MASK] = position;
+    }
+
+    boolean isDormant(int handle) {
+        return (dormant[handle >>> PAGE_SHIFT][(handle & PAGE_MASK) >>> 6] & (1L << handle)) != 0;
+    }
+
+    /**
+     * @param word the index of a group of 64 handles, i.e., handles {@code word * 64} up to {@code word * 64 + 63} (below the limit).
+     * @return a bit per handle of the group, set if its object is dormant.
+     */
+    long dormantWord(int word) {
+        return dormant[word >>> (PAGE_SHIFT - 6)][word & (PAGE_MASK >>> 6)];
+    }
+
+    /**
+     * Marks the object of a handle dormant.
+     * @param handle of the object.
+     * @return identifies this time of becoming dormant (see {@link #sleepId(int)}).
+     */
+    int setDormant(int handle) {
+        BITS.getAndBitwiseOr(dormant[handle >>> PAGE_SHIFT], (handle & PAGE_MASK) >>> 6, 1L << handle);
+        return ++sleeps[handle >>> PAGE_SHIFT][handle & PAGE_MASK];
+    }
+
+    void setAwake(int handle) {
+        BITS.getAndBitwiseAnd(dormant[handle >>> PAGE_SHIFT], (handle & PAGE_MASK) >>> 6, ~(1L << handle));
+    }
+
+    /**
+     * @param handle of the object.
+     * @return identifies the latest time the object of a handle became dormant.
+     */
+    int sleepId(int handle) {
+        return sleeps[handle >>> PAGE_SHIFT][handle & PAGE_MASK];
+    }
+
+    /**
+     * Finds the first handle of an object which is not dormant (or a free handle), from a given handle up to a limit.
+     * @param handle to start searching from.
+     * @param limit to search up to (exclusive).
+     * @return the handle found, or limit if every handle searched is dormant.
+     */
+    int nextAwake(int handle, int limit) {
+        while (handle < limit) {
+            long[] page = dormant[handle >>> PAGE_SHIFT];
+            int word = (handle & PAGE_MASK) >>> 6;
+            long awake = ~page[word] & (-1L << handle);
+            while (awake == 0) {
+                handle = (handle | 63) + 1; // the start of the next word
+                if (handle >= limit) return limit;
+                if ((handle & PAGE_MASK) == 0) break; // continue on the next page
+                awake = ~page[++word];
+            }
+            if (awake != 0) return Math.min(limit, (handle & ~63) + Long.numberOfTrailingZeros(awake));
+        }
+        return limit;
+    }
+
+    /**
+     * Starts a new generation. Objects registered from now on are stamped with the returned generation.
+     * @return the generation just started.
+     */
+    int nextGeneration() {
+        return ++generation;
+    }
+
+    /**
+     * Determines whether the object of a handle was registered before the given generation began.
+     * @param handle of the object.
+     * @param generation as provided by {@link #nextGeneration()}.
+     * @return true if the object was registered in an earlier generation.
+     */
+    boolean registeredBefore(int handle, int generation) {
+        return stamps[handle >>> PAGE_SHIFT][handle & PAGE_MASK] - generation < 0; // overflow safe comparison
+    }
+
+    /**
+     * @return one past the highest handle currently in use (handles below may be free).
+     */
+    int limit() {
+        return limit;
+    }
+
+    /**
+     * @return the handles available for reuse, in the order they were freed (the last is reused first).
+     */
+    int[] freeHandles() {
+        return Arrays.copyOf(freeHandles, freeCount);
+    }
+
+    /**
+     * @return the amount of objects currently registered.
+     */
+    int size() {
+        return count;
+    }
+
+    // Private methods
+
+    private int add(Object o, int position) {
+        int handle;
+        if (freeCount > 0) {
+            handle = freeHandles[--freeCount];
+        } else {
+            if (limit == entities.length << PAGE_SHIFT) addPage();
+            handle = limit++;
+        }
+        entities[handle >>> PAGE_SHIFT][handle & PAGE_MASK] = o;
+        positions[handle >>> PAGE_SHIFT][handle & PAGE_MASK] = position;
+        stamps[handle >>> PAGE_SHIFT][handle & PAGE_MASK] = generation;
+        count++;
+
+        if ((count << 1) > keys.length) growTable();
+        insert(o, handle);
+        return handle;
+    }
+
+    private void remove(int handle) {
+        Object o = entity(handle);
+        entities[handle >>> PAGE_SHIFT][handle & PAGE_MASK] = null;
+        positions[handle >>> PAGE_SHIFT][handle & PAGE_MASK] = NOT_ON_MAP;
+        setAwake(handle);
+        count--;
+        freeHandles[freeCount++] = handle;
+        erase(o);
+    }
+
+    private int slot(Object o) {
+        return (System.identityHashCode(o) * 0x9E3779B9) >>> shift;
+    }
+
+    private int find(Object o) {
+        int mask = keys.length - 1;
+        int i = slot(o);
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (k == o) return values[i];
+            i = (i + 1) & mask;
+        }
+        return NO_HANDLE;
+    }
+
+    // searches while the table might be modified by another thread, so the result is only meaningful once validated
+    private int findOptimistically(Object o) {
+        Object[] keys = this.keys;
+        int[] values = this.values;
+        if (keys.length != values.length) return NO_HANDLE;
+        int mask = keys.length - 1;
+        int i = slot(o) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            Object k = keys[i];
+            if (k == null) break;
+            if (k == o) return values[i];
+            i = (i + 1) & mask;
+        }
+        return NO_HANDLE;
+    }
+
+    private void insert(Object o, int handle) {
+        int mask = keys.length - 1;
+        int i = slot(o);
+        while (keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = o;
+        values[i] = handle;
+    }
+
+    // removes using backwards shifting, so no tombstones are needed for linear probing
+    private void erase(Object o) {
+        int mask = keys.length - 1;
+        int i = slot(o);
+        while (keys[i] != o) {
+            i = (i + 1) & mask;
+        }
+        int gap = i;
+        i = (i + 1) & mask;
+        Object k;
+        while ((k = keys[i]) != null) {
+            int home = slot(k);
+            // move the entry into the gap if its home slot is not within (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = k;
+                values[gap] = values[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[gap] = null;
+    }
+
+    // only the lists of pages are copied, so positions written to existing pages meanwhile are never lost
+    private void addPage() {
+        int pages = entities.length;
+        Object[][] entities = Arrays.copyOf(this.entities, pages + 1);
+        int[][] positions = Arrays.copyOf(this.positions, pages + 1);
+        int[][] stamps = Arrays.copyOf(this.stamps, pages + 1);
+        long[][] dormant = Arrays.copyOf(this.dormant, pages + 1);
+        int[][] sleeps = Arrays.copyOf(this.sleeps, pages + 1);
+        entities[pages] = new Object[PAGE_SIZE];
+        positions[pages] = new int[PAGE_SIZE];
+        stamps[pages] = new int[PAGE_SIZE];
+        dormant[pages] = new long[PAGE_SIZE >>> 6];
+        sleeps[pages] = new int[PAGE_SIZE];
+        this.entities = entities;
+        this.positions = positions;
+        this.stamps = stamps;
+        this.dormant = dormant;
+        this.sleeps = sleeps;
+        freeHandles = Arrays.copyOf(freeHandles, (pages + 1) << PAGE_SHIFT);
+    }
+
+    private void growTable() {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new Object[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        shift--;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) insert(oldKeys[i], oldValues[i]);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package itumulator.world;
+
+/**
+ * The layers of a tile within a {@link World}. A tile can contain at most one object in each layer.
+ */
+public enum Layer {
+    /** The ground layer, containing objects implementing {@link NonBlocking}. */
+    NON_BLOCKING,
+    /** The layer containing all other objects. */
+    BLOCKING
+}
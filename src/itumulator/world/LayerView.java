@@ -0,0 +1,38 @@
+package itumulator.world;
+
+/**
+ * Provides read-only access to a single {@link Layer} of the map of a {@link World}. Obtained through {@link World#getLayer(Layer)}.
+ * The view is live, i.e., it reflects changes made to the world after it was obtained.
+ */
+public final class LayerView {
+    private final TileStorage tiles;
+    private final int layer;
+    private final int size;
+
+    LayerView(TileStorage tiles, Layer layer, int size) {
+        this.tiles = tiles;
+        this.layer = layer.ordinal();
+        this.size = size;
+    }
+
+    /**
+     * Provides the object in this layer of the tile at the given coordinates.
+     * @param x coordinate of the tile.
+     * @param y coordinate of the tile.
+     * @return the object or null if the layer of the tile is empty.
+     * @throws IllegalArgumentException if the coordinates are out of bounds.
+     */
+    public Object get(int x, int y) {
+        if (x < 0 || x >= size || y < 0 || y >= size)
+            throw new IllegalArgumentException("Tile out of bounds");
+        return tiles.get(x, y, layer);
+    }
+
+    /**
+     * Provides the size of the layer (the same as the size of the world).
+     * @return the x and y of the layer.
+     */
+    public int getSize() {
+        return size;
+    }
+}
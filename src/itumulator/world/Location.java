@@ -4,7 +4,7 @@ package itumulator.world;
  * Provides an abstraction to deal with coordinates (x,y) and compare them.
  */
 public class Location {
-    private int x, y;
+    private final int x, y;
 
     /**
      * Creates a new location
@@ -55,10 +55,10 @@ public class Location {
     }
 
     /**
-     * Provides a hash value of the location based on their x,y coordinates (assuming no larger coordinates than 1000).
+     * Provides a hash value of the location based on their x,y coordinates (unique for coordinates between 0 and 65535).
      */
     @Override
     public int hashCode(){
-        return this.x * 1000 + this.y;
+        return (this.x << 16) + this.y;
     }
 }
@@ -0,0 +1,127 @@
+package itumulator.world;
+
+import java.util.Arrays;
+
+/**
+ * Records the changes made to a {@link World} since the journal was last flushed (normally once per simulation step), so that
+ * consumers can process what changed rather than examining every object of the world. Events are stored in reusable
+ * primitive arrays in the order they occurred. Obtained by subscribing a {@link MutationListener} to the world.
+ * <p>
+ * Each event has a kind, the object it concerns (and its internal handle) and the tiles the object was moved from and to.
+ * Objects which are not on the map before or after an event have no location (null) for that side of the event.
+ * </p>
+ */
+public final class MutationJournal {
+    /** An object was added to the world without being placed on the map ({@link World#add(Object)}). */
+    public static final int ADD = 0;
+    /** An object was placed on the map ({@link World#setTile(Location, Object)}), possibly being added to the world too. */
+    public static final int PLACE = 1;
+    /** An object was moved between two tiles ({@link World#move(Object, Location)}). */
+    public static final int MOVE = 2;
+    /** An object was lifted off the map but remains in the world ({@link World#remove(Object)}). */
+    public static final int REMOVE = 3;
+    /** An object was deleted from the world ({@link World#delete(Object)}). */
+    public static final int DELETE = 4;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final World world;
+    private byte[] kinds;
+    private int[] handles;
+    private Object[] entities;
+    private int[] from;
+    private int[] to;
+    private int size;
+
+    MutationJournal(World world) {
+        this.world = world;
+        kinds = new byte[INITIAL_CAPACITY];
+        handles = new int[INITIAL_CAPACITY];
+        entities = new Object[INITIAL_CAPACITY];
+        from = new int[INITIAL_CAPACITY];
+        to = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return the amount of events recorded.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i the index of the event.
+     * @return the kind of the event (e.g., {@link #MOVE}).
+     */
+    public int getKind(int i) {
+        validateIndex(i);
+        return kinds[i];
+    }
+
+    /**
+     * @param i the index of the event.
+     * @return the object the event concerns.
+     */
+    public Object getEntity(int i) {
+        validateIndex(i);
+        return entities[i];
+    }
+
+    /**
+     * Provides the handle the world used for the object of an event. Handles are dense integers, which makes them suitable as
+     * array indices, but note that the handle of a deleted object may be given to an object added later on.
+     * @param i the index of the event.
+     * @return the handle of the object.
+     */
+    public int getHandle(int i) {
+        validateIndex(i);
+        return handles[i];
+    }
+
+    /**
+     * @param i the index of the event.
+     * @return the location of the object before the event, or null if it was not on the map.
+     */
+    public Location getFrom(int i) {
+        validateIndex(i);
+        return from[i] == EntityIndex.NOT_ON_MAP ? null : world.toLocation(from[i]);
+    }
+
+    /**
+     * @param i the index of the event.
+     * @return the location of the object after the event, or null if it is not on the map.
+     */
+    public Location getTo(int i) {
+        validateIndex(i);
+        return to[i] == EntityIndex.NOT_ON_MAP ? null : world.toLocation(to[i]);
+    }
+
+    void record(int kind, int handle, Object entity, int fromPosition, int toPosition) {
+        if (size == kinds.length) grow();
+        kinds[size] = (byte) kind;
+        handles[size] = handle;
+        entities[size] = entity;
+        from[size] = fromPosition;
+        to[size] = toPosition;
+        size++;
+    }
+
+    void clear() {
+        Arrays.fill(entities, 0, size, null); // to not keep deleted objects alive
+        size = 0;
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+        entities = Arrays.copyOf(entities, capacity);
+        from = Arrays.copyOf(from, capacity);
+        to = Arrays.copyOf(to, capacity);
+    }
+
+    private void validateIndex(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("No event with index " + i);
+    }
+}
@@ -0,0 +1,13 @@
+package itumulator.world;
+
+/**
+ * Receives the changes made to a {@link World}. Subscribe using {@link World#addMutationListener(MutationListener)}.
+ */
+@FunctionalInterface
+public interface MutationListener {
+    /**
+     * Called when the journal of the world is flushed (see {@link World#flushJournal()}).
+     * @param journal the changes made since the previous flush. It is only valid during the call, as it is reused afterwards.
+     */
+    void onMutations(MutationJournal journal);
+}
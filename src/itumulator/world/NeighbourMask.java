@@ -0,0 +1,56 @@
+package itumulator.world;
+
+/**
+ * Helpers for the masks provided by {@link World#getEmptyNeighbourMask(int, int, Layer)}. A mask describes the eight tiles surrounding a
+ * tile as bits 0 to 7, in the same order as they are visited by {@link World#visitSurroundingTiles(Location, int, TileVisitor)}
+ * (i.e., row by row starting from the top left):
+ * <pre>
+ * 0 1 2
+ * 3 . 4
+ * 5 6 7
+ * </pre>
+ */
+public final class NeighbourMask {
+    private static final int[] DX = { -1, 0, 1, -1, 1, -1, 0, 1 };
+    private static final int[] DY = { -1, -1, -1, 0, 0, 1, 1, 1 };
+
+    private NeighbourMask() {
+    }
+
+    /**
+     * @param index of a neighbour (0 to 7).
+     * @return the offset of the neighbour along the x axis.
+     */
+    public static int dx(int index) {
+        return DX[index];
+    }
+
+    /**
+     * @param index of a neighbour (0 to 7).
+     * @return the offset of the neighbour along the y axis.
+     */
+    public static int dy(int index) {
+        return DY[index];
+    }
+
+    /**
+     * @param mask of neighbours.
+     * @return the amount of neighbours within the mask.
+     */
+    public static int count(int mask) {
+        return Integer.bitCount(mask);
+    }
+
+    /**
+     * Provides the index of the n'th neighbour within a mask (counting in the order of the indices).
+     * @param mask of neighbours.
+     * @param n which neighbour to find (0 for the first).
+     * @return the index of the neighbour, or -1 if the mask contains n or fewer neighbours.
+     */
+    public static int nth(int mask, int n) {
+        for (int i = 0; i < n && mask != 0; i++) {
+            mask &= mask - 1; // drop the lowest neighbour
+        }
+        return mask == 0 ? -1 : Integer.numberOfTrailingZeros(mask);
+    }
+}
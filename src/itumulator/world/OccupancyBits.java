@@ -0,0 +1,83 @@
+package itumulator.world;
+
+/**
+ * A bitset marking which tiles of a map are occupied (within one layer). The map is split into blocks of 64x16 tiles where each
+ * row of a block is a single long, so that neighbouring tiles of a row can be examined with a few word operations.
+ * Blocks are only allocated once a tile within them is occupied, and released again once they become empty.
+ */
+final class OccupancyBits {
+    private static final int SHIFT = 6;
+    private static final int BLOCK_WIDTH = 1 << SHIFT;
+    private static final int MASK = BLOCK_WIDTH - 1;
+    private static final int ROW_SHIFT = 4;
+    /** The height of a block in tiles (blocks are kept low, so that distant rows of the map never share a block). */
+    static final int BLOCK_HEIGHT = 1 << ROW_SHIFT;
+    private static final int ROW_MASK = BLOCK_HEIGHT - 1;
+
+    private final int size;
+    private final int blocksPerRow;
+    private final long[][] blocks; // block -> row bits (bit x of row y is tile (x, y) of the block), null if empty
+    private final int[] occupied; // block -> amount of occupied tiles
+
+    OccupancyBits(int size) {
+        this.size = size;
+        this.blocksPerRow = (size + MASK) >> SHIFT;
+        int blockRows = (size + ROW_MASK) >> ROW_SHIFT;
+        this.blocks = new long[blocksPerRow * blockRows][];
+        this.occupied = new int[blocksPerRow * blockRows];
+    }
+
+    boolean get(int x, int y) {
+        long[] block = blocks[block(x, y)];
+        return block != null && (block[y & ROW_MASK] & (1L << x)) != 0; // shifting a long only uses the lowest 6 bits of x
+    }
+
+    void set(int x, int y) {
+        int b = block(x, y);
+        long[] block = blocks[b];
+        if (block == null) {
+            block = new long[BLOCK_HEIGHT];
+            blocks[b] = block;
+        }
+        block[y & ROW_MASK] |= 1L << x;
+        occupied[b]++;
+    }
+
+    void clear(int x, int y) {
+        int b = block(x, y);
+        blocks[b][y & ROW_MASK] &= ~(1L << x);
+        if (--occupied[b] == 0) blocks[b] = null;
+    }
+
+    /**
+     * Provides the occupancy of the three tiles x - 1, x and x + 1 of a row as the lowest three bits (x - 1 being the lowest).
+     * Tiles outside the map are reported as occupied.
+     */
+    int row3(int x, int y) {
+        if (y < 0 || y >= size) return 0b111;
+        int from = x - 1;
+        int bits;
+        if (from >= 0 && (from >> SHIFT) == ((x + 1) >> SHIFT)) {
+            bits = (int) (word(from >> SHIFT, y) >>> (from & MASK));
+        } else if (from < 0) {
+            bits = ((int) word(0, y) << 1) | 1; // column -1 is outside the map
+        } else {
+            // the three tiles span two words
+            long low = word(from >> SHIFT, y) >>> (from & MASK);
+            long high = word((x + 1) >> SHIFT, y) << (BLOCK_WIDTH - (from & MASK));
+            bits = (int) (low | high);
+        }
+        if (x + 1 >= size) bits |= 0b100;
+        return bits & 0b111;
+    }
+
+    private long word(int blockX, int y) {
+        if (blockX >= blocksPerRow) return 0;
+        long[] block = blocks[(y >> ROW_SHIFT) * blocksPerRow + blockX];
+        return block == null ? 0 : block[y & ROW_MASK];
+    }
+
+    private int block(int x, int y) {
+        return (y >> ROW_SHIFT) * blocksPerRow + (x >> SHIFT);
+    }
+}
@@ -0,0 +1,19 @@
+package itumulator.world;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * By implementing this interface, an object draws its random numbers from a stream provided by the {@link World} it enters,
+ * which is derived from the seed of the world (see {@link World#setSeed(long)}) and from where and when the object entered.
+ * Runs of a world with the same seed and the same initial objects are thus repeatable, and the streams are not synchronized
+ * (unlike {@link java.util.Random}), as each object has a stream of its own.
+ */
+public interface Randomized {
+
+    /**
+     * Called when the object enters a world (i.e., is placed on the map or added for the first time).
+     * Objects which already have a source of randomness (e.g., given by a test) may keep it and ignore the stream.
+     * @param random the stream of the object.
+     */
+    public void provideRandom(RandomGenerator random);
+}
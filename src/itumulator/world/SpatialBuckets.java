@@ -0,0 +1,106 @@
+package itumulator.world;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A coarse grid over the map of a {@link World} counting how many objects of each (concrete) class reside within each cell.
+ * This allows queries looking for a certain type of object to skip whole regions of the map in which no such objects exist.
+ * The buckets are updated by the world whenever an object is placed on or lifted off a tile.
+ * <p>
+ * The classes known are kept in maps which are replaced (rather than modified) whenever a new class is seen, so the buckets can
+ * be used by several threads at once as long as they do not place or lift objects within the same cell.
+ * </p>
+ */
+final class SpatialBuckets {
+    /** The smallest width (and height) of a cell in tiles. */
+    static final int MIN_CELL_SIZE = 8;
+    /** Cells are made larger for big maps, so that the counts kept per class stay small. */
+    static final int MAX_CELLS_PER_SIDE = 512;
+    private static final int[][] NONE = new int[0][];
+
+    private final int cellSize;
+    private final int cellsPerSide;
+    private volatile Map<Class<?>, int[]> counts; // concrete class -> objects per cell
+    private volatile Map<Class<?>, int[][]> matching; // queried type -> counts of all concrete classes assignable to it
+
+    SpatialBuckets(int worldSize) {
+        int cellSize = MIN_CELL_SIZE;
+        while ((worldSize + cellSize - 1) / cellSize > MAX_CELLS_PER_SIDE) {
+            cellSize *= 2;
+        }
+        this.cellSize = cellSize;
+        this.cellsPerSide = (worldSize + cellSize - 1) / cellSize;
+        this.counts = new HashMap<>();
+        this.matching = new ConcurrentHashMap<>();
+    }
+
+    void add(Object o, int x, int y) {
+        int[] cells = counts.get(o.getClass());
+        if (cells == null) cells = addClass(o.getClass());
+        cells[cell(x, y)]++;
+    }
+
+    void remove(Object o, int x, int y) {
+        counts.get(o.getClass())[cell(x, y)]--;
+    }
+
+    /**
+     * Provides the cell counts of every class which is an instance of the given type.
+     * @param type the type queried (can be a class, abstract class or interface).
+     * @return an array (possibly empty) of per cell counts.
+     */
+    int[][] countsFor(Class<?> type) {
+        Map<Class<?>, int[][]> matching = this.matching; // read before the counts, as a class is added the other way around
+        int[][] result = matching.get(type);
+        if (result == null) {
+            List<int[]> found = new ArrayList<>();
+            for (Map.Entry<Class<?>, int[]> entry : this.counts.entrySet()) {
+                if (type.isAssignableFrom(entry.getKey())) found.add(entry.getValue());
+            }
+            result = found.isEmpty() ? NONE : found.toArray(new int[found.size()][]);
+            matching.put(type, result);
+        }
+        return result;
+    }
+
+    /**
+     * Determines whether any of the given counts are positive within a cell.
+     */
+    static boolean isOccupied(int[][] counts, int cell) {
+        for (int[] c : counts) {
+            if (c[cell] > 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the width (and height) of a cell in tiles.
+     */
+    int cellSize() {
+        return cellSize;
+    }
+
+    int cellsPerSide() {
+        return cellsPerSide;
+    }
+
+    private synchronized int[] addClass(Class<?> cl) {
+        int[] cells = counts.get(cl);
+        if (cells == null) {
+            cells = new int[cellsPerSide * cellsPerSide];
+            Map<Class<?>, int[]> copy = new HashMap<>(counts);
+            copy.put(cl, cells);
+            counts = copy;
+            matching = new ConcurrentHashMap<>(); // the new class might match previously queried types
+        }
+        return cells;
+    }
+
+    private int cell(int x, int y) {
+        return (y / cellSize) * cellsPerSide + (x / cellSize);
+    }
+}
@@ -0,0 +1,83 @@
+package itumulator.world;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The streams of random numbers handed out by a {@link World}. The numbers are the same as those of a
+ * {@link java.util.SplittableRandom} created with the same seed (the SplitMix64 algorithm), but the state of the stream can
+ * be read and restored, which allows a world to be checkpointed (see {@link CheckpointOutput#writeRandom(RandomGenerator)}).
+ * Streams are not synchronized, so each must only be used by a single thread at a time.
+ */
+final class SplitMixRandom implements RandomGenerator {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long seed;
+    private final long gamma; // always odd
+
+    /**
+     * @param seed the initial seed.
+     */
+    SplitMixRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Restores a stream from its state (see {@link #getSeed()} and {@link #getGamma()}).
+     * @param seed of the stream.
+     * @param gamma of the stream.
+     */
+    SplitMixRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    long getGamma() {
+        return gamma;
+    }
+
+    /**
+     * Provides a new stream, which shares no state with this stream (and advances this stream).
+     * @return the new stream.
+     */
+    SplitMixRandom split() {
+        return new SplitMixRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    @Override
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62A9D9ED799705F5L;
+        return (int) (((z ^ (z >>> 28)) * 0xCB24D0A5C88C35B3L) >>> 32);
+    }
+
+    // the gamma of a new stream, which must be odd and have enough bit transitions to mix well
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+    }
+}
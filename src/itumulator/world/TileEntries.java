@@ -0,0 +1,117 @@
+package itumulator.world;
+
+import java.util.Arrays;
+
+/**
+ * Counts how many objects entered each tile (and layer) of a {@link World} during the current step, which tells apart the random
+ * streams of objects entering the same tile in the same step (see {@link Randomized}). Only the tiles entered during the step are
+ * kept, in an open addressing table which is emptied once the step changes. The count of a tile only depends on the order in which
+ * objects enter that tile, so it does not depend on how many threads place objects elsewhere on the map at the same time.
+ */
+final class TileEntries {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long step;
+    private long[] keys; // slot + 1, or 0 if free
+    private int[] counts;
+    private int size;
+
+    TileEntries() {
+        this.keys = new long[INITIAL_CAPACITY];
+        this.counts = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Counts an object entering a tile.
+     * @param step the current step.
+     * @param slot identifies the tile and layer entered (not negative).
+     * @return how many objects entered the tile and layer before during the step.
+     */
+    synchronized int enter(long step, long slot) {
+        if (step != this.step) {
+            clear();
+            this.step = step;
+        }
+        int i = find(slot);
+        if (keys[i] == 0) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                i = find(slot);
+            }
+            keys[i] = slot + 1;
+            size++;
+        }
+        return counts[i]++;
+    }
+
+    /**
+     * Writes the counts of the current step (see {@link World#checkpoint(CheckpointOutput)}).
+     * @param out the checkpoint to write to.
+     */
+    synchronized void checkpoint(CheckpointOutput out) {
+        out.writeLong(step);
+        out.writeInt(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == 0) continue;
+            out.writeLong(keys[i] - 1);
+            out.writeInt(counts[i]);
+        }
+    }
+
+    /**
+     * Replaces the counts by those of a checkpoint (see {@link #checkpoint(CheckpointOutput)}).
+     * @param in the checkpoint to read from.
+     * @throws IllegalStateException if the checkpoint is corrupt.
+     */
+    synchronized void restore(CheckpointInput in) {
+        clear();
+        step = in.readLong();
+        int entries = in.readInt();
+        if (entries < 0)
+            throw new IllegalStateException("Checkpoint is corrupt");
+        for (int e = 0; e < entries; e++) {
+            long slot = in.readLong();
+            int count = in.readInt();
+            if (slot < 0 || count < 1)
+                throw new IllegalStateException("Checkpoint is corrupt");
+            if ((size + 1) * 2 > keys.length) grow();
+            int i = find(slot);
+            keys[i] = slot + 1;
+            counts[i] = count;
+            size++;
+        }
+    }
+
+    private void clear() {
+        if (size == 0) return;
+        if (keys.length > INITIAL_CAPACITY) { // a step with many entries need not keep the table large for the next steps
+            keys = new long[INITIAL_CAPACITY];
+            counts = new int[INITIAL_CAPACITY];
+        } else {
+            Arrays.fill(keys, 0);
+            Arrays.fill(counts, 0);
+        }
+        size = 0;
+    }
+
+    // finds the index of a slot, or the free index to put it at
+    private int find(long slot) {
+        int mask = keys.length - 1;
+        int i = (int) ((slot + 1) * 0x9E3779B97F4A7C15L >>> 40) & mask;
+        while (keys[i] != 0 && keys[i] != slot + 1) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int j = find(oldKeys[i] - 1);
+            keys[j] = oldKeys[i];
+            counts[j] = oldCounts[i];
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package itumulator.world;
+
+/**
+ * Stores the objects placed on the map of a {@link World}. Every tile has two layers: 0 for non-blocking and 1 for blocking objects.
+ * Coordinates given are assumed to have been validated by the world.
+ */
+interface TileStorage {
+    /**
+     * Provides the object in a layer of a tile.
+     * @return the object or null if the layer is empty.
+     */
+    Object get(int x, int y, int layer);
+
+    /**
+     * Places an object in a layer of a tile (replacing what was there).
+     * @param o the object to place, or null to empty the layer.
+     */
+    void set(int x, int y, int layer, Object o);
+}
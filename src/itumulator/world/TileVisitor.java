@@ -0,0 +1,17 @@
+package itumulator.world;
+
+/**
+ * A callback used to walk tiles of a {@link World} without allocating any {@link Location} objects
+ * (see {@link World#visitSurroundingTiles(Location, int, TileVisitor)}).
+ */
+@FunctionalInterface
+public interface TileVisitor {
+
+    /**
+     * Called once for every tile visited.
+     * @param x coordinate of the tile.
+     * @param y coordinate of the tile.
+     * @return true to stop visiting any further tiles, false to continue.
+     */
+    public boolean visit(int x, int y);
+}
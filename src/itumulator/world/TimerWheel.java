@@ -0,0 +1,150 @@
+package itumulator.world;
+
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Schedules items to expire at a given step, such that advancing through the steps only costs work for the items expiring (and,
+ * now and then, moving far-off items closer). Entities counting down to an event (e.g., a carcass rotting away) can thus register
+ * the step of the event rather than being called every step until then.
+ * <p>
+ * The wheel is hierarchical: level 0 has a slot for each of the next 64 steps, level 1 a slot for each of the next 64 spans of 64
+ * steps, and so on. An item is kept in the lowest level whose span covers its step, and it is moved down a level whenever the wheel
+ * reaches the span of its slot. Items beyond the highest level wait in an overflow list. The wheel is not thread-safe.
+ * </p>
+ *
+ * @param <T> the type of the items scheduled.
+ */
+public final class TimerWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 6; // spans 2^36 steps
+
+    private final Node<T>[][] slots;
+    private Node<T> overflow;
+    private long time;
+    private int size;
+
+    /**
+     * Creates an empty wheel at step 0.
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel() {
+        slots = (Node<T>[][]) new Node<?>[LEVELS][SLOTS];
+    }
+
+    /**
+     * Schedules an item to expire at a step. An item due at (or before) the current step expires at the next step.
+     * @param item to schedule.
+     * @param step the step the item expires at.
+     * @throws IllegalArgumentException if the item is null.
+     */
+    public void schedule(T item, long step) {
+        if (item == null) throw new IllegalArgumentException("Item cannot be null");
+        insert(new Node<>(item, Math.max(step, time + 1)));
+        size++;
+    }
+
+    /**
+     * Advances the wheel through the steps up to a step, passing the items expiring at each step on to a consumer (in no particular
+     * order within the step). The consumer may schedule further items.
+     * @param step to advance to (nothing happens if the wheel is already there).
+     * @param expired receives the items expiring.
+     */
+    public void advanceTo(long step, Consumer<? super T> expired) {
+        while (time < step) {
+            if (size == 0) {
+                time = step;
+                return;
+            }
+            time++;
+            cascade();
+            int slot = (int) (time & (SLOTS - 1));
+            Node<T> node = slots[0][slot];
+            slots[0][slot] = null;
+            for (; node != null; node = node.next) {
+                size--;
+                expired.accept(node.item);
+            }
+        }
+    }
+
+    /**
+     * Visits every item scheduled which has not yet expired, along with the step it expires at (in no particular order).
+     * @param action receives the items and their steps.
+     */
+    public void forEach(ObjLongConsumer<? super T> action) {
+        for (Node<T>[] level : slots) {
+            for (Node<T> node : level) {
+                for (; node != null; node = node.next) action.accept(node.item, node.step);
+            }
+        }
+        for (Node<T> node = overflow; node != null; node = node.next) action.accept(node.item, node.step);
+    }
+
+    /**
+     * @return the step the wheel has advanced to.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the amount of items scheduled which have not yet expired.
+     */
+    public int size() {
+        return size;
+    }
+
+    // Private methods
+
+    // moves the items of the slots reached at the current step down a level (from the highest level down, as each may fill the next)
+    private void cascade() {
+        int levels = 0;
+        while (levels < LEVELS && (time & ((1L << (SLOT_BITS * (levels + 1))) - 1)) == 0) levels++;
+        if (levels == LEVELS) {
+            Node<T> node = overflow;
+            overflow = null;
+            reinsert(node);
+        }
+        for (int level = Math.min(levels, LEVELS - 1); level >= 1; level--) {
+            int slot = (int) ((time >>> (SLOT_BITS * level)) & (SLOTS - 1));
+            Node<T> node = slots[level][slot];
+            slots[level][slot] = null;
+            reinsert(node);
+        }
+    }
+
+    private void reinsert(Node<T> node) {
+        while (node != null) {
+            Node<T> next = node.next;
+            insert(node);
+            node = next;
+        }
+    }
+
+    // the level of an item is given by the highest bit in which its step differs from the current step
+    private void insert(Node<T> node) {
+        long differs = node.step ^ time;
+        int level = differs == 0 ? 0 : (63 - Long.numberOfLeadingZeros(differs)) / SLOT_BITS;
+        if (level >= LEVELS) {
+            node.next = overflow;
+            overflow = node;
+            return;
+        }
+        int slot = (int) ((node.step >>> (SLOT_BITS * level)) & (SLOTS - 1));
+        node.next = slots[level][slot];
+        slots[level][slot] = node;
+    }
+
+    private static final class Node<T> {
+        private final T item;
+        private final long step;
+        private Node<T> next;
+
+        Node(T item, long step) {
+            this.item = item;
+            this.step = step;
+        }
+    }
+}
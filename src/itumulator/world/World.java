@@ -1,11 +1,17 @@
 package itumulator.world;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
 
 /**
  * The World class provides an abstraction for our simulated worlds. A world
@@ -23,33 +29,224 @@ import java.util.Set;
 public class World {
     private static int DAY_DURATION = 20;
     private static int IS_DAY_TIME = 10;
+    private static final int LOCATION_BLOCK_SHIFT = 4; // interned locations are allocated in blocks of 16x16 tiles
+    private static final VarHandle LOCATION_BLOCKS = MethodHandles.arrayElementVarHandle(Location[][].class);
+    private static final VarHandle LOCATIONS = MethodHandles.arrayElementVarHandle(Location[].class);
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
 
-    private Object[][][] tiles;
-    private Map<Object, Location> entities;
+    /** The largest size of a map (so that every tile can be addressed by an int). */
+    public static final int MAX_SIZE = 46340;
+    /** Maps larger than this are stored in chunks by default (see {@link #World(int, boolean)}). */
+    public static final int CHUNKED_THRESHOLD = 2048;
+
+    private TileStorage tiles;
+    private LayerView[] layers;
+    private OccupancyBits[] occupancy; // per layer
+    private EntityIndex entities;
+    private SpatialBuckets buckets;
+    private ActivationSchedule schedule; // null when activating objects in the order of their handles
+    private Location[][] locations; // blocks of interned locations (created on first use)
+    private int locationBlocksPerSide;
+    private List<MutationListener> listeners;
+    private MutationJournal journal; // only present while someone listens
+    private DirtyTiles dirty; // only present once requested
+    private Dormancy dormancy;
+    private boolean concurrent;
+    private boolean readOnly;
     private int size;
     private Location current;
     private int time = 0;
+    private long steps; // steps taken, telling apart objects entering the world on the same tile
+    private long seed;
+    private SplitMixRandom streams; // hands out the streams requested through newRandom()
+    private long added; // objects added without being placed
+    private TileEntries entered; // objects which entered each tile during the step
 
     /**
      * initializes a World with a map of size. A day is defined in steps (i.e.,
      * 20) and day time is decided by before the first 10 steps.
      * 
+     * Maps larger than {@link #CHUNKED_THRESHOLD} are stored in chunks.
+     * 
      * @param size of the map within the world (size defines both x and y).
      */
     public World(int size) {
+        this(size, size > CHUNKED_THRESHOLD);
+    }
+
+    /**
+     * initializes a World with a map of size, choosing how the map is stored. A chunked map only allocates memory
+     * for regions in which objects have been placed, which allows large sparsely populated maps that could not be
+     * allocated up front. The world behaves the same regardless of the storage.
+     * 
+     * @param size of the map within the world (size defines both x and y).
+     * @param chunked whether to store the map in chunks allocated on demand rather than up front.
+     */
+    public World(int size, boolean chunked) {
         if (size <= 0)
             throw new IllegalArgumentException("Size must greater than zero.");
-        this.tiles = new Object[size][size][2];
+        if (size > MAX_SIZE)
+            throw new IllegalArgumentException("Size must not exceed " + MAX_SIZE + ".");
+        this.tiles = chunked ? new ChunkedTileStorage(size) : new DenseTileStorage(size);
         this.size = size;
-        this.entities = new HashMap<>();
+        this.layers = new LayerView[] { new LayerView(tiles, Layer.NON_BLOCKING, size), new LayerView(tiles, Layer.BLOCKING, size) };
+        this.occupancy = new OccupancyBits[] { new OccupancyBits(size), new OccupancyBits(size) };
+        this.entities = new EntityIndex();
+        this.buckets = new SpatialBuckets(size);
+        this.dormancy = new Dormancy(entities, size);
+        this.entered = new TileEntries();
+        this.listeners = new ArrayList<>();
+        this.locationBlocksPerSide = (size + (1 << LOCATION_BLOCK_SHIFT) - 1) >> LOCATION_BLOCK_SHIFT;
+        this.locations = new Location[locationBlocksPerSide * locationBlocksPerSide][];
+        setSeed(new SplittableRandom().nextLong());
     }
 
     /**
      * Increases the step of the world to progress time.
      */
     public void step() {
+        steps++;
         time++;
         time = time % DAY_DURATION;
+        dormancy.stepStarted(steps);
+        if (time == 0) dormancy.dayStarted();
+    }
+
+    /**
+     * Provides the amount of steps taken by the world (i.e., how many times {@link #step()} has been called).
+     * 
+     * @return the amount of steps taken.
+     */
+    public long getStepCount() {
+        return steps;
+    }
+
+    /**
+     * Sets the seed from which every source of randomness in the world is derived: the streams of {@link Randomized} objects
+     * entering the world from now on, and the streams provided by {@link #newRandom()}. Runs of worlds given the same seed
+     * (before any object is placed) and the same objects are repeatable. Worlds are given a random seed when created.
+     * 
+     * @param seed the seed to use.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.streams = new SplitMixRandom(seed);
+        this.added = 0;
+    }
+
+    /**
+     * Provides the seed of the world (see {@link #setSeed(long)}).
+     * 
+     * @return the seed currently used.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Provides a new stream of random numbers derived from the seed of the world (see {@link #setSeed(long)}), e.g., for
+     * placing the initial objects or for a thread of its own. Each call provides a different stream, so the streams depend
+     * on the order of the calls. Streams are not synchronized, so each must only be used by a single thread at a time.
+     * 
+     * @return the new stream.
+     */
+    public RandomGenerator newRandom() {
+        return streams.split();
+    }
+
+    /**
+     * Makes an object dormant until it is woken by {@link #wake(Object)}. Dormant actors are not asked to act by the simulator,
+     * so an actor with nothing to do (e.g., a passive shelter) can make itself dormant rather than being called every step.
+     * Dormant objects otherwise remain in the world as usual (and they are still visited by {@link #entityCursor()}).
+     * Making a dormant object dormant again replaces what it was waiting for.
+     * 
+     * @param object the object to make dormant.
+     * @throws IllegalArgumentException if the object does not exist in the world.
+     */
+    public void sleep(Object object) {
+        dormancy.sleep(validateHandle(object));
+    }
+
+    /**
+     * Makes an object dormant (see {@link #sleep(Object)}) until the next day starts, e.g., an animal sleeping through the night.
+     * 
+     * @param object the object to make dormant.
+     * @throws IllegalArgumentException if the object does not exist in the world.
+     */
+    public void sleepUntilDay(Object object) {
+        dormancy.sleepUntilDay(validateHandle(object), object);
+    }
+
+    /**
+     * Makes an object dormant (see {@link #sleep(Object)}) for a number of steps, e.g., until a countdown expires.
+     * An actor sleeping for 1 step acts again in the next step.
+     * 
+     * @param object the object to make dormant.
+     * @param steps the amount of steps until the object is woken.
+     * @throws IllegalArgumentException if the object does not exist in the world, or steps is less than 1.
+     */
+    public void sleepFor(Object object, int steps) {
+        if (steps < 1)
+            throw new IllegalArgumentException("Steps must be at least 1.");
+        dormancy.sleepUntil(validateHandle(object), object, this.steps + steps);
+    }
+
+    /**
+     * Makes an object dormant (see {@link #sleep(Object)}) until any tile within a radius of a location changes, i.e., an object is
+     * placed on, moved onto or off, or removed from one of the tiles.
+     * 
+     * @param object the object to make dormant.
+     * @param location the center of the tiles to watch.
+     * @param radius the distance from the center (in both directions) of the tiles to watch.
+     * @throws IllegalArgumentException if the object does not exist in the world, the location is out of bounds or the radius is negative.
+     */
+    public void sleepUntilDisturbed(Object object, Location location, int radius) {
+        validateCoordinates(location);
+        if (radius < 0)
+            throw new IllegalArgumentException("Radius cannot be a negative number.");
+        dormancy.sleepUntilDisturbed(validateHandle(object), object, location.getX(), location.getY(), radius, size, -1);
+    }
+
+    /**
+     * Makes an object dormant (see {@link #sleep(Object)}) until any tile within a radius of a location changes (see
+     * {@link #sleepUntilDisturbed(Object, Location, int)}), or until a number of steps have passed, whichever comes first.
+     * 
+     * @param object the object to make dormant.
+     * @param location the center of the tiles to watch.
+     * @param radius the distance from the center (in both directions) of the tiles to watch.
+     * @param steps the amount of steps until the object is woken if the tiles do not change before then.
+     * @throws IllegalArgumentException if the object does not exist in the world, the location is out of bounds, the radius is negative
+     * or steps is less than 1.
+     */
+    public void sleepUntilDisturbed(Object object, Location location, int radius, int steps) {
+        validateCoordinates(location);
+        if (radius < 0)
+            throw new IllegalArgumentException("Radius cannot be a negative number.");
+        if (steps < 1)
+            throw new IllegalArgumentException("Steps must be at least 1.");
+        dormancy.sleepUntilDisturbed(validateHandle(object), object, location.getX(), location.getY(), radius, size, this.steps + steps);
+    }
+
+    /**
+     * Wakes a dormant object (see {@link #sleep(Object)}), regardless of what it was waiting for. Nothing happens if the object
+     * is not dormant. An actor woken during a step acts in that step if it has not yet had its turn, and in the next step otherwise.
+     * 
+     * @param object the object to wake.
+     * @throws IllegalArgumentException if the object does not exist in the world.
+     */
+    public void wake(Object object) {
+        entities.setAwake(validateHandle(object));
+    }
+
+    /**
+     * Determines whether an object is dormant (see {@link #sleep(Object)}).
+     * 
+     * @param object the object to check.
+     * @return true if the object is dormant.
+     * @throws IllegalArgumentException if the object does not exist in the world.
+     */
+    public boolean isDormant(Object object) {
+        return entities.isDormant(validateHandle(object));
     }
 
     /**
@@ -79,6 +276,20 @@ public class World {
         return size;
     };
 
+    /**
+     * Provides the canonical location of the given coordinates. The same instance is returned every time the same
+     * coordinates are given, so it can be used in place of constructing a new location whenever a tile is touched.
+     * 
+     * @param x coordinate
+     * @param y coordinate
+     * @return the location of (x, y) within this world.
+     * @throws IllegalArgumentException if the coordinates are out of bounds.
+     */
+    public Location locationAt(int x, int y) {
+        validateCoordinates(x, y);
+        return toLocation(y * size + x);
+    }
+
     /**
      * Sets the time to day.
      */
@@ -159,8 +370,7 @@ public class World {
      *                                  or if it exists but is not currently placed on the map.
      */
     public Location getLocation(Object object) {
-        validateLocation(object);
-        return entities.get(object);
+        return toLocation(validateLocation(object));
     }
 
     /**
@@ -220,9 +430,12 @@ public class World {
      *                                  or is not currently placed on the map.
      */
     public void remove(Object object) {
-        Location l = getLocation(object);
-        this.tiles[l.getX()][l.getY()][getLayer(object)] = null;
-        entities.put(object, null);
+        checkWritable();
+        int handle = entities.handleOf(object);
+        int position = validateLocation(handle);
+        clearTile(position, object);
+        entities.setPosition(handle, EntityIndex.NOT_ON_MAP);
+        record(MutationJournal.REMOVE, handle, object, position, EntityIndex.NOT_ON_MAP);
     }
 
     /**
@@ -236,13 +449,16 @@ public class World {
      * @throws IllegalArgumentException if the object does not exist in the world.
      */
     public void delete(Object object) {
-        if (!entities.containsKey(object))
+        checkWritable();
+        int handle = entities.handleOf(object);
+        if (handle == EntityIndex.NO_HANDLE)
             throw new IllegalArgumentException("No such object exists in the world.");
-        Location l = entities.get(object);
-        if (l != null) {
-            remove(object);
+        int position = entities.position(handle);
+        if (position != EntityIndex.NOT_ON_MAP) {
+            clearTile(position, object);
         }
-        entities.remove(object);
+        entities.unregister(handle);
+        record(MutationJournal.DELETE, handle, object, position, EntityIndex.NOT_ON_MAP);
     }
 
     /**
@@ -256,25 +472,23 @@ public class World {
      * @throws IllegalArgumentException if the tile is occupied by the same type of object, or if the object already exists on the map, or if the location is out of bounds.
      */
     public void setTile(Location location, Object object) {
-        if (entities.get(object) != null) {
+        checkWritable();
+        int handle = entities.handleOf(object);
+        if (handle != EntityIndex.NO_HANDLE && entities.position(handle) != EntityIndex.NOT_ON_MAP) {
             throw new IllegalArgumentException("Entity already exists in the world.");
         }
         validateCoordinates(location);
 
-        Object[] tile = this.tiles[location.getX()][location.getY()];
+        int position = placeOnTile(location, object);
 
-        if (object instanceof NonBlocking) {
-            if (tile[0] != null)
-                throw new IllegalArgumentException("Tile cannot contain more than one non-blocking object");
-
-            tile[0] = object;
+        if (handle == EntityIndex.NO_HANDLE) {
+            handle = entities.register(object, position);
+            long slot = position * 2L + layerOf(object);
+            provideRandom(object, steps * GOLDEN_GAMMA + ((long) entered.enter(steps, slot) << 32 | slot)); // slots fit in 32 bits
         } else {
-            if (tile[1] != null)
-                throw new IllegalArgumentException("Tile cannot contain more than one blocking object");
-            tile[1] = object;
+            entities.setPosition(handle, position);
         }
-
-        entities.put(object, location);
+        record(MutationJournal.PLACE, handle, object, EntityIndex.NOT_ON_MAP, position);
     }
 
     /**
@@ -285,11 +499,20 @@ public class World {
      * @throws IllegalArgumentException if the object is not in the world, is not on the map, or if the destination tile is occupied by a blocking object.
      */
     public void move(Object object, Location to) {
+        checkWritable();
         validateCoordinates(to);
 
-        remove(object);
-        setTile(to, object);
+        int handle = entities.handleOf(object);
+        int from = validateLocation(handle);
+        Object occupant = this.tiles.get(to.getX(), to.getY(), layerOf(object));
+        if (occupant != null && occupant != object) {
+            throw new IllegalArgumentException("Tile cannot contain more than one " + (object instanceof NonBlocking ? "non-blocking" : "blocking") + " object");
+        }
 
+        clearTile(from, object);
+        int position = placeOnTile(to, object);
+        entities.setPosition(handle, position);
+        record(MutationJournal.MOVE, handle, object, from, position);
     }
 
     /**
@@ -302,11 +525,24 @@ public class World {
      * @return The object at the specified location, prioritizing blocking objects. Returns null if no object is present.
      */
     public Object getTile(Location location) {
-        validateCoordinates(location);
-        Object[] tile = this.tiles[location.getX()][location.getY()];
-        if (tile[1] != null)
-            return tile[1];
-        return tile[0];
+        return getTile(location.getX(), location.getY());
+    }
+
+    /**
+     * Retrieves an object from the specified coordinates, prioritizing blocking objects over non-blocking ones
+     * (see {@link #getTile(Location)}).
+     *
+     * @param x coordinate of the tile.
+     * @param y coordinate of the tile.
+     * @return The object at the specified coordinates, prioritizing blocking objects. Returns null if no object is present.
+     * @throws IllegalArgumentException if the coordinates are out of bounds.
+     */
+    public Object getTile(int x, int y) {
+        validateCoordinates(x, y);
+        Object blocking = this.tiles.get(x, y, 1);
+        if (blocking != null)
+            return blocking;
+        return this.tiles.get(x, y, 0);
     }
 
     /**
@@ -317,9 +553,12 @@ public class World {
      * @throws IllegalArgumentException if the object already exists in the world.
      */
     public void add(Object object) {
-        if (entities.containsKey(object))
+        checkWritable();
+        if (entities.handleOf(object) != EntityIndex.NO_HANDLE)
             throw new IllegalArgumentException("Object already exists in the world.");
-        entities.put(object, null);
+        int handle = entities.register(object, EntityIndex.NOT_ON_MAP);
+        provideRandom(object, ~added++);
+        record(MutationJournal.ADD, handle, object, EntityIndex.NOT_ON_MAP, EntityIndex.NOT_ON_MAP);
     }
 
     /**
@@ -330,9 +569,20 @@ public class World {
      * @return The non-blocking object at the specified location.
      */
     public Object getNonBlocking(Location location) {
-        validateCoordinates(location);
-        Object o = tiles[location.getX()][location.getY()][0];
-        return o;
+        return getNonBlocking(location.getX(), location.getY());
+    }
+
+    /**
+     * Retrieves the non-blocking object from the specified coordinates (see {@link #getNonBlocking(Location)}).
+     *
+     * @param x coordinate of the tile.
+     * @param y coordinate of the tile.
+     * @return The non-blocking object at the specified coordinates, or null if none is present.
+     * @throws IllegalArgumentException if the coordinates are out of bounds.
+     */
+    public Object getNonBlocking(int x, int y) {
+        validateCoordinates(x, y);
+        return tiles.get(x, y, 0);
     }
 
     /**
@@ -343,8 +593,20 @@ public class World {
      * @return true if the tile is empty (no blocking objects present), false otherwise.
      */
     public boolean isTileEmpty(Location location) {
-        validateCoordinates(location);
-        return tiles[location.getX()][location.getY()][1] == null;
+        return isTileEmpty(location.getX(), location.getY());
+    }
+
+    /**
+     * Checks if the tile at the specified coordinates is empty (see {@link #isTileEmpty(Location)}).
+     *
+     * @param x coordinate of the tile.
+     * @param y coordinate of the tile.
+     * @return true if the tile is empty (no blocking objects present), false otherwise.
+     * @throws IllegalArgumentException if the coordinates are out of bounds.
+     */
+    public boolean isTileEmpty(int x, int y) {
+        validateCoordinates(x, y);
+        return !occupancy[1].get(x, y);
     }
 
     /**
@@ -355,8 +617,41 @@ public class World {
      * @return true if a non-blocking object is present, false otherwise.
      */
     public boolean containsNonBlocking(Location location) {
-        validateCoordinates(location);
-        return this.tiles[location.getX()][location.getY()][0] != null;
+        return containsNonBlocking(location.getX(), location.getY());
+    }
+
+    /**
+     * Determines whether the tile at the specified coordinates contains a non-blocking object (see {@link #containsNonBlocking(Location)}).
+     *
+     * @param x coordinate of the tile.
+     * @param y coordinate of the tile.
+     * @return true if a non-blocking object is present, false otherwise.
+     * @throws IllegalArgumentException if the coordinates are out of bounds.
+     */
+    public boolean containsNonBlocking(int x, int y) {
+        validateCoordinates(x, y);
+        return occupancy[0].get(x, y);
+    }
+
+    /**
+     * Determines which of the tiles immediately surrounding the specified coordinates (including diagonals) are empty within
+     * a layer, i.e., contain no blocking objects or no non-blocking objects respectively. The result is computed from bitsets
+     * kept by the world, without examining the tiles one by one. Tiles outside the bounds of the world are never reported as empty.
+     *
+     * @param x coordinate of the central tile.
+     * @param y coordinate of the central tile.
+     * @param layer the layer which must be empty.
+     * @return a mask of the empty neighbours (see {@link NeighbourMask} for the meaning of each bit).
+     * @throws IllegalArgumentException if the coordinates are out of bounds.
+     */
+    public int getEmptyNeighbourMask(int x, int y, Layer layer) {
+        validateCoordinates(x, y);
+        OccupancyBits bits = occupancy[layer.ordinal()];
+        int above = bits.row3(x, y - 1);
+        int row = bits.row3(x, y);
+        int below = bits.row3(x, y + 1);
+        int occupied = above | (row & 0b001) << 3 | (row & 0b100) << 2 | below << 5;
+        return ~occupied & 0xFF;
     }
 
 
@@ -386,22 +681,40 @@ public class World {
      *                                  if the radius is negative.
      */
     public Set<Location> getSurroundingTiles(Location location, int radius) {
-        validateCoordinates(location);
-        // give a list of surrounding tiles (including diagonals)
         Set<Location> surroundingTiles = new HashSet<Location>();
+        visitSurroundingTiles(location, radius, (x, y) -> {
+            surroundingTiles.add(toLocation(y * size + x));
+            return false;
+        });
+        return surroundingTiles;
+    }
 
-        for (int x = -radius; x <= radius; x++) {
-            for (int y = -radius; y <= radius; y++) {
-                int xCoord = location.getX() + x;
-                int yCoord = location.getY() + y;
-                if (xCoord == location.getX() && yCoord == location.getY())
+    /**
+     * Walks the tiles surrounding the specified location within a given radius (the same tiles as provided by
+     * {@link #getSurroundingTiles(Location, int)}) without allocating any locations or collections. Tiles are visited row by row
+     * and the visitor may stop the walk early by returning true. Tiles outside the world's bounds are excluded.
+     *
+     * @param location The location for which surrounding tiles are to be visited.
+     * @param radius   The radius within which to visit surrounding tiles.
+     * @param visitor  The callback receiving the coordinates of each tile.
+     * @return true if the visitor stopped the walk early, false if all tiles were visited.
+     * @throws IllegalArgumentException if the specified location is out of bounds.
+     */
+    public boolean visitSurroundingTiles(Location location, int radius, TileVisitor visitor) {
+        validateCoordinates(location);
+        int cx = location.getX();
+        int cy = location.getY();
+        int maxX = Math.min(size - 1, cx + radius);
+        int maxY = Math.min(size - 1, cy + radius);
+        for (int y = Math.max(0, cy - radius); y <= maxY; y++) {
+            for (int x = Math.max(0, cx - radius); x <= maxX; x++) {
+                if (x == cx && y == cy)
                     continue; // skip the tile itself (the center)
-                if (xCoord >= 0 && xCoord < tiles.length && yCoord >= 0 && yCoord < tiles[0].length) {
-                    surroundingTiles.add(new Location(xCoord, yCoord));
-                }
+                if (visitor.visit(x, y))
+                    return true;
             }
         }
-        return surroundingTiles;
+        return false;
     }
 
     /**
@@ -419,29 +732,25 @@ public class World {
      * @throws IllegalArgumentException if the specified location is out of bounds.
      */
     public Set<Location> getEmptySurroundingTiles(Location location) {
-        Set<Location> surroundingTiles = getSurroundingTiles(location);
-        Iterator<Location> it = surroundingTiles.iterator();
-        while (it.hasNext()) {
-            Location tile = it.next();
-            if (!isTileEmpty(tile))
-                it.remove();
+        Set<Location> surroundingTiles = new HashSet<Location>();
+        int mask = getEmptyNeighbourMask(location.getX(), location.getY(), Layer.BLOCKING);
+        for (; mask != 0; mask &= mask - 1) {
+            int i = Integer.numberOfTrailingZeros(mask);
+            surroundingTiles.add(toLocation((location.getY() + NeighbourMask.dy(i)) * size + location.getX() + NeighbourMask.dx(i)));
         }
         return surroundingTiles;
     }
 
 
     /**
-     * Retrieves a copy of the three-dimensional array representing the current state of the world map. 
-     * Each element in this array corresponds to a specific location in the world, 
-     * with the first two dimensions representing the x and y coordinates, 
-     * and the third dimension representing layers (0 for non-blocking, 1 for blocking objects). 
-     * Note that the returned array is a copy, ensuring that modifications to it 
-     * do not affect the actual world state.
+     * Provides read-only access to one layer of the world map (non-blocking or blocking objects).
+     * The view reflects the current state of the world, and cannot be used to modify it.
      * 
-     * @return A copy of the three-dimensional array representing the world's map.
+     * @param layer the layer to access.
+     * @return a view of the layer.
      */
-    public Object[][][] getTiles() {
-        return tiles.clone();
+    public LayerView getLayer(Layer layer) {
+        return layers[layer.ordinal()];
     }
 
 
@@ -455,7 +764,350 @@ public class World {
      *         modification exceptions.
      */
     public java.util.Map<Object, Location> getEntities() {
-        return new HashMap<>(entities);
+        Map<Object, Location> copy = new HashMap<>(entities.size() * 2);
+        for (int handle = 0; handle < entities.limit(); handle++) {
+            Object o = entities.entity(handle);
+            if (o == null) continue;
+            int position = entities.position(handle);
+            copy.put(o, position == EntityIndex.NOT_ON_MAP ? null : toLocation(position));
+        }
+        return copy;
+    }
+
+    /**
+     * Fills the given map with all objects within the world (including those who do not currently reside on the map).
+     * This is the same as {@link #getEntities()} but allows the caller to reuse a map instead of a new one being
+     * created every time.
+     * 
+     * @param into the map to fill (it is cleared first). Keys are the objects and their value is the location they
+     *             are currently placed on (null if not currently on the map).
+     * @return the given map.
+     */
+    public Map<Object, Location> getEntities(Map<Object, Location> into) {
+        into.clear();
+        for (int handle = 0; handle < entities.limit(); handle++) {
+            Object o = entities.entity(handle);
+            if (o == null) continue;
+            int position = entities.position(handle);
+            into.put(o, position == EntityIndex.NOT_ON_MAP ? null : toLocation(position));
+        }
+        return into;
+    }
+
+    /**
+     * Provides a cursor iterating every object within the world (including those who do not currently reside on the map)
+     * without copying them. The world may be modified while iterating: objects deleted before the cursor reaches them are
+     * skipped, and objects added after the cursor was created are not visited (they will be visited by the next cursor).
+     * 
+     * @return a cursor positioned before the first object.
+     */
+    public EntityCursor entityCursor() {
+        return new EntityCursor(this, entities, false);
+    }
+
+    /**
+     * Provides a cursor iterating the objects within the world (like {@link #entityCursor()}), optionally skipping the dormant
+     * objects (see {@link #sleep(Object)}). Dormant objects are skipped many at a time, so iterating costs little for each of them.
+     * 
+     * @param awakeOnly true to skip the objects which are dormant when the cursor reaches them.
+     * @return a cursor positioned before the first object.
+     */
+    public EntityCursor entityCursor(boolean awakeOnly) {
+        return new EntityCursor(this, entities, awakeOnly);
+    }
+
+    /**
+     * Provides cursors which together iterate every object within the world (like {@link #entityCursor()}), each of them visiting
+     * a separate share of the objects. This allows several threads to iterate the world at once, e.g., one cursor per thread.
+     * Iterating the cursors one after the other visits the objects in the same order as a single cursor would.
+     * 
+     * @param count the amount of cursors.
+     * @return the cursors, each positioned before its first object.
+     * @throws IllegalArgumentException if count is less than 1.
+     */
+    public EntityCursor[] entityCursors(int count) {
+        return entityCursors(count, false);
+    }
+
+    /**
+     * Provides cursors which together iterate the objects within the world (like {@link #entityCursors(int)}), optionally skipping the
+     * dormant objects (see {@link #entityCursor(boolean)}).
+     * 
+     * @param count the amount of cursors.
+     * @param awakeOnly true to skip the objects which are dormant when a cursor reaches them.
+     * @return the cursors, each positioned before its first object.
+     * @throws IllegalArgumentException if count is less than 1.
+     */
+    public EntityCursor[] entityCursors(int count, boolean awakeOnly) {
+        if (count < 1)
+            throw new IllegalArgumentException("Count must be at least 1.");
+        int generation = entities.nextGeneration();
+        int limit = entities.limit();
+        EntityCursor[] cursors = new EntityCursor[count];
+        for (int i = 0; i < count; i++) {
+            cursors[i] = new EntityCursor(this, entities, generation, null, (int) ((long) limit * i / count), (int) ((long) limit * (i + 1) / count), awakeOnly);
+        }
+        return cursors;
+    }
+
+    /**
+     * Sets the order in which the objects are activated, i.e., visited by {@link #activationCursors(int)}. Without an order, they are
+     * visited in the order of their internal handles, which has nothing to do with where they are on the map, so consecutive actors
+     * tend to work on unrelated parts of the map. Ordering them along the map (e.g., {@link ActivationOrder#MORTON}) lets them find the
+     * tiles they work on in the cache more often, which can pay off on maps too large for the tiles to stay in the cache. On the other
+     * hand, the objects themselves are then visited out of the order they were created in (which is often the order they are laid
+     * out in memory), and the order is kept up to date as objects are added, moved, deleted and fall dormant, which costs about a
+     * pass over the objects which are awake per step. Measure before settling on an order. Changing the order changes the outcome
+     * of randomized simulations (the same seed gives a different run). The order is not written to checkpoints.
+     *
+     * @param order to activate the objects in, or null to activate them in the order of their handles.
+     */
+    public void setActivationOrder(ActivationOrder order) {
+        schedule = order == null ? null : new ActivationSchedule(order, size);
+    }
+
+    /**
+     * Provides the order in which the objects are activated (see {@link #setActivationOrder(ActivationOrder)}).
+     *
+     * @return the order or null if they are activated in the order of their handles.
+     */
+    public ActivationOrder getActivationOrder() {
+        return schedule == null ? null : schedule.order();
+    }
+
+    /**
+     * Provides cursors which together iterate the objects within the world which are not dormant (like {@link #entityCursors(int, boolean)}),
+     * in the activation order of the world (see {@link #setActivationOrder(ActivationOrder)}). Each cursor visits a consecutive share of the
+     * order, so iterating the cursors one after the other visits every object in order. The order is fixed when the cursors are created:
+     * objects moving while iterating are visited where they were in the order, and objects woken while iterating are left for the next
+     * cursors (like objects added).
+     *
+     * @param count the amount of cursors.
+     * @return the cursors, each positioned before its first object.
+     * @throws IllegalArgumentException if count is less than 1.
+     */
+    public EntityCursor[] activationCursors(int count) {
+        if (schedule == null) return entityCursors(count, true);
+        if (count < 1)
+            throw new IllegalArgumentException("Count must be at least 1.");
+        int[] order = schedule.refresh(entities);
+        int generation = entities.nextGeneration();
+        EntityCursor[] cursors = new EntityCursor[count];
+        for (int i = 0; i < count; i++) {
+            cursors[i] = new EntityCursor(this, entities, generation, order, (int) ((long) order.length * i / count), (int) ((long) order.length * (i + 1) / count), true);
+        }
+        return cursors;
+    }
+
+    /**
+     * Provides the tiles which changed since they were last cleared (see {@link DirtyTiles}). The world only starts keeping
+     * track of changed tiles once this has been called, and initially reports every tile as changed.
+     * 
+     * @return the changed tiles of this world.
+     */
+    public DirtyTiles getDirtyTiles() {
+        if (dirty == null) dirty = new DirtyTiles(size);
+        return dirty;
+    }
+
+    /**
+     * Marks a tile as changed without anything being placed on or lifted off it, e.g., because the appearance of an object
+     * on the tile changed (see {@link #getDirtyTiles()}).
+     * 
+     * @param location the location of the tile.
+     * @throws IllegalArgumentException if the location is out of bounds.
+     */
+    public void markDirty(Location location) {
+        validateCoordinates(location);
+        markChanged(location.getY() * size + location.getX());
+    }
+
+    /**
+     * Subscribes a listener to the changes made to the world. While any listener is subscribed, the world records every
+     * object added, placed, moved, removed or deleted in a {@link MutationJournal}, which is handed to the listeners whenever
+     * {@link #flushJournal()} is called (the simulator does so after every step). Without listeners nothing is recorded.
+     * 
+     * @param listener the listener to subscribe.
+     */
+    public void addMutationListener(MutationListener listener) {
+        listeners.add(listener);
+        if (journal == null) journal = new MutationJournal(this);
+    }
+
+    /**
+     * Unsubscribes a listener from the changes made to the world (see {@link #addMutationListener(MutationListener)}).
+     * 
+     * @param listener the listener to unsubscribe.
+     */
+    public void removeMutationListener(MutationListener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) journal = null;
+    }
+
+    /**
+     * Hands the changes recorded since the previous flush to every subscribed listener, and clears the journal afterwards.
+     * Does nothing when no listeners are subscribed. May be called from any thread: the journal is locked during the flush, so
+     * flushes take turns and changes made by other threads meanwhile wait until the listeners are done (which must therefore not
+     * wait for those threads, nor modify the world themselves).
+     */
+    public void flushJournal() {
+        MutationJournal recorded = journal;
+        if (recorded == null) return;
+        synchronized (recorded) { // the same lock as recording (see record)
+            for (MutationListener listener : List.copyOf(listeners)) { // listeners may unsubscribe while being notified
+                listener.onMutations(recorded);
+            }
+            recorded.clear();
+        }
+    }
+
+    /**
+     * Sets whether the world may be modified by several threads at once. While concurrent, each thread must only read and modify
+     * the tiles (and the objects on them) within a band of rows, and the bands of threads running at the same time must be
+     * separated as described by {@link #getStripeHeight(int)}. The current location (see {@link #setCurrentLocation(Location)})
+     * is shared by every thread and should not be relied upon. Must not be changed while other threads use the world.
+     * 
+     * @param concurrent true if the world is used by several threads from now on.
+     */
+    public void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+        entities.setConcurrent(concurrent);
+    }
+
+    /**
+     * Provides an indicator of whether the world may be modified by several threads at once (see {@link #setConcurrent(boolean)}).
+     * 
+     * @return true if the world is concurrent.
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * Sets whether the world is read-only. While read-only, the world can be read by several threads at once (without being concurrent),
+     * but adding, placing, moving, removing or deleting objects throws an exception. Used by the simulator while actors plan their actions
+     * (see {@link itumulator.simulator.IntentActor}).
+     * 
+     * @param readOnly true if the world must not be modified from now on.
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Provides an indicator of whether the world is read-only (see {@link #setReadOnly(boolean)}).
+     * 
+     * @return true if the world cannot be modified.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Writes the state of the world to a checkpoint: the map and every object within the world (see {@link Checkpointable}), the
+     * clock, the random streams and what dormant objects are waiting for. A world restored from the checkpoint (see {@link #restore(CheckpointInput)})
+     * continues exactly like this world would, given that the objects write all of their fields. Listeners and dirty tiles are not part of the checkpoint.
+     * Must be called between steps, and the checkpoint must be finished afterwards (see {@link CheckpointOutput#finish()}).
+     *
+     * @param out the checkpoint to write to.
+     * @throws IllegalStateException if the world is read-only.
+     * @throws IllegalArgumentException if an object within the world cannot be checkpointed.
+     */
+    public void checkpoint(CheckpointOutput out) {
+        if (readOnly)
+            throw new IllegalStateException("Cannot checkpoint a world which is read-only.");
+        out.writeInt(size);
+        out.writeBoolean(tiles instanceof ChunkedTileStorage);
+        out.writeLong(seed);
+        out.writeRandom(streams);
+        out.writeLong(added);
+
+        // the objects are written by handle, along with the handles free for reuse, so the restored world hands out the same handles
+        int limit = entities.limit();
+        out.writeInt(limit);
+        for (int handle = 0; handle < limit; handle++) {
+            Object o = entities.entity(handle);
+            out.writeObject(o);
+            if (o != null) out.writeInt(entities.position(handle));
+        }
+        int[] free = entities.freeHandles();
+        out.writeInt(free.length);
+        for (int handle : free) out.writeInt(handle);
+        out.writeLong(steps);
+        out.writeInt(time);
+        out.writeLocation(current);
+        dormancy.checkpoint(out, limit);
+        entered.checkpoint(out);
+    }
+
+    /**
+     * Restores a world from a checkpoint (see {@link #checkpoint(CheckpointOutput)}). The fields of the objects are read once the
+     * checkpoint is finished (see {@link CheckpointInput#finish()}), which must be done before the world is used.
+     *
+     * @param in the checkpoint to read from.
+     * @return the world restored.
+     * @throws IllegalStateException if the checkpoint is corrupt.
+     */
+    public static World restore(CheckpointInput in) {
+        int size = in.readInt();
+        if (size <= 0 || size > MAX_SIZE)
+            throw new IllegalStateException("Checkpoint is corrupt");
+        World world = new World(size, in.readBoolean());
+        world.seed = in.readLong();
+        world.streams = (SplitMixRandom) in.readRandom();
+        long added = in.readLong();
+
+        // placeholders take the free handles, so the objects are given the handles they had
+        int limit = in.readInt();
+        List<Object> placeholders = new ArrayList<>();
+        for (int handle = 0; handle < limit; handle++) {
+            Object o = in.readObject(Object.class);
+            if (o == null) {
+                o = new Object();
+                placeholders.add(o);
+                world.add(o);
+                continue;
+            }
+            int position = in.readInt();
+            if (position == EntityIndex.NOT_ON_MAP) {
+                world.add(o);
+            } else {
+                world.setTile(world.locationAt(position % size, position / size), o);
+            }
+        }
+        int free = in.readInt();
+        if (free != placeholders.size())
+            throw new IllegalStateException("Checkpoint is corrupt");
+        for (int i = 0; i < free; i++) {
+            world.delete(world.entities.entity(in.readInt())); // in the order they were freed, as they are reused the other way around
+        }
+
+        world.added = added;
+        world.steps = in.readLong();
+        world.time = in.readInt();
+        world.current = in.readLocation();
+        world.dormancy.restore(in, world.steps, size);
+        world.entered.restore(in); // replacing the entries counted while placing the objects above
+        return world;
+    }
+
+    /**
+     * Provides the height of the horizontal stripes (starting at row 0) into which the map can be split to let threads modify
+     * the world concurrently. Threads working on every other stripe may run at the same time, given that each thread only reads
+     * and modifies tiles at most {@code reach} rows away from its own stripe: the stripe in between is then high enough
+     * for the threads never to touch the same tile, nor the internal bookkeeping of the world shared by nearby tiles.
+     * 
+     * @param reach the largest distance (in rows) from its own stripe at which a thread touches the world.
+     * @return the height of a stripe in rows (which may exceed the size of the map).
+     * @throws IllegalArgumentException if reach is negative.
+     */
+    public int getStripeHeight(int reach) {
+        if (reach < 0)
+            throw new IllegalArgumentException("Reach cannot be a negative number.");
+        // bookkeeping is kept per square or band of tiles, so stripes are aligned with the largest of them
+        int unit = Math.max(Math.max(ChunkedTileStorage.CHUNK_SIZE, OccupancyBits.BLOCK_HEIGHT), Math.max(1 << LOCATION_BLOCK_SHIFT, buckets.cellSize()));
+        int units = (reach + unit - 1) / unit;
+        return unit * Math.max(2, 2 * units);
     }
 
     /**
@@ -465,7 +1117,7 @@ public class World {
      */
     public boolean contains(Object o){
         if(o == null) throw new IllegalArgumentException("Object cannot be null");
-        return entities.containsKey(o);
+        return entities.handleOf(o) != EntityIndex.NO_HANDLE;
     }
 
     /**
@@ -474,8 +1126,10 @@ public class World {
      * @return true if the object exists on a tile
      */
     public boolean isOnTile(Object o){
-        if(!contains(o)) throw new IllegalArgumentException("Object must exist in world");
-        return entities.get(o) != null;
+        if(o == null) throw new IllegalArgumentException("Object cannot be null");
+        int handle = entities.handleOf(o);
+        if(handle == EntityIndex.NO_HANDLE) throw new IllegalArgumentException("Object must exist in world");
+        return entities.position(handle) != EntityIndex.NOT_ON_MAP;
     }
 
     /**
@@ -493,28 +1147,315 @@ public class World {
         return objects;
     }
 
+    /**
+     * Finds the nearest object which is an instance of the type given within a radius of the location given.
+     * The area searched is the same as {@link #getSurroundingTiles(Location, int)} (i.e., the location itself is excluded),
+     * and both blocking and non-blocking objects are considered. Regions of the map without any objects of the type
+     * are skipped entirely, which makes this considerably cheaper than examining every surrounding tile.
+     * @param type the class we are looking for.
+     * @param location the center of the area to search.
+     * @param radius the radius of the area to search.
+     * @return the location of the nearest (by Manhattan distance) matching object, or null if none exists within the area
+     *         (of several equally near, the one with the lowest y, then the lowest x).
+     * @throws IllegalArgumentException if the location is out of bounds.
+     */
+    public <T> Location getNearest(Class<T> type, Location location, int radius) {
+        return getNearest(type, location, radius, location, null);
+    }
+
+    /**
+     * Finds the object nearest to a location, which is an instance of the type given and accepted by the filter, within an area of the map.
+     * The area searched is the same as {@link #getSurroundingTiles(Location, int)} around the center given (i.e., the center itself is excluded),
+     * and both blocking and non-blocking objects are considered. Regions of the map without any objects of the type
+     * are skipped entirely, which makes this considerably cheaper than examining every tile of the area.
+     * @param type the class we are looking for.
+     * @param center the center of the area to search.
+     * @param radius the radius of the area to search.
+     * @param from the location to measure (Manhattan) distances from.
+     * @param filter additional requirements of the object (can be null to accept all objects of the type).
+     * @return the location of the nearest matching object, or null if none exists within the area (of several equally near,
+     *         the one with the lowest y, then the lowest x).
+     * @throws IllegalArgumentException if the center is out of bounds.
+     */
+    public <T> Location getNearest(Class<T> type, Location center, int radius, Location from, Predicate<? super T> filter) {
+        validateCoordinates(center);
+        int[][] counts = buckets.countsFor(type);
+        if (counts.length == 0) return null;
+
+        int minX = Math.max(0, center.getX() - radius);
+        int maxX = Math.min(size - 1, center.getX() + radius);
+        int minY = Math.max(0, center.getY() - radius);
+        int maxY = Math.min(size - 1, center.getY() + radius);
+        int cellsPerSide = buckets.cellsPerSide();
+        int cellSize = buckets.cellSize();
+
+        int bestX = -1, bestY = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int cy = minY / cellSize; cy <= maxY / cellSize; cy++) {
+            for (int cx = minX / cellSize; cx <= maxX / cellSize; cx++) {
+                if (!SpatialBuckets.isOccupied(counts, cy * cellsPerSide + cx)) continue;
+                int toY = Math.min(maxY, cy * cellSize + cellSize - 1);
+                int toX = Math.min(maxX, cx * cellSize + cellSize - 1);
+                for (int y = Math.max(minY, cy * cellSize); y <= toY; y++) {
+                    for (int x = Math.max(minX, cx * cellSize); x <= toX; x++) {
+                        if (x == center.getX() && y == center.getY()) continue;
+                        if (!matches(type, tiles.get(x, y, 1), filter) && !matches(type, tiles.get(x, y, 0), filter)) continue;
+                        int d = Math.abs(x - from.getX()) + Math.abs(y - from.getY());
+                        if (d < bestDistance || d == bestDistance && (y < bestY || y == bestY && x < bestX)) {
+                            bestDistance = d;
+                            bestX = x;
+                            bestY = y;
+                        }
+                    }
+                }
+            }
+        }
+        return bestDistance == Integer.MAX_VALUE ? null : toLocation(bestY * size + bestX);
+    }
+
+    /**
+     * Returns all objects which are instances of the type given within a radius of a location. The area searched is the same as
+     * {@link #getSurroundingTiles(Location, int)} (i.e., the location itself is excluded), and both blocking and non-blocking objects are considered.
+     * Regions of the map without any objects of the type are skipped entirely.
+     * @param type the class we are looking for.
+     * @param location the center of the area to search.
+     * @param radius the radius of the area to search.
+     * @return a list (in a deterministic order) of all matching objects, or an empty list if none matches the type.
+     * @throws IllegalArgumentException if the location is out of bounds.
+     */
+    public <T> List<T> getAll(Class<T> type, Location location, int radius) {
+        validateCoordinates(location);
+        List<T> objects = new ArrayList<>();
+        int[][] counts = buckets.countsFor(type);
+        if (counts.length == 0) return objects;
+
+        int minX = Math.max(0, location.getX() - radius);
+        int maxX = Math.min(size - 1, location.getX() + radius);
+        int minY = Math.max(0, location.getY() - radius);
+        int maxY = Math.min(size - 1, location.getY() + radius);
+        int cellsPerSide = buckets.cellsPerSide();
+        int cellSize = buckets.cellSize();
+
+        for (int cy = minY / cellSize; cy <= maxY / cellSize; cy++) {
+            for (int cx = minX / cellSize; cx <= maxX / cellSize; cx++) {
+                if (!SpatialBuckets.isOccupied(counts, cy * cellsPerSide + cx)) continue;
+                int toY = Math.min(maxY, cy * cellSize + cellSize - 1);
+                int toX = Math.min(maxX, cx * cellSize + cellSize - 1);
+                for (int y = Math.max(minY, cy * cellSize); y <= toY; y++) {
+                    for (int x = Math.max(minX, cx * cellSize); x <= toX; x++) {
+                        if (x == location.getX() && y == location.getY()) continue;
+                        Object blocking = tiles.get(x, y, 1);
+                        Object nonBlocking = tiles.get(x, y, 0);
+                        if (type.isInstance(blocking)) objects.add(type.cast(blocking));
+                        if (type.isInstance(nonBlocking)) objects.add(type.cast(nonBlocking));
+                    }
+                }
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * Searches outwards from a location, ring by ring, for a tile whose content in the given layer is accepted by the filter.
+     * A ring of radius r consists of the tiles exactly r steps away when moving diagonally is allowed (i.e., the border of
+     * {@link #getSurroundingTiles(Location, int)} with radius r). The search stops at the first ring containing an accepted tile,
+     * so the cost is proportional to the distance found rather than the largest radius. Among the accepted tiles of that ring,
+     * the one nearest by Manhattan distance is chosen (ties are decided by the order of the walk: the top row, the bottom row, then the
+     * left and right columns, each from the lowest coordinate).
+     * Tiles outside the world's bounds are excluded.
+     * 
+     * @param from      the location to search from (the location itself is never considered).
+     * @param minRadius the radius of the first ring to search (at least 1).
+     * @param maxRadius the radius of the last ring to search.
+     * @param layer     the layer of the tiles to test.
+     * @param filter    decides whether a tile is accepted given the object in its layer (which is null if the layer is empty,
+     *                  e.g., {@code java.util.Objects::isNull} finds the nearest free tile).
+     * @return the location of the accepted tile, or null if none exists within the rings searched.
+     * @throws IllegalArgumentException if the location is out of bounds or the minimum radius is less than 1.
+     */
+    public Location findNearest(Location from, int minRadius, int maxRadius, Layer layer, Predicate<Object> filter) {
+        validateCoordinates(from);
+        if (minRadius < 1)
+            throw new IllegalArgumentException("Minimum radius must be at least 1");
+        int cx = from.getX();
+        int cy = from.getY();
+        int l = layer.ordinal();
+
+        for (int r = minRadius; r <= maxRadius; r++) {
+            int top = cy - r, bottom = cy + r, left = cx - r, right = cx + r;
+            if (top < 0 && left < 0 && bottom >= size && right >= size)
+                break; // the ring (and every ring beyond it) is outside the map
+
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            int minX = Math.max(0, left), maxX = Math.min(size - 1, right);
+            int minY = Math.max(0, top + 1), maxY = Math.min(size - 1, bottom - 1);
+            // the top and bottom rows of the ring
+            for (int y = top; y <= bottom; y += 2 * r) {
+                if (y < 0 || y >= size) continue;
+                for (int x = minX; x <= maxX; x++) {
+                    int d = Math.abs(x - cx) + r;
+                    if (d < bestDistance && filter.test(tiles.get(x, y, l))) {
+                        bestDistance = d;
+                        best = y * size + x;
+                    }
+                }
+            }
+            // the left and right columns of the ring (excluding the corners)
+            for (int x = left; x <= right; x += 2 * r) {
+                if (x < 0 || x >= size) continue;
+                for (int y = minY; y <= maxY; y++) {
+                    int d = Math.abs(y - cy) + r;
+                    if (d < bestDistance && filter.test(tiles.get(x, y, l))) {
+                        bestDistance = d;
+                        best = y * size + x;
+                    }
+                }
+            }
+            if (best != -1)
+                return toLocation(best);
+        }
+        return null;
+    }
+
     // Private methods
 
+    private <T> boolean matches(Class<T> type, Object o, Predicate<? super T> filter) {
+        return type.isInstance(o) && (filter == null || filter.test(type.cast(o)));
+    }
+
     private void validateCurrent() {
         if (current == null)
             throw new IllegalStateException("Currently no location is set");
     }
 
     private void validateCoordinates(Location l) {
-        if (l.getX() < 0 || l.getX() >= size || l.getY() < 0 || l.getY() >= size)
+        validateCoordinates(l.getX(), l.getY());
+    }
+
+    private void validateCoordinates(int x, int y) {
+        if (x < 0 || x >= size || y < 0 || y >= size)
             throw new IllegalArgumentException("Tile out of bounds");
     }
 
-    private void validateLocation(Object o) {
-        if (!entities.containsKey(o))
+    private int validateLocation(Object o) {
+        return validateLocation(entities.handleOf(o));
+    }
+
+    // provides the handle of the object, given that it exists (whether or not it is on the map)
+    private int validateHandle(Object o) {
+        int handle = entities.handleOf(o);
+        if (handle == EntityIndex.NO_HANDLE)
+            throw new IllegalArgumentException("Object does not exist in the world.");
+        return handle;
+    }
+
+    // provides the packed position of the handle, given that it exists and is on the map
+    private int validateLocation(int handle) {
+        if (handle == EntityIndex.NO_HANDLE)
             throw new IllegalArgumentException("Object does not exist in the world.");
-        Location l = entities.get(o);
-        if (l == null)
+        int position = entities.position(handle);
+        if (position == EntityIndex.NOT_ON_MAP)
             throw new IllegalArgumentException("Object is not on the map.");
+        return position;
+    }
+
+    // places the object in its layer of the tile and provides the packed position of the tile
+    private int placeOnTile(Location location, Object object) {
+        int x = location.getX();
+        int y = location.getY();
+
+        if (object instanceof NonBlocking) {
+            if (tiles.get(x, y, 0) != null)
+                throw new IllegalArgumentException("Tile cannot contain more than one non-blocking object");
+
+            tiles.set(x, y, 0, object);
+            occupancy[0].set(x, y);
+        } else {
+            if (tiles.get(x, y, 1) != null)
+                throw new IllegalArgumentException("Tile cannot contain more than one blocking object");
+            tiles.set(x, y, 1, object);
+            occupancy[1].set(x, y);
+        }
+        buckets.add(object, location.getX(), location.getY());
+        int position = location.getY() * size + location.getX();
+        markChanged(position);
+        return position;
+    }
+
+    private void clearTile(int position, Object object) {
+        int x = position % size;
+        int y = position / size;
+        this.tiles.set(x, y, layerOf(object), null);
+        occupancy[layerOf(object)].clear(x, y);
+        markChanged(position);
+        buckets.remove(object, x, y);
+    }
+
+    // gives an object entering the world a stream of its own. Objects placed on the map are told apart by where and when they
+    // entered, and by how many objects entered the same tile before them in the same step, rather than by the order in which
+    // objects entered anywhere (which may vary when threads place objects concurrently). Objects added without being placed are
+    // told apart by the order in which they were added.
+    private void provideRandom(Object object, long key) {
+        if (object instanceof Randomized randomized)
+            randomized.provideRandom(new SplitMixRandom(mix(seed ^ mix(key))));
+    }
+
+    // the finalizer of MurmurHash3, spreading every bit of a key over the whole result
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private void checkWritable() {
+        if (readOnly)
+            throw new IllegalStateException("The world is read-only.");
+    }
+
+    // records a change in the journal, if anyone listens
+    private void record(int kind, int handle, Object object, int from, int to) {
+        MutationJournal journal = this.journal;
+        if (journal == null) return;
+        synchronized (journal) { // the world might be modified by several threads at once
+            journal.record(kind, handle, object, from, to);
+        }
+    }
+
+    // marks a tile as changed, if anyone keeps track (and wakes the objects waiting for it to change)
+    private void markChanged(int position) {
+        if (dormancy.isWatching()) dormancy.changed(position % size, position / size);
+        DirtyTiles dirty = this.dirty;
+        if (dirty == null) return;
+        synchronized (dirty) {
+            dirty.mark(position);
+        }
+    }
+
+    Location toLocation(int position) {
+        int x = position % size;
+        int y = position / size;
+        int b = (y >> LOCATION_BLOCK_SHIFT) * locationBlocksPerSide + (x >> LOCATION_BLOCK_SHIFT);
+        Location[] block = locations[b];
+        if (block == null) {
+            // published atomically, so threads iterating the world at once still share a single instance per tile
+            Location[] created = new Location[1 << (LOCATION_BLOCK_SHIFT * 2)];
+            block = (Location[]) LOCATION_BLOCKS.compareAndExchange(locations, b, null, created);
+            if (block == null) block = created;
+        }
+        int mask = (1 << LOCATION_BLOCK_SHIFT) - 1;
+        int i = ((y & mask) << LOCATION_BLOCK_SHIFT) | (x & mask);
+        Location l = block[i];
+        if (l == null) {
+            Location created = new Location(x, y);
+            l = (Location) LOCATIONS.compareAndExchange(block, i, null, created);
+            if (l == null) l = created;
+        }
+        return l;
     }
 
 
-    private int getLayer(Object o) {
+    private int layerOf(Object o) {
         if (o instanceof NonBlocking)
             return 0;
         return 1;